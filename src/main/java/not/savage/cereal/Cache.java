@@ -21,11 +21,34 @@ public interface Cache<T extends DataBlob<K>, K> {
      */
     void save(@NonNull T t);
 
+    /**
+     * Save only the given fields of the object, leaving the rest of the stored object untouched.
+     * @param t The object to save
+     * @param fields The dotted field paths to save (e.g. "coins", "stats.kills")
+     */
+    void saveFields(@NonNull T t, @NonNull String... fields);
+
+    /**
+     * Add to a counter field of an object. Increments are buffered locally & flushed periodically
+     * as atomic increments in the database, so totals are correct across nodes sharing the object.
+     * The cached object reflects the increment once it has been flushed.
+     * @param key The key of the object
+     * @param field The field, which must be annotated with {@link not.savage.cereal.annotation.Counter}
+     * @param delta The amount to add, can be negative
+     */
+    void increment(@NonNull K key, @NonNull String field, long delta);
+
     /**
      * Save all objects in the cache
      */
     void saveAll();
 
+    /**
+     * Save all objects in the cache, async task
+     * @return A future completed once the objects are saved
+     */
+    @NonNull CompletableFuture<Void> saveAllAsync();
+
     /**
      * Remove the object from the cache, sync task
      * @param key The object to remove
@@ -112,6 +135,59 @@ public interface Cache<T extends DataBlob<K>, K> {
      */
     @NonNull CompletableFuture<Set<T>> getAllByFieldAsync(@NonNull String field, @NonNull Object value, int limit);
 
+    /**
+     * Get only the given fields of an object, sync task.
+     * Cached objects are projected in memory, otherwise only the selected fields are fetched from the datasource.
+     * Projections are never cached.
+     * @param key The key of the object
+     * @param fields The dotted field paths to fetch
+     * @return The projection or empty if no object exists with the given key
+     */
+    @NonNull Optional<Projection<K>> getProjected(@NonNull K key, @NonNull String... fields);
+
+    /**
+     * Get only the given fields of an object, async task.
+     * @param key The key of the object
+     * @param fields The dotted field paths to fetch
+     * @return The projection or empty if no object exists with the given key
+     */
+    @NonNull CompletableFuture<Optional<Projection<K>>> getProjectedAsync(@NonNull K key, @NonNull String... fields);
+
+    /**
+     * Get only the given fields of every stored object, sync task.
+     * Cached objects take priority over their stored values. Projections are never cached.
+     * @param fields The dotted field paths to fetch
+     * @return Non-null set which can contain 0 - n projections
+     */
+    @NonNull Set<Projection<K>> getAllProjected(@NonNull String... fields);
+
+    /**
+     * Get only the given fields of every stored object, async task.
+     * @param fields The dotted field paths to fetch
+     * @return Non-null set which can contain 0 - n projections
+     */
+    @NonNull CompletableFuture<Set<Projection<K>>> getAllProjectedAsync(@NonNull String... fields);
+
+    /**
+     * Get only the given fields of all objects matching a field, sync task.
+     * @param field The field to search
+     * @param value The value to search
+     * @param limit The maximum number of objects to return, -1 for no limit
+     * @param fields The dotted field paths to fetch
+     * @return Non-null set which can contain 0 - limit projections
+     */
+    @NonNull Set<Projection<K>> getAllByFieldProjected(@NonNull String field, @NonNull Object value, int limit, @NonNull String... fields);
+
+    /**
+     * Get only the given fields of all objects matching a field, async task.
+     * @param field The field to search
+     * @param value The value to search
+     * @param limit The maximum number of objects to return, -1 for no limit
+     * @param fields The dotted field paths to fetch
+     * @return Non-null set which can contain 0 - limit projections
+     */
+    @NonNull CompletableFuture<Set<Projection<K>>> getAllByFieldProjectedAsync(@NonNull String field, @NonNull Object value, int limit, @NonNull String... fields);
+
     /**
      * Returns the cached object or Optional.empty()
      * If the object is not cached, it will be loaded asynchronously and cached,
@@ -15,6 +15,7 @@ import not.savage.cereal.internal.CerealDatabase;
 import not.savage.cereal.internal.platform.file.CerealFileDatabase;
 import not.savage.cereal.internal.platform.mongo.CerealMongoDatabase;
 import not.savage.cereal.internal.platform.sql.CerealSQLDatabase;
+import not.savage.cereal.internal.platform.sqlite.CerealSQLiteDatabase;
 
 import java.io.File;
 import java.lang.reflect.ParameterizedType;
@@ -117,8 +118,12 @@ public class CerealAPI implements CerealLogger {
                 this.sharedDatabaseInstance = new CerealMongoDatabase(serverConfig);
                 break;
             case SQL:
+            case POSTGRES:
                 this.sharedDatabaseInstance = new CerealSQLDatabase(serverConfig);
                 break;
+            case SQLITE:
+                this.sharedDatabaseInstance = new CerealSQLiteDatabase(serverConfig);
+                break;
             default:
                 throw new UnsupportedOperationException("Unsupported Cereal mode: " + this.serverConfig.mode());
         }
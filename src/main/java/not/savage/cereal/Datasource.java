@@ -5,6 +5,7 @@ import not.savage.cereal.exception.DatasourceException;
 import not.savage.cereal.sort.CerealFilterMode;
 import not.savage.cereal.sort.CerealSortMode;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -138,6 +139,58 @@ public interface Datasource<T extends DataBlob<K>, K> {
             int limit
     );
 
+    /**
+     * Get only the given fields of a value from the datasource, sync task.
+     * Only the selected fields are fetched from the backend & the full object is never deserialized.
+     * @param key The key to get
+     * @param fields The dotted field paths to fetch (e.g. "guildName", "stats.kills")
+     * @return The projection, or empty if no value exists with the given key
+     */
+    @NonNull Optional<Projection<K>> getProjected(@NonNull K key, @NonNull String... fields);
+
+    /**
+     * Get only the given fields of a value from the datasource, async task.
+     * @param key The key to get
+     * @param fields The dotted field paths to fetch (e.g. "guildName", "stats.kills")
+     * @return The projection, or empty if no value exists with the given key
+     */
+    @NonNull CompletableFuture<Optional<Projection<K>>> getProjectedAsync(@NonNull K key, @NonNull String... fields);
+
+    /**
+     * Get only the given fields of all values from the datasource, sync task.
+     * Intended for listings (e.g. a guild list) where only a handful of fields are displayed.
+     * @param fields The dotted field paths to fetch (e.g. "guildName", "stats.kills")
+     * @return A non-null set containing a projection for each stored value
+     */
+    @NonNull Set<Projection<K>> getAllProjected(@NonNull String... fields);
+
+    /**
+     * Get only the given fields of all values from the datasource, async task.
+     * @param fields The dotted field paths to fetch (e.g. "guildName", "stats.kills")
+     * @return A non-null set containing a projection for each stored value
+     */
+    @NonNull CompletableFuture<Set<Projection<K>>> getAllProjectedAsync(@NonNull String... fields);
+
+    /**
+     * Get only the given fields of all values matching a field from the datasource, sync task.
+     * @param field The field to search by
+     * @param value The value to search for
+     * @param limit The limit of values to return, -1 for no limit
+     * @param fields The dotted field paths to fetch (e.g. "guildName", "stats.kills")
+     * @return A non-null set containing between 0 - limit projections
+     */
+    @NonNull Set<Projection<K>> getAllByFieldProjected(@NonNull String field, @NonNull Object value, int limit, @NonNull String... fields);
+
+    /**
+     * Get only the given fields of all values matching a field from the datasource, async task.
+     * @param field The field to search by
+     * @param value The value to search for
+     * @param limit The limit of values to return, -1 for no limit
+     * @param fields The dotted field paths to fetch (e.g. "guildName", "stats.kills")
+     * @return A non-null set containing between 0 - limit projections
+     */
+    @NonNull CompletableFuture<Set<Projection<K>>> getAllByFieldProjectedAsync(@NonNull String field, @NonNull Object value, int limit, @NonNull String... fields);
+
     /**
      * Delete a value from the datasource
      * @param value The value to delete
@@ -150,9 +203,33 @@ public interface Datasource<T extends DataBlob<K>, K> {
      */
     void save(@NonNull T value);
 
+    /**
+     * Save only the given fields of a value to the datasource, leaving the rest of the stored value untouched.
+     * Falls back to a full {@link #save(DataBlob)} if the value hasn't been stored yet.
+     * @param value The value to save
+     * @param fields The dotted field paths to save (e.g. "coins", "stats.kills")
+     */
+    void saveFields(@NonNull T value, @NonNull String... fields);
+
+    /**
+     * Atomically add deltas to counter fields of stored values, without reading or rewriting the rest of the value.
+     * Keys which aren't stored yet are skipped, except by backends which can only tell by creating them, which create
+     * those of the creatable keys holding only their counters. Either way they're returned so the caller saves them in full.
+     * @param deltas The deltas to apply, by key then counter field
+     * @param creatable The keys the caller can save in full, e.g. because they're cached
+     * @return The keys which weren't stored before the increment & the keys which failed
+     */
+    @NonNull IncrementResult<K> incrementAll(@NonNull Map<K, Map<String, Long>> deltas, @NonNull Set<K> creatable);
+
     /**
      * Save all values to the datasource
      */
     void saveAll(@NonNull Set<T> values);
 
+    /**
+     * Save all values to the datasource, async task
+     * @return A future completed once the values are saved
+     */
+    @NonNull CompletableFuture<Void> saveAllAsync(@NonNull Set<T> values);
+
 }
@@ -0,0 +1,17 @@
+package not.savage.cereal;
+
+import java.util.Set;
+
+/**
+ * The outcome of {@link Datasource#incrementAll(java.util.Map, Set)}.
+ * @param missing Keys which weren't stored before the increment, so the caller saves them in full
+ * @param failed Keys whose deltas weren't applied, so the caller retries them, empty unless the backend can fail
+ *               part of a batch without rolling back the rest
+ * @param <K> The identifier or key
+ */
+public record IncrementResult<K>(
+        Set<K> missing,
+        Set<K> failed
+) {
+
+}
@@ -0,0 +1,194 @@
+package not.savage.cereal;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * A field of a data blob which is only deserialized when it's first accessed, for large parts of an object which
+ * most code paths never read, e.g. inventories or quest logs.
+ * When the object is loaded the field is kept as its raw compact JSON. If it's never accessed, that JSON is written
+ * back as-is when the object is saved, otherwise the value is serialized like any other field.
+ * <p>
+ * Values returned by {@link #get()} can be changed in place like any other field. Dotted field paths resolve through
+ * lazy fields, loading them. The type argument must be concrete, e.g. {@code Lazy<Map<String, Integer>>}.
+ * <pre>{@code
+ * private final Lazy<Map<String, Quest>> quests = Lazy.of(new HashMap<>());
+ * }</pre>
+ * @param <T> The type of the value
+ */
+@JsonAdapter(value = Lazy.AdapterFactory.class, nullSafe = false)
+public final class Lazy<T> {
+
+    private T value;
+    /**
+     * The compact JSON of the value until it's loaded, then null.
+     */
+    private String raw;
+    private TypeAdapter<T> adapter;
+
+    private Lazy(T value, String raw, TypeAdapter<T> adapter) {
+        this.value = value;
+        this.raw = raw;
+        this.adapter = adapter;
+    }
+
+    /**
+     * @param value The initial value, e.g. of a newly created object
+     * @return An already loaded lazy field
+     */
+    public static <T> Lazy<T> of(T value) {
+        return new Lazy<>(value, null, null);
+    }
+
+    /**
+     * Get the value, deserializing it on the first access.
+     * @throws com.google.gson.JsonParseException if the stored JSON doesn't match the type of the value
+     */
+    public synchronized T get() {
+        if (raw != null) {
+            try {
+                value = adapter.fromJson(raw);
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+            raw = null;
+            adapter = null;
+        }
+        return value;
+    }
+
+    /**
+     * Replace the value, discarding the stored JSON without deserializing it.
+     */
+    public synchronized void set(T value) {
+        this.value = value;
+        this.raw = null;
+        this.adapter = null;
+    }
+
+    /**
+     * @return true if the value was deserialized, or never loaded from storage
+     */
+    public synchronized boolean isLoaded() {
+        return raw == null;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return raw != null ? "Lazy[" + raw.length() + " chars]" : "Lazy[" + value + "]";
+    }
+
+    private synchronized void write(JsonWriter out, TypeAdapter<T> adapter) throws IOException {
+        if (raw == null) {
+            adapter.write(out, value);
+        } else if (out.getClass() == JsonWriter.class) {
+            out.jsonValue(raw);
+        } else {
+            // Tree & BSON writers can't take raw JSON
+            AdapterFactory.TREE.write(out, JsonParser.parseString(raw));
+        }
+    }
+
+    /**
+     * Keeps the value of a lazy field as compact JSON on reads, copied token by token without building a tree.
+     */
+    static final class AdapterFactory implements TypeAdapterFactory {
+
+        private static final TypeAdapter<JsonElement> TREE = new Gson().getAdapter(JsonElement.class);
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public <A> TypeAdapter<A> create(Gson gson, TypeToken<A> type) {
+            if (type.getRawType() != Lazy.class) return null;
+            if (!(type.getType() instanceof ParameterizedType parameterized)) {
+                throw new IllegalArgumentException("Lazy fields need a type argument, e.g. Lazy<Map<String, Integer>>");
+            }
+            Type valueType = parameterized.getActualTypeArguments()[0];
+            return (TypeAdapter<A>) new LazyAdapter(gson.getAdapter(TypeToken.get(valueType)));
+        }
+    }
+
+    private static final class LazyAdapter<T> extends TypeAdapter<Lazy<T>> {
+
+        private final TypeAdapter<T> adapter;
+
+        private LazyAdapter(TypeAdapter<T> adapter) {
+            this.adapter = adapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, Lazy<T> lazy) throws IOException {
+            if (lazy == null) {
+                out.nullValue();
+                return;
+            }
+            lazy.write(out, adapter);
+        }
+
+        @Override
+        public Lazy<T> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return Lazy.of(null);
+            }
+            StringWriter raw = new StringWriter();
+            copy(in, new JsonWriter(raw));
+            return new Lazy<>(null, raw.toString(), adapter);
+        }
+
+        /**
+         * Copy the next value of the reader, numbers keep their textual form.
+         */
+        private static void copy(JsonReader in, JsonWriter out) throws IOException {
+            int depth = 0;
+            do {
+                switch (in.peek()) {
+                    case BEGIN_OBJECT -> {
+                        in.beginObject();
+                        out.beginObject();
+                        depth++;
+                    }
+                    case END_OBJECT -> {
+                        in.endObject();
+                        out.endObject();
+                        depth--;
+                    }
+                    case BEGIN_ARRAY -> {
+                        in.beginArray();
+                        out.beginArray();
+                        depth++;
+                    }
+                    case END_ARRAY -> {
+                        in.endArray();
+                        out.endArray();
+                        depth--;
+                    }
+                    case NAME -> out.name(in.nextName());
+                    case STRING -> out.value(in.nextString());
+                    case NUMBER -> out.jsonValue(in.nextString());
+                    case BOOLEAN -> out.value(in.nextBoolean());
+                    case NULL -> {
+                        in.nextNull();
+                        out.nullValue();
+                    }
+                    case END_DOCUMENT -> throw new JsonIOException("Unexpected end of document in a lazy field");
+                }
+            } while (depth > 0);
+            out.flush();
+        }
+    }
+}
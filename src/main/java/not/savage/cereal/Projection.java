@@ -0,0 +1,85 @@
+package not.savage.cereal;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A lightweight, read-only view of a stored object containing only the requested field paths.
+ * Returned by projection queries, so only the selected fields are fetched & nothing is deserialized until asked for.
+ * Field paths are dotted (e.g. "stats.kills") and are used as-is as the keys of this view.
+ * @param <K> The identifier type
+ */
+public final class Projection<K> {
+
+    @Getter private final K identifier;
+    private final Map<String, JsonElement> fields;
+    private final Gson gson;
+
+    public Projection(@NonNull K identifier, @NonNull Map<String, JsonElement> fields, @NonNull Gson gson) {
+        this.identifier = identifier;
+        this.fields = fields;
+        this.gson = gson;
+    }
+
+    /**
+     * Check if the projected field was present in the stored object
+     * @param path The dotted field path
+     * @return true if the field is present
+     */
+    public boolean has(@NonNull String path) {
+        return fields.containsKey(path);
+    }
+
+    /**
+     * Get the raw json value of a projected field
+     * @param path The dotted field path
+     * @return The raw value, or null if the field isn't present
+     */
+    public JsonElement getRaw(@NonNull String path) {
+        return fields.get(path);
+    }
+
+    /**
+     * Deserialize a projected field into the given type, using the same serializers as the datasource.
+     * @param path The dotted field path
+     * @param type The type to deserialize into
+     * @return The value, or null if the field isn't present
+     */
+    public <V> V get(@NonNull String path, @NonNull Class<V> type) {
+        JsonElement element = fields.get(path);
+        return element == null ? null : gson.fromJson(element, type);
+    }
+
+    /**
+     * Deserialize a projected field into the given generic type, using the same serializers as the datasource.
+     * @param path The dotted field path
+     * @param type The type to deserialize into
+     * @return The value, or null if the field isn't present
+     */
+    public <V> V get(@NonNull String path, @NonNull Type type) {
+        JsonElement element = fields.get(path);
+        return element == null ? null : gson.fromJson(element, type);
+    }
+
+    /**
+     * Get all projected fields as plain java values (String, Double, Boolean, List, Map)
+     * @return An unmodifiable map of field path to value
+     */
+    public @NonNull Map<String, Object> asMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        fields.forEach((path, element) -> map.put(path, gson.fromJson(element, Object.class)));
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public String toString() {
+        return "Projection{identifier=%s, fields=%s}".formatted(identifier, fields);
+    }
+}
@@ -0,0 +1,405 @@
+package not.savage.cereal.adapter;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates the adapters of classes annotated with {@link not.savage.cereal.annotation.GenerateAdapter}.
+ * Each adapter is written next to its class as {@code <Class>_CerealAdapter}, see {@link GeneratedAdapterFactory}.
+ */
+@SupportedAnnotationTypes("not.savage.cereal.annotation.GenerateAdapter")
+public class AdapterProcessor extends AbstractProcessor {
+
+    private static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+    private static final String JSON_ADAPTER = "com.google.gson.annotations.JsonAdapter";
+    /**
+     * Gson annotations the generated code doesn't honour, so classes using them are rejected rather than serialized
+     * differently than by Gson's reflection.
+     */
+    private static final Set<String> UNSUPPORTED = Set.of(JSON_ADAPTER, "com.google.gson.annotations.Expose",
+            "com.google.gson.annotations.Since", "com.google.gson.annotations.Until");
+    private static final Set<String> BOXED = Set.of("java.lang.Integer", "java.lang.Long", "java.lang.Short", "java.lang.Byte",
+            "java.lang.Double", "java.lang.Float");
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (TypeElement type : ElementFilter.typesIn(round.getElementsAnnotatedWith(annotation))) {
+                try {
+                    generate(type);
+                } catch (IllegalArgumentException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), type);
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write adapter: " + e.getMessage(), type);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A serialized field of the class or one of its superclasses.
+     */
+    private record Property(int index, VariableElement field, String jsonName, List<String> alternates,
+                            boolean directRead, boolean directWrite, String as) {
+
+        String handle(String kind) {
+            return kind + "_" + index + "_" + field.getSimpleName();
+        }
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new IllegalArgumentException("@GenerateAdapter needs a concrete class");
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new IllegalArgumentException("@GenerateAdapter classes can't have type parameters");
+        }
+        for (Element e = type; e.getKind().isClass(); e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)
+                    || (e.getEnclosingElement().getKind().isClass() && !e.getModifiers().contains(Modifier.STATIC))) {
+                throw new IllegalArgumentException("@GenerateAdapter classes must be top level or static & not private");
+            }
+        }
+        if (annotation(type, JSON_ADAPTER) != null) {
+            throw new IllegalArgumentException("@GenerateAdapter classes can't be annotated with @JsonAdapter, which would be ignored");
+        }
+        ExecutableElement constructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .filter(c -> c.getParameters().isEmpty()).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("@GenerateAdapter classes need a no-args constructor"));
+
+        String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binary = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String adapter = (pkg.isEmpty() ? binary : binary.substring(pkg.length() + 1)).replace('$', '_') + GeneratedAdapterFactory.SUFFIX;
+        String target = type.getQualifiedName().toString();
+        List<Property> properties = properties(type, pkg);
+        boolean handles = constructor.getModifiers().contains(Modifier.PRIVATE)
+                || properties.stream().anyMatch(p -> !p.directRead() || !p.directWrite());
+
+        StringBuilder src = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            src.append("package ").append(pkg).append(";\n\n");
+        }
+        src.append("""
+                import com.google.gson.Gson;
+                import com.google.gson.TypeAdapter;
+                import com.google.gson.reflect.TypeToken;
+                import com.google.gson.stream.JsonReader;
+                import com.google.gson.stream.JsonToken;
+                import com.google.gson.stream.JsonWriter;
+                import not.savage.cereal.adapter.FieldHandles;
+
+                import java.io.IOException;
+                import java.lang.invoke.MethodHandle;
+
+                /**
+                 * Generated by Cereal for {@link %1$s}, do not edit.
+                 */
+                @javax.annotation.processing.Generated("%2$s")
+                @SuppressWarnings({"unchecked", "rawtypes", "unused"})
+                public final class %3$s extends TypeAdapter<%1$s> {
+
+                """.formatted(target, AdapterProcessor.class.getName(), adapter));
+
+        if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+            src.append("    private static final MethodHandle NEW = FieldHandles.constructor(%s.class);\n".formatted(target));
+        }
+        for (Property p : properties) {
+            String name = p.field().getSimpleName().toString();
+            if (!p.directRead()) {
+                src.append("    private static final MethodHandle %s = FieldHandles.getter(%s.class, \"%s\", %s.class);\n"
+                        .formatted(p.handle("GET"), target, name, p.as()));
+            }
+            if (!p.directWrite()) {
+                src.append("    private static final MethodHandle %s = FieldHandles.setter(%s.class, \"%s\", %s.class);\n"
+                        .formatted(p.handle("SET"), target, name, p.as()));
+            }
+        }
+        src.append('\n');
+        boolean strings = properties.stream().anyMatch(p -> erasure(p.field().asType()).equals("java.lang.String"));
+        if (strings) {
+            src.append("    private final TypeAdapter<String> STRINGS;\n");
+        }
+        for (Property p : properties) {
+            if (usesAdapter(p.field().asType())) {
+                src.append("    private final TypeAdapter %s;\n".formatted(p.handle("ADAPTER")));
+            }
+        }
+
+        src.append("\n    public %s(Gson gson) {\n".formatted(adapter));
+        if (strings) {
+            src.append("        this.STRINGS = FieldHandles.strings(gson);\n");
+        }
+        for (Property p : properties) {
+            if (usesAdapter(p.field().asType())) {
+                src.append("        this.%s = gson.getAdapter(TypeToken.get(FieldHandles.type(%s.class, \"%s\")));\n"
+                        .formatted(p.handle("ADAPTER"), target, p.field().getSimpleName()));
+            }
+        }
+        src.append("    }\n\n");
+
+        // Write, in the field order of Gson's reflective adapter so the output is the same
+        src.append("    @Override\n    public void write(JsonWriter out, %s value) throws IOException {\n".formatted(target));
+        src.append("        if (value == null) {\n            out.nullValue();\n            return;\n        }\n");
+        StringBuilder body = new StringBuilder("out.beginObject();\n");
+        for (Property p : properties) {
+            body.append("out.name(%s);\n".formatted(literal(p.jsonName())));
+            body.append(writeValue(p, read(p))).append('\n');
+        }
+        body.append("out.endObject();\n");
+        src.append(wrap(body.toString(), handles));
+        src.append("    }\n\n");
+
+        // Read
+        src.append("    @Override\n    public %s read(JsonReader in) throws IOException {\n".formatted(target));
+        src.append("        if (in.peek() == JsonToken.NULL) {\n            in.nextNull();\n            return null;\n        }\n");
+        body = new StringBuilder();
+        body.append(constructor.getModifiers().contains(Modifier.PRIVATE)
+                ? "%s value = (%s) NEW.invokeExact();\n".formatted(target, target)
+                : "%s value = new %s();\n".formatted(target, target));
+        body.append("in.beginObject();\nwhile (in.hasNext()) {\n    switch (in.nextName()) {\n");
+        for (Property p : properties) {
+            List<String> names = new ArrayList<>();
+            names.add(literal(p.jsonName()));
+            p.alternates().forEach(a -> names.add(literal(a)));
+            body.append("        case %s -> %s\n".formatted(String.join(", ", names), readValue(p)));
+        }
+        body.append("        default -> in.skipValue();\n    }\n}\nin.endObject();\nreturn value;\n");
+        src.append(wrap(body.toString(), handles));
+        src.append("    }\n}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile((pkg.isEmpty() ? "" : pkg + ".") + adapter, type).openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    /**
+     * Collect the serialized fields, the class' own first & then those of each superclass, like Gson.
+     */
+    private List<Property> properties(TypeElement type, String pkg) {
+        List<Property> properties = new ArrayList<>();
+        Set<String> fieldNames = new HashSet<>();
+        Set<String> jsonNames = new HashSet<>();
+        for (TypeElement current = type; current != null; current = superclass(current)) {
+            String currentPkg = processingEnv.getElementUtils().getPackageOf(current).getQualifiedName().toString();
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                // The modifiers excluded from the Gson instance of the datasources, & static fields which only hold shared state
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT) || modifiers.contains(Modifier.VOLATILE)) {
+                    continue;
+                }
+                String name = field.getSimpleName().toString();
+                for (String unsupported : UNSUPPORTED) {
+                    if (annotation(field, unsupported) != null) {
+                        throw new IllegalArgumentException("Field %s of %s is annotated with @%s, which @GenerateAdapter doesn't support. Remove @GenerateAdapter to use Gson's reflection"
+                                .formatted(name, type.getSimpleName(), unsupported.substring(unsupported.lastIndexOf('.') + 1)));
+                    }
+                }
+                if (!fieldNames.add(name)) {
+                    throw new IllegalArgumentException("Field %s is declared more than once in the hierarchy of %s".formatted(name, type.getSimpleName()));
+                }
+                String jsonName = name;
+                List<String> alternates = new ArrayList<>();
+                AnnotationMirror mirror = annotation(field, SERIALIZED_NAME);
+                if (mirror != null) {
+                    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                        if (entry.getKey().getSimpleName().contentEquals("value")) {
+                            jsonName = (String) entry.getValue().getValue();
+                        } else if (entry.getKey().getSimpleName().contentEquals("alternate")) {
+                            for (Object alternate : (List<?>) entry.getValue().getValue()) {
+                                alternates.add((String) ((AnnotationValue) alternate).getValue());
+                            }
+                        }
+                    }
+                }
+                for (String json : concat(jsonName, alternates)) {
+                    if (!jsonNames.add(json)) {
+                        throw new IllegalArgumentException("%s declares multiple JSON fields named '%s'".formatted(type.getSimpleName(), json));
+                    }
+                }
+
+                boolean accessible = !modifiers.contains(Modifier.PRIVATE)
+                        && (currentPkg.equals(pkg) || (modifiers.contains(Modifier.PUBLIC) && isAccessible(current, pkg)));
+                TypeMirror fieldType = field.asType();
+                String as = fieldType.getKind().isPrimitive() ? fieldType.getKind().name().toLowerCase(Locale.ROOT)
+                        : isAccessible(fieldType, pkg) ? erasure(fieldType) : "java.lang.Object";
+                boolean typed = !as.equals("java.lang.Object") || erasure(fieldType).equals("java.lang.Object");
+                properties.add(new Property(properties.size(), field, jsonName, alternates,
+                        accessible && typed, accessible && typed && !modifiers.contains(Modifier.FINAL), as));
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @return The annotation of the element with the qualified name, or null. Gson's annotations are matched by name,
+     * as Gson isn't necessarily on the processor path
+     */
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) return null;
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    /**
+     * The expression reading the field of the object "value".
+     */
+    private String read(Property p) {
+        if (p.directRead()) return "value." + p.field().getSimpleName();
+        return "((%s) %s.invokeExact(value))".formatted(p.as(), p.handle("GET"));
+    }
+
+    /**
+     * The statement setting the field of the object "value".
+     * @param expression Typed exactly as the field is, or as {@link Property#as()} where it's set through a handle
+     */
+    private String set(Property p, String expression) {
+        if (p.directWrite()) return "value.%s = %s;".formatted(p.field().getSimpleName(), expression);
+        return "%s.invokeExact(value, %s);".formatted(p.handle("SET"), expression);
+    }
+
+    private String writeValue(Property p, String value) {
+        TypeMirror type = p.field().asType();
+        return switch (type.getKind()) {
+            case INT, LONG, SHORT, BYTE, DOUBLE, BOOLEAN -> "out.value(%s);".formatted(value);
+            // Through Float.toString like Gson, rather than widened to a double
+            case FLOAT -> "out.value(Float.valueOf(%s));".formatted(value);
+            case CHAR -> "out.value(String.valueOf(%s));".formatted(value);
+            default -> {
+                String erasure = erasure(type);
+                if (erasure.equals("java.lang.String") || erasure.equals("java.lang.Boolean")) {
+                    yield "out.value(%s);".formatted(value);
+                }
+                if (BOXED.contains(erasure)) {
+                    yield "out.value((Number) %s);".formatted(value);
+                }
+                yield "%s.write(out, %s);".formatted(p.handle("ADAPTER"), value);
+            }
+        };
+    }
+
+    private String readValue(Property p) {
+        TypeMirror type = p.field().asType();
+        String primitive = switch (type.getKind()) {
+            case INT -> "in.nextInt()";
+            case LONG -> "in.nextLong()";
+            case SHORT -> "(short) in.nextInt()";
+            case BYTE -> "(byte) in.nextInt()";
+            case DOUBLE -> "in.nextDouble()";
+            case FLOAT -> "(float) in.nextDouble()";
+            case BOOLEAN -> "FieldHandles.nextBoolean(in)";
+            case CHAR -> "FieldHandles.nextChar(in)";
+            default -> null;
+        };
+        if (primitive != null) {
+            return "{\n            if (!FieldHandles.skipNull(in)) %s\n        }".formatted(set(p, primitive));
+        }
+        if (erasure(type).equals("java.lang.String")) {
+            return set(p, "FieldHandles.nextString(in, STRINGS)");
+        }
+        return set(p, "(%s) %s.read(in)".formatted(p.as(), p.handle("ADAPTER")));
+    }
+
+    /**
+     * Boxed fields are written directly but read through Gson's adapter, which also accepts numbers as strings.
+     */
+    private boolean usesAdapter(TypeMirror type) {
+        return !type.getKind().isPrimitive() && !erasure(type).equals("java.lang.String");
+    }
+
+    /**
+     * Indent the body & wrap it so the Throwable of method handles is rethrown as is or as an unchecked exception.
+     */
+    private static String wrap(String body, boolean handles) {
+        String indent = handles ? "            " : "        ";
+        StringBuilder out = new StringBuilder();
+        if (handles) out.append("        try {\n");
+        for (String line : body.split("\n")) {
+            out.append(indent).append(line).append('\n');
+        }
+        if (handles) {
+            out.append("""
+                            } catch (IOException | RuntimeException | Error e) {
+                                throw e;
+                            } catch (Throwable e) {
+                                throw new IllegalStateException(e);
+                            }
+                    """);
+        }
+        return out.toString();
+    }
+
+    /**
+     * The erased type as source, without any type-use annotations.
+     */
+    private String erasure(TypeMirror type) {
+        return switch (type.getKind()) {
+            case ARRAY -> erasure(((ArrayType) type).getComponentType()) + "[]";
+            case DECLARED -> ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+            case TYPEVAR, WILDCARD, INTERSECTION, UNION -> "java.lang.Object";
+            default -> type.getKind().isPrimitive() ? type.getKind().name().toLowerCase(Locale.ROOT) : "java.lang.Object";
+        };
+    }
+
+    private boolean isAccessible(TypeMirror type, String pkg) {
+        return switch (type.getKind()) {
+            case ARRAY -> isAccessible(((ArrayType) type).getComponentType(), pkg);
+            case DECLARED -> isAccessible((TypeElement) ((DeclaredType) type).asElement(), pkg);
+            default -> true;
+        };
+    }
+
+    /**
+     * @return true if the class can be named from the package
+     */
+    private boolean isAccessible(TypeElement type, String pkg) {
+        if (processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().contentEquals(pkg)) {
+            for (Element e = type; e.getKind().isClass() || e.getKind().isInterface(); e = e.getEnclosingElement()) {
+                if (e.getModifiers().contains(Modifier.PRIVATE)) return false;
+            }
+            return true;
+        }
+        for (Element e = type; e.getKind().isClass() || e.getKind().isInterface(); e = e.getEnclosingElement()) {
+            if (!e.getModifiers().contains(Modifier.PUBLIC)) return false;
+        }
+        return true;
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    private static List<String> concat(String first, List<String> rest) {
+        List<String> all = new ArrayList<>(rest.size() + 1);
+        all.add(first);
+        all.addAll(rest);
+        return all;
+    }
+}
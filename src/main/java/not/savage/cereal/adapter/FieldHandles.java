@@ -0,0 +1,140 @@
+package not.savage.cereal.adapter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+
+/**
+ * Runtime support for the adapters generated for {@link not.savage.cereal.annotation.GenerateAdapter}.
+ * Generated adapters keep the handles in static final fields, so the JIT inlines them like direct field access.
+ * Not meant to be used directly.
+ */
+public final class FieldHandles {
+
+    private static final TypeAdapter<String> GSON_STRINGS = new Gson().getAdapter(String.class);
+
+    private FieldHandles() {
+    }
+
+    /**
+     * @param owner The annotated class, the field may be declared by a superclass
+     * @param as The type the generated code reads the field as, the field type or Object where it isn't accessible
+     * @return A handle of type (owner)as reading the field
+     */
+    public static MethodHandle getter(Class<?> owner, String name, Class<?> as) {
+        try {
+            return MethodHandles.lookup().unreflectGetter(field(owner, name)).asType(MethodType.methodType(as, owner));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access %s.%s".formatted(owner.getName(), name), e);
+        }
+    }
+
+    /**
+     * @return A handle of type (owner, as)void writing the field, final fields included
+     */
+    public static MethodHandle setter(Class<?> owner, String name, Class<?> as) {
+        try {
+            return MethodHandles.lookup().unreflectSetter(field(owner, name)).asType(MethodType.methodType(void.class, owner, as));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access %s.%s".formatted(owner.getName(), name), e);
+        }
+    }
+
+    /**
+     * @return A handle of type ()owner calling the no-args constructor
+     */
+    public static MethodHandle constructor(Class<?> owner) {
+        try {
+            Constructor<?> constructor = owner.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(owner));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Can't access the no-args constructor of %s".formatted(owner.getName()), e);
+        }
+    }
+
+    /**
+     * @return The generic type of the field, to look up its Gson adapter
+     */
+    public static Type type(Class<?> owner, String name) {
+        return field(owner, name).getGenericType();
+    }
+
+    /**
+     * @return The string adapter of the Gson instance, or null if it's Gson's own which {@link #nextString(JsonReader)} matches
+     */
+    public static TypeAdapter<String> strings(Gson gson) {
+        TypeAdapter<String> strings = gson.getAdapter(String.class);
+        return strings == GSON_STRINGS ? null : strings;
+    }
+
+    /**
+     * Read a string through the adapter of the Gson instance if it isn't Gson's own, e.g. one deduplicating strings.
+     * @param strings The adapter from {@link #strings(Gson)}
+     */
+    public static String nextString(JsonReader in, TypeAdapter<String> strings) throws IOException {
+        return strings != null ? strings.read(in) : nextString(in);
+    }
+
+    /**
+     * Read a string the way Gson's own adapter does, booleans included.
+     */
+    public static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+    }
+
+    /**
+     * Read a boolean the way Gson's own adapter does, strings included.
+     */
+    public static boolean nextBoolean(JsonReader in) throws IOException {
+        return in.peek() == JsonToken.STRING ? Boolean.parseBoolean(in.nextString()) : in.nextBoolean();
+    }
+
+    public static char nextChar(JsonReader in) throws IOException {
+        String value = in.nextString();
+        if (value.length() != 1) {
+            throw new JsonParseException("Expecting character, got: %s; at %s".formatted(value, in.getPreviousPath()));
+        }
+        return value.charAt(0);
+    }
+
+    /**
+     * @return true if the next value was null & consumed, so a primitive field keeps its value as with Gson
+     */
+    public static boolean skipNull(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.NULL) return false;
+        in.nextNull();
+        return true;
+    }
+
+    /**
+     * Find the field in the class or its nearest superclass declaring it.
+     */
+    private static Field field(Class<?> owner, String name) {
+        for (Class<?> type = owner; type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException ignored) {
+                // Declared further up
+            }
+        }
+        throw new IllegalStateException("Generated adapter is out of date, %s.%s is missing".formatted(owner.getName(), name));
+    }
+}
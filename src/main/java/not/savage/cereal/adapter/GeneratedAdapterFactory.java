@@ -0,0 +1,71 @@
+package not.savage.cereal.adapter;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.annotation.GenerateAdapter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+
+/**
+ * Hands Gson the adapters generated for classes annotated with {@link GenerateAdapter}.
+ * Registered on the Gson builder of every datasource, ahead of the cache's {@link not.savage.cereal.TypeSerializer}s,
+ * so those still win for their types.
+ */
+public final class GeneratedAdapterFactory implements TypeAdapterFactory, CerealLogger {
+
+    public static final GeneratedAdapterFactory INSTANCE = new GeneratedAdapterFactory();
+    /**
+     * Suffix of the generated adapter class, next to the annotated class in the same package.
+     */
+    public static final String SUFFIX = "_CerealAdapter";
+
+    private final ClassValue<Optional<Constructor<?>>> constructors = new ClassValue<>() {
+        @Override
+        protected Optional<Constructor<?>> computeValue(Class<?> type) {
+            return find(type);
+        }
+    };
+
+    private GeneratedAdapterFactory() {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        if (type.getType() != raw || !raw.isAnnotationPresent(GenerateAdapter.class)) return null;
+
+        Constructor<?> constructor = constructors.get(raw).orElse(null);
+        if (constructor == null) return null;
+        try {
+            return (TypeAdapter<T>) constructor.newInstance(gson);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Failed to create the generated adapter of %s".formatted(raw.getName()), e);
+        }
+    }
+
+    /**
+     * @return The name of the adapter generated for the class, e.g. Guilds_Guild_CerealAdapter for the nested Guilds.Guild
+     */
+    public static String adapterName(Class<?> type) {
+        String name = type.getName();
+        String pkg = type.getPackageName();
+        String simple = pkg.isEmpty() ? name : name.substring(pkg.length() + 1);
+        return (pkg.isEmpty() ? "" : pkg + ".") + simple.replace('$', '_') + SUFFIX;
+    }
+
+    private Optional<Constructor<?>> find(Class<?> type) {
+        try {
+            Class<?> adapter = Class.forName(adapterName(type), true, type.getClassLoader());
+            return Optional.of(adapter.getConstructor(Gson.class));
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            log("No generated adapter for %s, is Cereal on the annotation processor path? Falling back to reflection", type.getName());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package not.savage.cereal.annotation;
+
+import not.savage.cereal.codec.BlobCodecFactory;
+
+import java.lang.annotation.*;
+
+/**
+ * Selects the codec objects of a cache are stored with, where the backend doesn't need to query them.
+ * Currently the log & segment records of file mode, other backends & the JSON file engine keep storing JSON.
+ * Records written with another codec before are still read, as long as they were JSON.
+ * @see not.savage.cereal.codec.BinaryCodec
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+@Inherited
+public @interface Codec {
+    Class<? extends BlobCodecFactory> value();
+}
@@ -0,0 +1,26 @@
+package not.savage.cereal.annotation;
+
+import java.lang.annotation.*;
+import java.util.zip.Deflater;
+
+/**
+ * Stores the objects of a cache as deflated compact JSON, rather than (pretty printed) JSON.
+ * In SQL modes the compressed blob goes into a binary column next to the JSON column, in MongoDB mode into a binary
+ * field of the document, in file mode the files, log records or segment records are compressed.
+ * <p>
+ * Fields declared with {@link Index} & {@link Counter} fields are also stored uncompressed, so they can still be
+ * queried, sorted on & atomically incremented. Filtering or sorting on any other field of a compressed cache
+ * throws an {@link IllegalArgumentException} outside of file mode, projections of other fields load whole objects.
+ * Existing uncompressed objects stay readable & are compressed when they're next saved.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+@Inherited
+public @interface Compressed {
+
+    /**
+     * @return The {@link Deflater} level, 1 (fastest) to 9 (smallest), or -1 for the default
+     */
+    int level() default Deflater.DEFAULT_COMPRESSION;
+
+}
@@ -0,0 +1,14 @@
+package not.savage.cereal.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a numeric field of a {@link not.savage.cereal.internal.CerealDataBlob} as a counter.
+ * Counters are only changed through {@link not.savage.cereal.internal.CerealCache#increment(java.util.UUID, String, long)},
+ * which are flushed as atomic backend increments. Full saves never overwrite a stored counter,
+ * so totals stay correct when several nodes share the same object.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD })
+public @interface Counter {
+}
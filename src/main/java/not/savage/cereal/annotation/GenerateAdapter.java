@@ -0,0 +1,21 @@
+package not.savage.cereal.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Generates a Gson {@link com.google.gson.TypeAdapter} for the class at compile time, which the datasources use
+ * instead of Gson's reflection. Fields are read & written by straight-line code, directly where they're accessible
+ * from the package & through constant method handles otherwise (private fields & those of {@link not.savage.cereal.internal.CerealDataBlob}).
+ * <p>
+ * Requires Cereal on the annotation processor path, next to Lombok. The class needs a no-args constructor, no type
+ * parameters & can't be a non-static inner class. Static, transient & volatile fields are skipped &
+ * {@link com.google.gson.annotations.SerializedName} is honoured. Field values are written with the adapter of their
+ * declared type, without Gson's runtime type lookup. Classes using {@code @JsonAdapter}, or fields using
+ * {@code @JsonAdapter}, {@code @Expose}, {@code @Since} or {@code @Until}, fail to compile, as the generated code
+ * wouldn't honour them.
+ * If the adapter wasn't generated, e.g. the processor didn't run, Gson's reflection is used as before.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+public @interface GenerateAdapter {
+}
@@ -0,0 +1,56 @@
+package not.savage.cereal.annotation;
+
+import not.savage.cereal.sort.CerealSortMode;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a queried field (or a compound of fields) of a cache which should be indexed by the backend.
+ * Used by {@link not.savage.cereal.internal.platform.sql.CerealSQLDatabase} to maintain stored generated columns
+ * with secondary indexes, and by {@link not.savage.cereal.internal.platform.mongo.CerealMongoDatabase} to create
+ * collection indexes, so field lookups & leaderboard queries don't scan the whole table or collection.
+ * Can be repeated to declare several indexes on the same cache.
+ * For leaderboards, declare the filtered field followed by the sorted field with the sort direction used by the query.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+@Inherited
+@Repeatable(Indexes.class)
+public @interface Index {
+
+    /**
+     * @return The dotted field paths to index, in order. More than one creates a compound index.
+     */
+    String[] value();
+
+    /**
+     * @return The SQL column type of the generated columns, e.g. "VARCHAR(64)" or "BIGINT"
+     */
+    String sqlType() default "VARCHAR(255)";
+
+    /**
+     * @return The sort direction of each field, in the same order as {@link #value()}. Missing entries are ascending.
+     * Used by MongoDB, PostgreSQL & SQLite. Ignored by MySQL & MariaDB, whose generated column indexes are ascending.
+     */
+    CerealSortMode[] order() default {};
+
+    /**
+     * @return Whether the indexed values must be unique across all stored objects
+     */
+    boolean unique() default false;
+
+    /**
+     * @return Seconds after the value of the field until the object is removed, -1 to disable.
+     * Creates a MongoDB TTL index, only valid on single field indexes. The field must be a long of epoch milliseconds,
+     * e.g. from {@link System#currentTimeMillis()}, which is stored as a date. Numbers the field is queried by are
+     * converted to dates. Ignored by SQL.
+     */
+    long expireAfterSeconds() default -1;
+
+    /**
+     * @return A MongoDB filter document as json, e.g. {"score": {"$gt": 0}}, so only matching objects are indexed.
+     * Empty to index every object. Ignored by SQL.
+     */
+    String partialFilter() default "";
+
+}
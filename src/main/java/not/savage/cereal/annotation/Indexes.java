@@ -0,0 +1,13 @@
+package not.savage.cereal.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Container for repeated {@link Index} annotations.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+@Inherited
+public @interface Indexes {
+    Index[] value();
+}
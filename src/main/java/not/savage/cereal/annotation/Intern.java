@@ -0,0 +1,42 @@
+package not.savage.cereal.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Deduplicates the strings & UUIDs of a cache's objects as they're deserialized, so thousands of loaded objects share
+ * one instance of each rank name, world name or tag rather than a copy each.
+ * Values go through a bounded intern table of one value per slot, so it never grows. A held value scores a point per
+ * hit & loses one when another value maps to its slot, & it's only replaced once it's out of points, so frequently
+ * repeated values stay while rarely repeated ones fall out. How much it saves is reported by
+ * {@link not.savage.cereal.internal.CerealCache#getMemoryStats()}.
+ * <p>
+ * Applies to values read through the Gson instance of the cache, objects stored with the
+ * {@link not.savage.cereal.codec.BinaryCodec} are only deduplicated within their JSON embedded values.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+@Inherited
+public @interface Intern {
+
+    /**
+     * @return Dotted paths of the fields to deduplicate, including the strings within their collections & maps,
+     * or empty to deduplicate every string of the object
+     */
+    String[] fields() default {};
+
+    /**
+     * @return true to deduplicate UUID values as well, except the identifier of the object
+     */
+    boolean uuids() default true;
+
+    /**
+     * @return Strings longer than this are left alone, as they're rarely repeated
+     */
+    int maxLength() default 64;
+
+    /**
+     * @return The number of slots of the intern table, rounded up to a power of two
+     */
+    int size() default 4096;
+
+}
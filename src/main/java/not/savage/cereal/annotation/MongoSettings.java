@@ -0,0 +1,37 @@
+package not.savage.cereal.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Per cache settings of the MongoDB collection backing it, overriding the client defaults.
+ * Used by {@link not.savage.cereal.internal.platform.mongo.CerealMongoDatabase}, ignored by other backends.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+@Inherited
+public @interface MongoSettings {
+
+    /**
+     * @return The write concern by name, e.g. "MAJORITY", "W1" or "UNACKNOWLEDGED" (see {@link com.mongodb.WriteConcern#valueOf(String)}).
+     * Empty for the client default.
+     */
+    String writeConcern() default "";
+
+    /**
+     * @return The read preference by name, e.g. "secondaryPreferred" or "nearest" (see {@link com.mongodb.ReadPreference#valueOf(String)}).
+     * Reads from secondaries may not see this node's latest writes yet. Empty for the client default.
+     */
+    String readPreference() default "";
+
+    /**
+     * @return The read concern level, e.g. "local", "majority" or "available". Empty for the client default.
+     */
+    String readConcern() default "";
+
+    /**
+     * @return How many documents each cursor batch returns, 0 for the server default.
+     * Larger batches mean fewer round trips when loading whole caches.
+     */
+    int batchSize() default 0;
+
+}
@@ -0,0 +1,13 @@
+package not.savage.cereal.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Pins the tag a field is stored under by the {@link not.savage.cereal.codec.BinaryCodec}.
+ * Untagged fields take the tag after the previous field's, so tags must stay unique within a class & its superclasses.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD })
+public @interface Tag {
+    int value();
+}
@@ -0,0 +1,27 @@
+package not.savage.cereal.codec;
+
+import com.google.gson.Gson;
+import lombok.NonNull;
+import not.savage.cereal.internal.CerealDataBlob;
+import not.savage.cereal.internal.codec.BinaryBlobCodec;
+
+import java.util.Set;
+
+/**
+ * Encodes objects in a compact binary format of varints & tagged fields, without going through JSON.
+ * The schema of the data blob class is built once, when the cache starts.
+ * <p>
+ * Fields are tagged in declaration order, superclass fields first, unless pinned with {@link not.savage.cereal.annotation.Tag}.
+ * Unknown tags are skipped & missing ones keep their initial value, so fields can be added at the end of a class
+ * or removed, but pin tags before reordering fields or adding fields in between.
+ * <p>
+ * Primitives, strings, UUIDs, enums, arrays, collections, maps & plain classes with a no-args constructor are
+ * encoded natively. Anything else, including types with a {@link not.savage.cereal.TypeSerializer}, is embedded as JSON.
+ */
+public class BinaryCodec implements BlobCodecFactory {
+
+    @Override
+    public <T extends CerealDataBlob> @NonNull BlobCodec<T> create(@NonNull Class<T> clazz, @NonNull Gson gson, @NonNull Set<Class<?>> serializedTypes) {
+        return new BinaryBlobCodec<>(clazz, gson, serializedTypes);
+    }
+}
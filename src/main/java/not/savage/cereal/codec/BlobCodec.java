@@ -0,0 +1,25 @@
+package not.savage.cereal.codec;
+
+import lombok.NonNull;
+
+/**
+ * Turns the objects of a cache into bytes & back, where the stored form doesn't need to be queryable by the backend.
+ * Codecs are created once per cache by its {@link BlobCodecFactory} & must be thread safe.
+ * @param <T> The type of data blob
+ */
+public interface BlobCodec<T> {
+
+    /**
+     * @param t The object to encode
+     * @return The encoded object
+     */
+    byte @NonNull [] encode(@NonNull T t);
+
+    /**
+     * @param bytes Bytes written by {@link #encode(Object)}
+     * @return The decoded object
+     * @throws not.savage.cereal.exception.DataPersistenceException if the bytes can't be decoded
+     */
+    @NonNull T decode(byte @NonNull [] bytes);
+
+}
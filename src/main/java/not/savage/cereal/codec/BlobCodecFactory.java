@@ -0,0 +1,24 @@
+package not.savage.cereal.codec;
+
+import com.google.gson.Gson;
+import lombok.NonNull;
+import not.savage.cereal.internal.CerealDataBlob;
+
+import java.util.Set;
+
+/**
+ * Creates the {@link BlobCodec} of a cache, selected with {@link not.savage.cereal.annotation.Codec}.
+ * Implementations need a no-args constructor.
+ */
+public interface BlobCodecFactory {
+
+    /**
+     * @param clazz The data blob class of the cache
+     * @param gson The Gson instance of the cache, with its {@link not.savage.cereal.TypeSerializer}s registered
+     * @param serializedTypes The types with a registered {@link not.savage.cereal.TypeSerializer}, which codecs should
+     *                        leave to Gson so the serializers keep being used
+     * @return The codec of the cache
+     */
+    <T extends CerealDataBlob> @NonNull BlobCodec<T> create(@NonNull Class<T> clazz, @NonNull Gson gson, @NonNull Set<Class<?>> serializedTypes);
+
+}
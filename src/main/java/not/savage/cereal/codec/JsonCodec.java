@@ -0,0 +1,19 @@
+package not.savage.cereal.codec;
+
+import com.google.gson.Gson;
+import lombok.NonNull;
+import not.savage.cereal.internal.CerealDataBlob;
+import not.savage.cereal.internal.codec.JsonBlobCodec;
+
+import java.util.Set;
+
+/**
+ * Encodes objects as compact JSON through Gson. The default codec.
+ */
+public class JsonCodec implements BlobCodecFactory {
+
+    @Override
+    public <T extends CerealDataBlob> @NonNull BlobCodec<T> create(@NonNull Class<T> clazz, @NonNull Gson gson, @NonNull Set<Class<?>> serializedTypes) {
+        return new JsonBlobCodec<>(clazz, gson);
+    }
+}
@@ -12,6 +12,7 @@ import java.util.UUID;
  * @param mode The {@link Mode} of the configuration.
  * @param nodeId The unique identifier for this node.
  * @param sqlConfig The SQL configuration {@link SQLConfig}
+ * @param sqliteConfig The SQLite configuration {@link SQLiteConfig}, may be missing from older configs
  * @param mongoDBConfig The MongoDB configuration {@link MongoDBConfig}
  * @param fileConfig The File configuration {@link FileConfig} empty by default.
  * @param cacheConfig The Cache configuration {@link CacheConfig}
@@ -22,6 +23,7 @@ public record CerealConfig(
         @Getter @NonNull Mode mode,
         @Getter @NonNull String nodeId,
         @Getter @NonNull SQLConfig sqlConfig,
+        SQLiteConfig sqliteConfig,
         @Getter @NonNull MongoDBConfig mongoDBConfig,
         @Getter @NonNull FileConfig fileConfig,
         @Getter @NonNull CacheConfig cacheConfig,
@@ -38,11 +40,19 @@ public record CerealConfig(
                         Mode.FILE,
                         UUID.randomUUID().toString(),
                         new SQLConfig("jdbc:mariadb://HOST/DATABASE?permitMysqlScheme", "username", "password"),
+                        new SQLiteConfig(SQLiteConfig.DEFAULT_FILE, SQLiteConfig.DEFAULT_READER_POOL_SIZE),
                         new MongoDBConfig("mongodb://localhost:27017", "database"),
                         new FileConfig(),
-                        new CacheConfig(120, 120),
+                        new CacheConfig(120, 120, CacheConfig.DEFAULT_COUNTER_FLUSH_SECONDS),
                         new ServerConfig(new ArrayList<>()),
                         true
                 );
         }
+
+        /**
+         * @return The SQLite configuration, falling back to the defaults for older configs
+         */
+        public SQLiteConfig getSqliteConfig() {
+                return sqliteConfig != null ? sqliteConfig : new SQLiteConfig(SQLiteConfig.DEFAULT_FILE, SQLiteConfig.DEFAULT_READER_POOL_SIZE);
+        }
 }
@@ -5,6 +5,7 @@ public enum Mode {
     MONGO,
     SQL,
     FILE,
-    SQLITE
+    SQLITE,
+    POSTGRES
 
 }
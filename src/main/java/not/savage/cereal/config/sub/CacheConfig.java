@@ -4,9 +4,20 @@ package not.savage.cereal.config.sub;
  * Configuration object for the {@link not.savage.cereal.internal.cache.EvictingCache}
  * @param expireAfterAccessMinutes How long before the cache entry is evicted after it was last accessed
  * @param expireAfterWriteMinutes How long before the cache entry is evicted after it was created
+ * @param counterFlushSeconds How often buffered counter increments are flushed to the database, 0 for the default (5s)
  */
 public record CacheConfig(
         int expireAfterAccessMinutes,
-        int expireAfterWriteMinutes
+        int expireAfterWriteMinutes,
+        int counterFlushSeconds
 ) {
+
+    public static final int DEFAULT_COUNTER_FLUSH_SECONDS = 5;
+
+    /**
+     * @return The counter flush interval in seconds, falling back to the default for older configs
+     */
+    public int getCounterFlushSeconds() {
+        return counterFlushSeconds > 0 ? counterFlushSeconds : DEFAULT_COUNTER_FLUSH_SECONDS;
+    }
 }
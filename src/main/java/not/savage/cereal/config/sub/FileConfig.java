@@ -4,7 +4,64 @@ import not.savage.cereal.config.Mode;
 
 /**
  * Represents the configuration for the file storage mode. {@link not.savage.cereal.internal.platform.file.CerealFileDatabase}
- * Has no properties. {@link Mode.FILE} requires
- * the developer to support the @Location annotation in their classes.
+ * {@link Mode#FILE} requires the developer to support the @Location annotation in their classes.
+ * @param engine How caches are persisted, {@link FileEngine#JSON} by default
+ * @param compactionGarbageRatio Share of a log (or segment) which must be overwritten or deleted records before it's compacted,
+ *                               0 for the default (0.5). Used by {@link FileEngine#LOG} & {@link FileEngine#SEGMENT}.
+ * @param compactionMinBytes Logs (or all segments of a cache) smaller than this are never compacted, 0 for the default (1 MiB).
+ * @param segmentBytes Size of each segment file, 0 for the default (64 MiB). Only used by {@link FileEngine#SEGMENT}.
+ * @param shards Number of shards each cache is split into by key, each with its own lock, 0 for the default (1).
+ *               With {@link FileEngine#JSON} every shard is its own file, so only changed shards are rewritten.
  */
-public record FileConfig() {  }
+public record FileConfig(
+        FileEngine engine,
+        double compactionGarbageRatio,
+        long compactionMinBytes,
+        long segmentBytes,
+        int shards
+) {
+
+    public static final double DEFAULT_COMPACTION_GARBAGE_RATIO = 0.5;
+    public static final long DEFAULT_COMPACTION_MIN_BYTES = 1024 * 1024;
+    public static final long DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    public static final int DEFAULT_SHARDS = 1;
+
+    public FileConfig() {
+        this(FileEngine.JSON, DEFAULT_COMPACTION_GARBAGE_RATIO, DEFAULT_COMPACTION_MIN_BYTES, DEFAULT_SEGMENT_BYTES, DEFAULT_SHARDS);
+    }
+
+    /**
+     * @return The engine, falling back to {@link FileEngine#JSON} for older configs
+     */
+    public FileEngine getEngine() {
+        return engine != null ? engine : FileEngine.JSON;
+    }
+
+    /**
+     * @return The compaction garbage ratio, falling back to the default for older configs
+     */
+    public double getCompactionGarbageRatio() {
+        return compactionGarbageRatio > 0 ? compactionGarbageRatio : DEFAULT_COMPACTION_GARBAGE_RATIO;
+    }
+
+    /**
+     * @return The minimum log size to compact, falling back to the default for older configs
+     */
+    public long getCompactionMinBytes() {
+        return compactionMinBytes > 0 ? compactionMinBytes : DEFAULT_COMPACTION_MIN_BYTES;
+    }
+
+    /**
+     * @return The segment size, falling back to the default for older configs
+     */
+    public long getSegmentBytes() {
+        return segmentBytes > 0 ? segmentBytes : DEFAULT_SEGMENT_BYTES;
+    }
+
+    /**
+     * @return The number of shards, falling back to the default for older configs
+     */
+    public int getShards() {
+        return shards > 0 ? shards : DEFAULT_SHARDS;
+    }
+}
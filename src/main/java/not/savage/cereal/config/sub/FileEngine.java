@@ -0,0 +1,29 @@
+package not.savage.cereal.config.sub;
+
+/**
+ * How {@link not.savage.cereal.internal.platform.file.CerealFileDatabase} persists caches.
+ */
+public enum FileEngine {
+
+    /**
+     * One pretty printed JSON file per cache, rewritten in full on every save.
+     */
+    JSON,
+
+    /**
+     * One append-only log per cache. Saves & deletes are appended as records, so flushes only write what changed.
+     * Flushes only append objects with fields marked by {@link not.savage.cereal.internal.CerealDataBlob#markDirty(String...)},
+     * objects changed in place without being marked are appended when they're saved.
+     * The log is compacted in the background once enough of it is overwritten or deleted records.
+     * An existing JSON file of the cache is imported on first start.
+     */
+    LOG,
+
+    /**
+     * Memory-mapped segment files per cache, in the {@link #LOG} record format. Only an index of where each object is
+     * stored is built on start, objects are deserialized the first time they're read, so cold data stays off heap.
+     * An existing JSON file of the cache is imported on first start.
+     */
+    SEGMENT
+
+}
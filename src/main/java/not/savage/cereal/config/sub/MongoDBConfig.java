@@ -4,10 +4,44 @@ package not.savage.cereal.config.sub;
  * MongoDB configuration object for the {@link not.savage.cereal.internal.platform.mongo.CerealMongoDatabase} implementation.
  * @param uri The MongoDB URI to connect to ie mongodb://localhost:27017
  * @param database The MongoDB database name to use
+ * @param bulkChunkSize How many documents are sent per bulk write by saveAll, 0 for the default (1000)
+ * @param bulkParallelism How many saveAll chunks are written in parallel, 0 for the default (4)
+ * @param bulkRetries How often documents which failed with a transient error are retried by saveAll, 0 for the default (2)
  */
 public record MongoDBConfig(
         String uri,
-        String database
+        String database,
+        int bulkChunkSize,
+        int bulkParallelism,
+        int bulkRetries
 ) {
 
+    public static final int DEFAULT_BULK_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_BULK_PARALLELISM = 4;
+    public static final int DEFAULT_BULK_RETRIES = 2;
+
+    public MongoDBConfig(String uri, String database) {
+        this(uri, database, DEFAULT_BULK_CHUNK_SIZE, DEFAULT_BULK_PARALLELISM, DEFAULT_BULK_RETRIES);
+    }
+
+    /**
+     * @return The saveAll chunk size, falling back to the default for older configs
+     */
+    public int getBulkChunkSize() {
+        return bulkChunkSize > 0 ? bulkChunkSize : DEFAULT_BULK_CHUNK_SIZE;
+    }
+
+    /**
+     * @return The saveAll parallelism, falling back to the default for older configs
+     */
+    public int getBulkParallelism() {
+        return bulkParallelism > 0 ? bulkParallelism : DEFAULT_BULK_PARALLELISM;
+    }
+
+    /**
+     * @return The saveAll retries, falling back to the default for older configs
+     */
+    public int getBulkRetries() {
+        return bulkRetries > 0 ? bulkRetries : DEFAULT_BULK_RETRIES;
+    }
 }
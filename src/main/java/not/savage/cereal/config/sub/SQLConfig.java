@@ -2,14 +2,93 @@ package not.savage.cereal.config.sub;
 
 import lombok.Getter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * SQL Configuration object for {@link not.savage.cereal.internal.platform.sql.CerealSQLDatabase}
  * @param jdbcUrl The JDBC URL
  * @param username The username
  * @param password The password
+ * @param batchChunkSize How many rows are written per multi-row upsert by saveAll, 0 for the default (500)
+ * @param batchParallelism How many saveAll chunks are written in parallel on separate connections, 0 for the default (4)
+ * @param keyFormat How identifiers are stored, {@link SQLKeyFormat#STRING} by default.
+ *                  Existing string keyed tables are migrated on start when switching to a binary format.
+ * @param replicaJdbcUrls JDBC URLs of read replicas, using the same credentials. Empty to read from the primary.
+ * @param replicaRouting How reads are spread over the replicas, {@link SQLReplicaRouting#ROUND_ROBIN} by default
+ * @param readYourWritesMillis How long reads of a key go to the primary after it was written, so replica lag
+ *                             never hides a write from this node, 0 for the default (5000)
+ * @param pool The connection pool configuration {@link SQLPoolConfig}
  */
 public record SQLConfig(
     @Getter String jdbcUrl,
     @Getter String username,
-    @Getter String password
-) { }
+    @Getter String password,
+    int batchChunkSize,
+    int batchParallelism,
+    SQLKeyFormat keyFormat,
+    List<String> replicaJdbcUrls,
+    SQLReplicaRouting replicaRouting,
+    long readYourWritesMillis,
+    SQLPoolConfig pool
+) {
+
+    public static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+    public static final int DEFAULT_BATCH_PARALLELISM = 4;
+    public static final long DEFAULT_READ_YOUR_WRITES_MILLIS = 5000;
+
+    public SQLConfig(String jdbcUrl, String username, String password) {
+        this(jdbcUrl, username, password, DEFAULT_BATCH_CHUNK_SIZE, DEFAULT_BATCH_PARALLELISM, SQLKeyFormat.STRING,
+                new ArrayList<>(), SQLReplicaRouting.ROUND_ROBIN, DEFAULT_READ_YOUR_WRITES_MILLIS,
+                SQLPoolConfig.defaults());
+    }
+
+    /**
+     * @return The saveAll chunk size, falling back to the default for older configs
+     */
+    public int getBatchChunkSize() {
+        return batchChunkSize > 0 ? batchChunkSize : DEFAULT_BATCH_CHUNK_SIZE;
+    }
+
+    /**
+     * @return The saveAll parallelism, falling back to the default for older configs
+     */
+    public int getBatchParallelism() {
+        return batchParallelism > 0 ? batchParallelism : DEFAULT_BATCH_PARALLELISM;
+    }
+
+    /**
+     * @return The key format, falling back to {@link SQLKeyFormat#STRING} for older configs
+     */
+    public SQLKeyFormat getKeyFormat() {
+        return keyFormat != null ? keyFormat : SQLKeyFormat.STRING;
+    }
+
+    /**
+     * @return The read replica URLs, empty for older configs
+     */
+    public List<String> getReplicaJdbcUrls() {
+        return replicaJdbcUrls != null ? replicaJdbcUrls : List.of();
+    }
+
+    /**
+     * @return The replica routing, falling back to {@link SQLReplicaRouting#ROUND_ROBIN} for older configs
+     */
+    public SQLReplicaRouting getReplicaRouting() {
+        return replicaRouting != null ? replicaRouting : SQLReplicaRouting.ROUND_ROBIN;
+    }
+
+    /**
+     * @return The read-your-writes window in milliseconds, falling back to the default for older configs
+     */
+    public long getReadYourWritesMillis() {
+        return readYourWritesMillis > 0 ? readYourWritesMillis : DEFAULT_READ_YOUR_WRITES_MILLIS;
+    }
+
+    /**
+     * @return The pool configuration, falling back to the defaults for older configs
+     */
+    public SQLPoolConfig getPool() {
+        return pool != null ? pool : SQLPoolConfig.defaults();
+    }
+}
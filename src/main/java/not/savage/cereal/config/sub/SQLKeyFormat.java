@@ -0,0 +1,23 @@
+package not.savage.cereal.config.sub;
+
+/**
+ * How object identifiers are stored in the SQL id column, for MySQL/MariaDB.
+ * PostgreSQL always uses its native UUID type & SQLite always stores text keys.
+ */
+public enum SQLKeyFormat {
+
+    /**
+     * VARCHAR(36) holding the textual UUID, the original format.
+     */
+    STRING,
+    /**
+     * BINARY(16) holding the raw UUID bytes.
+     */
+    BINARY,
+    /**
+     * BINARY(16) with the time fields of the UUID swapped to the front, like MySQL's UUID_TO_BIN(id, 1).
+     * Time-based (v1) identifiers are then inserted in order, keeping inserts at the end of the clustered index.
+     */
+    BINARY_ORDERED
+
+}
@@ -0,0 +1,44 @@
+package not.savage.cereal.config.sub;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connection pool configuration of {@link SQLConfig}, applied to the primary & every replica pool.
+ * Any value left at 0 keeps the pool default.
+ * @param maximumPoolSize Maximum connections per pool, 0 to size the pool to the datasource executors' concurrency
+ * @param minimumIdle Minimum idle connections kept open, 0 for the maximum pool size
+ * @param connectionTimeoutMillis How long a thread waits for a connection before failing
+ * @param idleTimeoutMillis How long a connection above minimumIdle may sit idle before it's closed
+ * @param maxLifetimeMillis Maximum lifetime of a connection, should be shorter than the server's wait_timeout
+ * @param keepaliveTimeMillis How often idle connections are pinged to keep them alive
+ * @param leakDetectionThresholdMillis How long a connection may be held before a possible leak is logged
+ * @param validationTimeoutMillis How long a connection liveness check may take
+ * @param dataSourceProperties Driver properties, which override Cereal's defaults (e.g. cachePrepStmts)
+ */
+public record SQLPoolConfig(
+        int maximumPoolSize,
+        int minimumIdle,
+        long connectionTimeoutMillis,
+        long idleTimeoutMillis,
+        long maxLifetimeMillis,
+        long keepaliveTimeMillis,
+        long leakDetectionThresholdMillis,
+        long validationTimeoutMillis,
+        Map<String, String> dataSourceProperties
+) {
+
+    /**
+     * @return A pool config which keeps every default
+     */
+    public static SQLPoolConfig defaults() {
+        return new SQLPoolConfig(0, 0, 0, 0, 0, 0, 0, 0, new HashMap<>());
+    }
+
+    /**
+     * @return The driver property overrides, empty for older configs
+     */
+    public Map<String, String> getDataSourceProperties() {
+        return dataSourceProperties != null ? dataSourceProperties : Map.of();
+    }
+}
@@ -0,0 +1,18 @@
+package not.savage.cereal.config.sub;
+
+/**
+ * How reads are spread over the configured SQL read replicas.
+ */
+public enum SQLReplicaRouting {
+
+    /**
+     * Each read goes to the next replica in turn.
+     */
+    ROUND_ROBIN,
+    /**
+     * Each read goes to the replica with the fewest threads waiting on its pool, ties broken by the fewest connections
+     * in use.
+     */
+    LEAST_LOADED
+
+}
@@ -0,0 +1,30 @@
+package not.savage.cereal.config.sub;
+
+/**
+ * SQLite configuration object for the {@link not.savage.cereal.internal.platform.sqlite.CerealSQLiteDatabase} implementation.
+ * @param file The database file, relative to the working directory, "cereal.db" if empty
+ * @param readerPoolSize How many pooled read-only connections are kept open, 0 for the default (4).
+ *                       Writes always go through a single writer connection.
+ */
+public record SQLiteConfig(
+        String file,
+        int readerPoolSize
+) {
+
+    public static final String DEFAULT_FILE = "cereal.db";
+    public static final int DEFAULT_READER_POOL_SIZE = 4;
+
+    /**
+     * @return The database file, falling back to the default if unset
+     */
+    public String getFile() {
+        return file == null || file.isEmpty() ? DEFAULT_FILE : file;
+    }
+
+    /**
+     * @return The reader pool size, falling back to the default for older configs
+     */
+    public int getReaderPoolSize() {
+        return readerPoolSize > 0 ? readerPoolSize : DEFAULT_READER_POOL_SIZE;
+    }
+}
@@ -0,0 +1,204 @@
+package not.savage.cereal.internal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import lombok.Getter;
+import lombok.NonNull;
+import not.savage.cereal.annotation.Compressed;
+import not.savage.cereal.annotation.Index;
+import not.savage.cereal.exception.DataPersistenceException;
+import not.savage.cereal.internal.counter.CounterBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the stored form of the objects of a {@link Compressed} cache.
+ * The whole object is deflated as compact JSON, while the {@link #getUncompressedFields() uncompressed fields} are
+ * copied out next to it. When reading, the uncompressed copy wins over the compressed one, as backends may have
+ * changed it in place, e.g. atomic counter increments or partial field updates.
+ */
+@Getter
+public final class BlobCompressor {
+
+    /**
+     * Name of the field holding the compressed object, where it's stored within a document.
+     */
+    public static final String COMPRESSED_FIELD = "_z";
+
+    private final int level;
+    /**
+     * Dotted paths of the fields which are also stored uncompressed.
+     */
+    private final Set<String> uncompressedFields;
+
+    public BlobCompressor(int level, @NonNull Set<String> uncompressedFields) {
+        this.level = level;
+        this.uncompressedFields = Collections.unmodifiableSet(new LinkedHashSet<>(uncompressedFields));
+    }
+
+    /**
+     * @param cacheClass The cache, which may be annotated with {@link Compressed}
+     * @param dataClass The data blob class of the cache, whose {@link not.savage.cereal.annotation.Counter} fields stay uncompressed
+     * @param indexes The indexes of the cache, whose fields stay uncompressed
+     * @return The compressor of the cache, or null if it isn't compressed
+     */
+    public static BlobCompressor of(@NonNull Class<?> cacheClass, @NonNull Class<? extends CerealDataBlob> dataClass, @NonNull Index[] indexes) {
+        Compressed compressed = cacheClass.getAnnotation(Compressed.class);
+        if (compressed == null) return null;
+
+        Set<String> fields = new LinkedHashSet<>(CounterBuffer.getCounterFields(dataClass));
+        for (Index index : indexes) {
+            for (String field : index.value()) {
+                fields.add(FieldPaths.validate(field));
+            }
+        }
+        return new BlobCompressor(compressed.level(), fields);
+    }
+
+    /**
+     * @return true if the field, or an object containing it, is stored uncompressed
+     */
+    public boolean isUncompressed(@NonNull String field) {
+        for (String uncompressed : uncompressedFields) {
+            if (field.equals(uncompressed) || field.startsWith(uncompressed + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @throws IllegalArgumentException if any of the fields can only be read from the compressed object
+     */
+    public void requireUncompressed(@NonNull String... fields) {
+        for (String field : fields) {
+            if (!isUncompressed(field)) {
+                throw new IllegalArgumentException(
+                        "Field %s of a @Compressed cache can't be queried, declare it with @Index to keep it uncompressed".formatted(field));
+            }
+        }
+    }
+
+    /**
+     * @param object The whole serialized object
+     * @return A copy of only the uncompressed fields present in the object
+     */
+    public @NonNull JsonObject uncompressed(@NonNull JsonObject object) {
+        JsonObject copy = new JsonObject();
+        for (String field : uncompressedFields) {
+            JsonObject source = object;
+            JsonObject target = copy;
+            String[] segments = field.split("\\.");
+            for (int i = 0; i < segments.length - 1 && source != null; i++) {
+                JsonElement next = source.get(segments[i]);
+                source = next != null && next.isJsonObject() ? next.getAsJsonObject() : null;
+                if (source == null) break;
+                JsonElement existing = target.get(segments[i]);
+                if (existing == null || !existing.isJsonObject()) {
+                    existing = new JsonObject();
+                    target.add(segments[i], existing);
+                }
+                target = existing.getAsJsonObject();
+            }
+            if (source == null) continue;
+            JsonElement value = source.get(segments[segments.length - 1]);
+            if (value != null) {
+                target.add(segments[segments.length - 1], value);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Deflate the compact JSON of an object.
+     */
+    public byte @NonNull [] compress(@NonNull JsonElement object) {
+        return compress(object.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte @NonNull [] compress(byte @NonNull [] bytes) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @throws DataPersistenceException if the bytes aren't valid deflated data
+     */
+    public static byte @NonNull [] decompress(byte @NonNull [] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated compressed blob");
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new DataPersistenceException("Failed to decompress stored blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Rebuild an object from its compressed form & the uncompressed fields stored next to it.
+     * Only the uncompressed fields of the compressor are taken from the stored fields, so fields left behind by a copy
+     * stored before the cache was compressed never override the compressed object.
+     * @param compressor The compressor of the cache, or null if the cache is no longer compressed
+     * @param compressed The compressed object, or null if it was stored uncompressed
+     * @param stored The uncompressed fields, or the whole object if it was stored uncompressed
+     * @return The object to deserialize
+     */
+    public static @NonNull JsonObject restore(BlobCompressor compressor, byte[] compressed, @NonNull JsonObject stored) {
+        if (compressed == null) return stored;
+        JsonObject object = JsonParser.parseString(new String(decompress(compressed), StandardCharsets.UTF_8)).getAsJsonObject();
+        merge(object, compressor != null ? compressor.uncompressed(stored) : stored);
+        return object;
+    }
+
+    /**
+     * @return true if the bytes start with a zlib header, which JSON never does
+     */
+    public static boolean isCompressed(byte @NonNull [] bytes) {
+        return bytes.length >= 2 && (bytes[0] & 0x0F) == Deflater.DEFLATED && (((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF)) % 31 == 0;
+    }
+
+    /**
+     * Deep merge the source into the target, values of the source win.
+     */
+    private static void merge(JsonObject target, JsonObject source) {
+        for (Map.Entry<String, JsonElement> entry : source.entrySet()) {
+            JsonElement existing = target.get(entry.getKey());
+            if (existing != null && existing.isJsonObject() && entry.getValue().isJsonObject()) {
+                merge(existing.getAsJsonObject(), entry.getValue().getAsJsonObject());
+            } else {
+                target.add(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
@@ -5,15 +5,24 @@ import lombok.NonNull;
 import not.savage.cereal.Cache;
 import not.savage.cereal.CerealLogger;
 import not.savage.cereal.CerealObjectFactory;
+import not.savage.cereal.IncrementResult;
+import not.savage.cereal.Projection;
 import not.savage.cereal.config.CerealConfig;
+import not.savage.cereal.internal.cache.CacheMemoryStats;
 import not.savage.cereal.internal.cache.EvictingCache;
 import not.savage.cereal.internal.cache.EvictionReason;
+import not.savage.cereal.internal.counter.CounterBuffer;
 import not.savage.cereal.type.TypeComparator;
 
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of a {@link Cache} & defines generic standards for a cache.
@@ -27,6 +36,11 @@ public abstract class CerealCache<T extends CerealDataBlob> implements Cache<T,
     protected CerealDatasource<T> datasource;
     protected EvictingCache<UUID, T> cache;
     protected Set<TypeComparator<?>> typeComparators;
+    protected final CounterBuffer counters = new CounterBuffer();
+    /**
+     * Periodically flushes buffered counter increments, only created if the blob has {@link not.savage.cereal.annotation.Counter} fields.
+     */
+    private ScheduledExecutorService counterFlusher;
 
     @Getter protected CerealConfig config;
 
@@ -41,6 +55,32 @@ public abstract class CerealCache<T extends CerealDataBlob> implements Cache<T,
         if (this.config == null) {
             throw new IllegalStateException("Cache config missing! This is likely because the author didn't register this Cache with CerealAPI.");
         }
+        if (this.datasource.getCounterFields().isEmpty()) return;
+        int flushSeconds = this.config.getCacheConfig().getCounterFlushSeconds();
+        this.counterFlusher = Executors.newSingleThreadScheduledExecutor();
+        this.counterFlusher.scheduleAtFixedRate(this::flushCounters, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop flushing counters & save everything cached, including a final flush of the buffered increments.
+     * Called by the database when it shuts down.
+     */
+    public void shutdown() {
+        if (this.counterFlusher != null) {
+            this.counterFlusher.shutdown();
+            try {
+                // Let a running flush finish so the final one doesn't race it
+                this.counterFlusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            saveAll();
+        } catch (Exception e) {
+            // Keep shutting down the other caches & the connections
+            error("Failed to save cache %s on shutdown", e, id);
+        }
     }
 
     public void setDependencies(@NonNull CerealDatasource<T> datasource,
@@ -49,16 +89,95 @@ public abstract class CerealCache<T extends CerealDataBlob> implements Cache<T,
         this.config = config;
     }
 
+    /**
+     * Save the object, writing back only the fields marked with {@link CerealDataBlob#markDirty(String...)}
+     * if any were marked, otherwise the whole object.
+     * @param v The object to save
+     */
     @Override
     public void save(@NonNull T v) {
-        this.datasource.save(v);
+        Set<String> dirty = v.drainDirtyFields();
+        if (dirty.isEmpty()) {
+            this.datasource.save(v);
+            return;
+        }
+        try {
+            this.datasource.saveFields(v, dirty.toArray(String[]::new));
+        } catch (RuntimeException e) {
+            // Written by the next save instead
+            v.markDirty(dirty.toArray(String[]::new));
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveFields(@NonNull T v, @NonNull String... fields) {
+        this.datasource.saveFields(v, fields);
     }
 
     @Override
     public void saveAll() {
+        flushCounters();
         this.datasource.saveAll(getAllCached());
     }
 
+    @Override
+    public @NonNull CompletableFuture<Void> saveAllAsync() {
+        flushCounters();
+        return this.datasource.saveAllAsync(getAllCached());
+    }
+
+    @Override
+    public void increment(@NonNull UUID key, @NonNull String field, long delta) {
+        if (!this.datasource.getCounterFields().contains(field)) {
+            throw new IllegalArgumentException("Field %s isn't annotated with @Counter in cache %s".formatted(field, id));
+        }
+        this.counters.increment(key, field, delta);
+    }
+
+    /**
+     * Flush all buffered counter increments to the datasource as one batch, then apply them to the cached objects.
+     * Objects which aren't stored yet are saved in full with their increments applied, if they're cached.
+     * If the flush fails the increments are kept & retried on the next flush, as are those of the objects which failed.
+     */
+    public void flushCounters() {
+        Map<UUID, Map<String, Long>> deltas = this.counters.drain();
+        if (deltas.isEmpty()) return;
+
+        debug("Flushing counter increments for %d objects in cache %s", deltas.size(), id);
+        // Peeked before the increment, so an object evicted meanwhile is still saved in full if it's created
+        Map<UUID, T> cached = new HashMap<>();
+        deltas.keySet().forEach(key -> this.cache.peek(key).ifPresent(t -> cached.put(key, t)));
+        IncrementResult<UUID> result;
+        try {
+            result = this.datasource.incrementAll(deltas, cached.keySet());
+        } catch (Exception e) {
+            error("Failed to flush counter increments for cache %s, retrying next flush", e, id);
+            this.counters.restore(deltas);
+            return;
+        }
+
+        deltas.forEach((key, fields) -> {
+            if (result.failed().contains(key)) {
+                this.counters.restore(Map.of(key, fields));
+                return;
+            }
+            boolean stored = !result.missing().contains(key);
+            if (stored && this.datasource.isInMemory()) return; // Already applied to the cached instance
+            T t = cached.get(key);
+            if (t == null) {
+                if (!stored) {
+                    error("Dropped counter increments for %s in cache %s, it isn't stored or cached".formatted(key, id));
+                }
+                return;
+            }
+            fields.forEach((field, delta) -> CounterBuffer.apply(t, field, delta));
+            if (!stored) {
+                this.datasource.save(t);
+            }
+        });
+    }
+
     public void delete(@NonNull T t) {
         this.cache.expire(t, EvictionReason.EXPLICIT);
         this.datasource.delete(t);
@@ -163,6 +282,19 @@ public abstract class CerealCache<T extends CerealDataBlob> implements Cache<T,
         return this.cache.getAll();
     }
 
+    /**
+     * @return The number of cached objects & what deduplicating their values saved, see {@link not.savage.cereal.annotation.Intern}
+     */
+    public @NonNull CacheMemoryStats getMemoryStats() {
+        int cached = this.cache != null ? this.cache.size() : 0;
+        Interner interner = this.datasource != null ? this.datasource.getInterner() : null;
+        if (interner == null) {
+            return new CacheMemoryStats(id, cached, 0, 0, 0, 0, 0);
+        }
+        return new CacheMemoryStats(id, cached, interner.getLookups(), interner.getHits(), interner.getDedupedBytes(),
+                interner.size(), interner.occupied());
+    }
+
     @Override
     public @NonNull CompletableFuture<Optional<T>> getByFieldAsync(@NonNull String field, @NonNull Object value) {
         return CompletableFuture.supplyAsync(() -> getByField(field, value));
@@ -172,4 +304,54 @@ public abstract class CerealCache<T extends CerealDataBlob> implements Cache<T,
     public @NonNull CompletableFuture<Set<T>> getAllByFieldAsync(@NonNull String field, @NonNull Object value, int limit) {
         return CompletableFuture.supplyAsync(() -> getAllByField(field, value, limit));
     }
+
+    @Override
+    public @NonNull Optional<Projection<UUID>> getProjected(@NonNull UUID key, @NonNull String... fields) {
+        Optional<T> cached = this.cache.get(key);
+        if (cached.isPresent()) {
+            return Optional.of(this.datasource.project(cached.get(), fields));
+        }
+        return this.datasource.getProjected(key, fields);
+    }
+
+    @Override
+    public @NonNull Set<Projection<UUID>> getAllProjected(@NonNull String... fields) {
+        return preferCached(this.datasource.getAllProjected(fields), fields);
+    }
+
+    @Override
+    public @NonNull Set<Projection<UUID>> getAllByFieldProjected(@NonNull String field, @NonNull Object value, int limit, @NonNull String... fields) {
+        return preferCached(this.datasource.getAllByFieldProjected(field, value, limit, fields), fields);
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Optional<Projection<UUID>>> getProjectedAsync(@NonNull UUID key, @NonNull String... fields) {
+        return CompletableFuture.supplyAsync(() -> getProjected(key, fields));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Set<Projection<UUID>>> getAllProjectedAsync(@NonNull String... fields) {
+        return CompletableFuture.supplyAsync(() -> getAllProjected(fields));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Set<Projection<UUID>>> getAllByFieldProjectedAsync(@NonNull String field, @NonNull Object value,
+                                                                                        int limit, @NonNull String... fields) {
+        return CompletableFuture.supplyAsync(() -> getAllByFieldProjected(field, value, limit, fields));
+    }
+
+    /**
+     * Swap stored projections for projections of the cached object where one is cached,
+     * as the cached value may contain changes which haven't been saved yet.
+     * Doesn't touch access times or cache anything.
+     */
+    private @NonNull Set<Projection<UUID>> preferCached(@NonNull Set<Projection<UUID>> stored, @NonNull String... fields) {
+        Map<UUID, T> cached = this.cache.getAll().stream().collect(Collectors.toMap(T::getIdentifier, Function.identity(), (a, b) -> a));
+        Set<Projection<UUID>> projections = new HashSet<>();
+        for (Projection<UUID> projection : stored) {
+            T t = cached.get(projection.getIdentifier());
+            projections.add(t == null ? projection : this.datasource.project(t, fields));
+        }
+        return projections;
+    }
 }
@@ -1,10 +1,13 @@
 package not.savage.cereal.internal;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import not.savage.cereal.CerealDataObject;
 import not.savage.cereal.DataBlob;
 
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Getter
 public abstract class CerealDataBlob implements DataBlob<UUID> {
@@ -20,6 +23,11 @@ public abstract class CerealDataBlob implements DataBlob<UUID> {
      * The TTL of the current holder certificate within the database.
      */
     private transient long lastSaved;
+    /**
+     * Field paths changed since the last save, used to write back only what changed.
+     * Lazily created as objects created by Gson may skip field initializers.
+     */
+    @Getter(AccessLevel.NONE) private transient Set<String> dirtyFields;
 
     public <T extends CerealDataBlob> CerealDataBlob(CerealCache<T> cache) {
         this.cache = cache;
@@ -61,4 +69,38 @@ public abstract class CerealDataBlob implements DataBlob<UUID> {
     public void lastSaved() {
         this.lastSaved = System.currentTimeMillis();
     }
+
+    /**
+     * Mark fields as changed so the next write-back only persists these fields rather than the whole object.
+     * If any other field is changed without being marked, it won't be persisted until the object is fully saved.
+     * @param fields The dotted field paths which changed (e.g. "coins", "stats.kills")
+     */
+    public void markDirty(String... fields) {
+        dirtyFields().addAll(Set.of(fields));
+    }
+
+    /**
+     * Take & clear the fields marked as changed since the last save.
+     * @return The changed field paths, empty if none were marked.
+     */
+    public Set<String> drainDirtyFields() {
+        Set<String> dirty = dirtyFields();
+        Set<String> drained = Set.copyOf(dirty);
+        dirty.removeAll(drained);
+        return drained;
+    }
+
+    /**
+     * @return true if any field was marked as changed since the last save, without allocating the set of fields
+     */
+    public synchronized boolean isDirty() {
+        return this.dirtyFields != null && !this.dirtyFields.isEmpty();
+    }
+
+    private synchronized Set<String> dirtyFields() {
+        if (this.dirtyFields == null) {
+            this.dirtyFields = ConcurrentHashMap.newKeySet();
+        }
+        return this.dirtyFields;
+    }
 }
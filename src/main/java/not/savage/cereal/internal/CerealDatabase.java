@@ -2,16 +2,22 @@ package not.savage.cereal.internal;
 
 import lombok.Getter;
 import not.savage.cereal.*;
+import not.savage.cereal.annotation.Codec;
 import not.savage.cereal.annotation.FileLocation;
+import not.savage.cereal.annotation.Index;
 import not.savage.cereal.annotation.Serializers;
+import not.savage.cereal.codec.BlobCodecFactory;
+import not.savage.cereal.codec.JsonCodec;
 import not.savage.cereal.config.CerealConfig;
 import not.savage.cereal.exception.CacheInstantiationException;
 import not.savage.cereal.exception.DatasourceException;
 import not.savage.cereal.exception.MissingLocationException;
+import not.savage.cereal.internal.cache.CacheMemoryStats;
 
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * "Cereal" Database abstraction layer. Implements most of the "Cereal Specific" logic
@@ -116,4 +122,51 @@ public abstract class CerealDatabase extends Database implements CerealLogger {
         }
         return instances;
     }
+
+    /**
+     * Extracts the declared indexes for the data object
+     * @see Index
+     * @param clazz Class to extract indexes from
+     * @return Array of declared indexes, empty if none are declared
+     */
+    protected Index[] getIndexes(Class<? extends CerealCache<?>> clazz) {
+        return clazz.getAnnotationsByType(Index.class);
+    }
+
+    /**
+     * Creates the compressor of a cache annotated with {@link not.savage.cereal.annotation.Compressed}
+     * @return The compressor, or null if the cache isn't compressed
+     */
+    protected BlobCompressor getCompressor(Class<? extends CerealCache<?>> clazz, Class<? extends CerealDataBlob> dataClass) {
+        return BlobCompressor.of(clazz, dataClass, getIndexes(clazz));
+    }
+
+    /**
+     * Creates the interner of a cache annotated with {@link not.savage.cereal.annotation.Intern}
+     * @return The interner, or null if the cache doesn't deduplicate
+     */
+    protected Interner getInterner(Class<? extends CerealCache<?>> clazz) {
+        return Interner.of(clazz);
+    }
+
+    /**
+     * @return A snapshot of the memory held by every loaded cache, see {@link CerealCache#getMemoryStats()}
+     */
+    public List<CacheMemoryStats> getMemoryStats() {
+        return loadedCaches.values().stream().map(CerealCache::getMemoryStats).toList();
+    }
+
+    /**
+     * Creates the codec factory selected with {@link Codec}, JSON by default.
+     * @throws DatasourceException if the factory can't be instantiated
+     */
+    protected BlobCodecFactory getCodec(Class<? extends CerealCache<?>> clazz) throws DatasourceException {
+        Codec codec = clazz.getAnnotation(Codec.class);
+        if (codec == null) return new JsonCodec();
+        try {
+            return codec.value().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new DatasourceException("Failed to load codec %s in %s".formatted(codec.value().getName(), clazz.getName()), e);
+        }
+    }
 }
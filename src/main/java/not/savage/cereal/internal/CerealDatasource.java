@@ -1,18 +1,25 @@
 package not.savage.cereal.internal;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import lombok.Getter;
 import lombok.NonNull;
 import not.savage.cereal.Datasource;
+import not.savage.cereal.Projection;
 import not.savage.cereal.TypeSerializer;
+import not.savage.cereal.adapter.GeneratedAdapterFactory;
 import not.savage.cereal.exception.DatasourceException;
 import not.savage.cereal.exception.NoSerializerException;
+import not.savage.cereal.internal.counter.CounterBuffer;
 import not.savage.cereal.sort.CerealFilterMode;
 import not.savage.cereal.sort.CerealSortMode;
 
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -21,10 +28,17 @@ import java.util.concurrent.CompletableFuture;
 @Getter
 public abstract class CerealDatasource<T extends CerealDataBlob> implements Datasource<T, UUID> {
 
+    protected final Class<T> clazz;
     protected final GsonBuilder builder;
     protected CerealDatabase database;
+    protected Gson gson;
+    /**
+     * Deduplicates deserialized values of an {@link not.savage.cereal.annotation.Intern} cache, otherwise null.
+     */
+    protected Interner interner;
 
-    public CerealDatasource(CerealDatabase database) {
+    public CerealDatasource(Class<T> clazz, CerealDatabase database) {
+        this.clazz = clazz;
         this.database = database;
         this.builder = new GsonBuilder()
                 .setPrettyPrinting()
@@ -32,7 +46,18 @@ public abstract class CerealDatasource<T extends CerealDataBlob> implements Data
                 .serializeNulls()
                 .enableComplexMapKeySerialization()
                 .disableInnerClassSerialization()
-                .excludeFieldsWithModifiers(Modifier.TRANSIENT, Modifier.VOLATILE);
+                .excludeFieldsWithModifiers(Modifier.TRANSIENT, Modifier.VOLATILE)
+                .registerTypeAdapterFactory(GeneratedAdapterFactory.INSTANCE);
+    }
+
+    /**
+     * Deduplicate the strings & UUIDs deserialized by this datasource, must be called before {@link #start()}.
+     * @param interner The interner of the cache, or null if it doesn't deduplicate
+     */
+    public void setInterner(Interner interner) {
+        if (interner == null) return;
+        this.interner = interner;
+        this.builder.registerTypeAdapterFactory(interner);
     }
 
     /**
@@ -46,6 +71,11 @@ public abstract class CerealDatasource<T extends CerealDataBlob> implements Data
         return CompletableFuture.supplyAsync(() -> get(key));
     }
 
+    @Override
+    public @NonNull CompletableFuture<Void> saveAllAsync(@NonNull Set<T> values) {
+        return CompletableFuture.runAsync(() -> saveAll(values));
+    }
+
     @Override
     public @NonNull CompletableFuture<Set<T>> getAllAsync() {
         return CompletableFuture.supplyAsync(this::getAll);
@@ -69,6 +99,53 @@ public abstract class CerealDatasource<T extends CerealDataBlob> implements Data
                 getAllByFieldFilteredAndOrdered(filterMode, filterFor, filterByField, sortMode, sortByField, limit));
     }
 
+    @Override
+    public @NonNull CompletableFuture<Optional<Projection<UUID>>> getProjectedAsync(@NonNull UUID key, @NonNull String... fields) {
+        return CompletableFuture.supplyAsync(() -> getProjected(key, fields));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Set<Projection<UUID>>> getAllProjectedAsync(@NonNull String... fields) {
+        return CompletableFuture.supplyAsync(() -> getAllProjected(fields));
+    }
+
+    @Override
+    public @NonNull CompletableFuture<Set<Projection<UUID>>> getAllByFieldProjectedAsync(@NonNull String field, @NonNull Object value,
+                                                                                        int limit, @NonNull String... fields) {
+        return CompletableFuture.supplyAsync(() -> getAllByFieldProjected(field, value, limit, fields));
+    }
+
+    /**
+     * Whether the datasource holds the same instances that are handed out to the cache,
+     * meaning changes applied by the datasource are already visible in the cache.
+     * @return true if values are held in memory rather than in an external database
+     */
+    public boolean isInMemory() {
+        return false;
+    }
+
+    /**
+     * @return The names of the counter fields of the data blob class
+     * @see not.savage.cereal.annotation.Counter
+     */
+    public @NonNull Set<String> getCounterFields() {
+        return CounterBuffer.getCounterFields(clazz);
+    }
+
+    /**
+     * Project an in-memory object, serializing only the selected fields.
+     * @param t The object to project
+     * @param fields The dotted field paths to include, missing or null fields are left out
+     * @return The projection of the object
+     */
+    public @NonNull Projection<UUID> project(@NonNull T t, @NonNull String... fields) {
+        Map<String, JsonElement> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            FieldPaths.resolve(t, field).ifPresent(value -> values.put(field, gson.toJsonTree(value)));
+        }
+        return new Projection<>(t.getIdentifier(), values, gson);
+    }
+
     /**
      * Resolve the generic type of the serializer. Used to extract a type <?> from a given Serializer Class.
      * @param serializer TypeSerializer to resolve
@@ -0,0 +1,96 @@
+package not.savage.cereal.internal;
+
+import lombok.NonNull;
+import not.savage.cereal.Lazy;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves dotted field paths (e.g. "stats.kills") against in-memory {@link CerealDataBlob}s
+ * and translates them into the path formats used by the backends.
+ * Paths are restricted to plain identifiers so they can be safely inlined into queries.
+ */
+public final class FieldPaths {
+
+    private static final Pattern VALID_PATH = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*$");
+
+    private FieldPaths() {
+    }
+
+    /**
+     * Validate a dotted field path.
+     * @param path The path to validate
+     * @return The same path
+     * @throws IllegalArgumentException if the path contains anything other than identifiers & dots
+     */
+    public static @NonNull String validate(@NonNull String path) {
+        if (!VALID_PATH.matcher(path).matches()) {
+            throw new IllegalArgumentException("Invalid field path \"%s\"".formatted(path));
+        }
+        return path;
+    }
+
+    /**
+     * Convert a dotted field path into a MySQL/MariaDB JSON path. "stats.kills" -> "$.stats.kills"
+     * @param path The dotted field path
+     * @return The JSON path
+     */
+    public static @NonNull String toJsonPath(@NonNull String path) {
+        return "$." + validate(path);
+    }
+
+    /**
+     * Find a field by name in the class or any of its super classes.
+     * @param clazz The class to search
+     * @param name The field name
+     * @return The field, made accessible, or empty if not found
+     */
+    public static @NonNull Optional<Field> findField(@NonNull Class<?> clazz, @NonNull String name) {
+        Class<?> current = clazz;
+        while (current != null && current != Object.class) {
+            try {
+                Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return Optional.of(field);
+            } catch (NoSuchFieldException ignored) {
+                current = current.getSuperclass();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Resolve a dotted path against an object, walking fields & map keys. {@link Lazy} fields on the way are loaded.
+     * @param root The object to start from
+     * @param path The dotted field path
+     * @return The value at the path, or empty if any part of the path is missing or null
+     */
+    public static @NonNull Optional<Object> resolve(@NonNull Object root, @NonNull String path) {
+        Object current = root;
+        for (String segment : validate(path).split("\\.")) {
+            if (current instanceof Lazy<?> lazy) {
+                current = lazy.get();
+            }
+            if (current == null) {
+                return Optional.empty();
+            }
+            if (current instanceof Map<?, ?> map) {
+                current = map.get(segment);
+                continue;
+            }
+            Optional<Field> field = findField(current.getClass(), segment);
+            if (field.isEmpty()) {
+                return Optional.empty();
+            }
+            try {
+                current = field.get().get(current);
+            } catch (IllegalAccessException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.ofNullable(current instanceof Lazy<?> lazy ? lazy.get() : current);
+    }
+}
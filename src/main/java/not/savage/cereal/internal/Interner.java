@@ -0,0 +1,385 @@
+package not.savage.cereal.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import lombok.NonNull;
+import not.savage.cereal.annotation.Intern;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deduplicates the strings & UUIDs deserialized by the Gson instance of an {@link Intern} cache.
+ * The table is direct mapped, a value either matches the value held by its slot & that instance is returned, or it
+ * may replace it. Held values score a point per hit & lose one per miss of their slot, they're only replaced once
+ * they're out of points, so a stream of unique values like names doesn't push out the repeated ones.
+ * It's bounded & lock free, scores are updated racily as they only steer what's kept.
+ * Wraps the adapters otherwise used for strings & UUIDs, {@link not.savage.cereal.TypeSerializer}s included.
+ * <p>
+ * Which field a value belongs to is followed by wrapping the reader of each {@link CerealDataBlob}, so selecting
+ * fields doesn't allocate per value. The identifier of the blob is never interned, it's unique to the object.
+ * The strings of a map take the selection of the map field as a whole. Values read outside a blob, e.g. by a
+ * {@link not.savage.cereal.Lazy} field once accessed, can't be placed & are only interned when every string is.
+ */
+public final class Interner implements TypeAdapterFactory {
+
+    // Estimated heap of a String without its characters, the String itself & the header of its byte[]
+    private static final int STRING_BYTES = 24 + 16;
+    private static final int UUID_BYTES = 32;
+
+    private static final int MAX_SCORE = 8;
+    /**
+     * Whether the strings of the map being read are selected, null outside of a map, see the map adapter in
+     * {@link #create(Gson, TypeToken)}.
+     */
+    private static final ThreadLocal<Boolean> MAP_SELECTED = new ThreadLocal<>();
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    /**
+     * Dotted paths of the fields to deduplicate, every string if empty.
+     */
+    private final List<String> fields;
+    /**
+     * The fields as a tree of field names, matched against the names read by a {@link FieldTracker}.
+     */
+    private final Node root;
+    private final boolean uuids;
+    private final int maxLength;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder dedupedBytes = new LongAdder();
+
+    public Interner(int size, @NonNull List<String> fields, boolean uuids, int maxLength) {
+        if (size <= 0 || size > 1 << 30) {
+            throw new IllegalArgumentException("Intern table size must be between 1 and 2^30, got %d".formatted(size));
+        }
+        int slots = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        this.slots = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+        this.fields = fields.stream().map(FieldPaths::validate).toList();
+        this.uuids = uuids;
+        this.maxLength = maxLength;
+        this.root = new Node(this.fields.isEmpty());
+        for (String field : this.fields) {
+            Node node = root;
+            for (String name : field.split("\\.")) {
+                node = node.children.computeIfAbsent(name, n -> new Node(false));
+            }
+            node.selected = true;
+        }
+    }
+
+    /**
+     * @param cacheClass The cache, which may be annotated with {@link Intern}
+     * @return The interner of the cache, or null if it doesn't deduplicate
+     */
+    public static Interner of(@NonNull Class<?> cacheClass) {
+        Intern intern = cacheClass.getAnnotation(Intern.class);
+        if (intern == null) return null;
+        return new Interner(intern.size(), List.of(intern.fields()), intern.uuids(), intern.maxLength());
+    }
+
+    /**
+     * @return The instance held by the table if it's equal to the value, otherwise the value, which is then held
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T intern(T value) {
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        lookups.increment();
+        Slot held = slots.getAcquire(index);
+        if (held != null && value.equals(held.value)) {
+            if (held.score < MAX_SCORE) held.score++;
+            hits.increment();
+            dedupedBytes.add(value instanceof String string ? STRING_BYTES + string.length() : UUID_BYTES);
+            return (T) held.value;
+        }
+        if (held == null || --held.score < 0) {
+            slots.setRelease(index, new Slot(value));
+        }
+        return value;
+    }
+
+    /**
+     * @return Values looked up since the table was created
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return Lookups which returned the held instance
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The estimated heap of the duplicates dropped by hits, counting strings as Latin-1
+     */
+    public long getDedupedBytes() {
+        return dedupedBytes.sum();
+    }
+
+    /**
+     * @return The number of slots
+     */
+    public int size() {
+        return slots.length();
+    }
+
+    /**
+     * @return The slots holding a value, counted by walking the table
+     */
+    public int occupied() {
+        int occupied = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.getPlain(i) != null) occupied++;
+        }
+        return occupied;
+    }
+
+    private static final class Slot {
+
+        private final Object value;
+        private int score;
+
+        private Slot(Object value) {
+            this.value = value;
+        }
+    }
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        // Only followed where a value may be left out, every string is otherwise selected
+        boolean tracked = !fields.isEmpty() || uuids;
+        if (tracked && CerealDataBlob.class.isAssignableFrom(raw)) {
+            TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+            return new TypeAdapter<>() {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException {
+                    delegate.write(out, value);
+                }
+
+                @Override
+                public T read(JsonReader in) throws IOException {
+                    if (in instanceof FieldTracker || MAP_SELECTED.get() != null) return delegate.read(in);
+                    return delegate.read(new FieldTracker(in, root));
+                }
+            };
+        }
+        if (tracked && Map.class.isAssignableFrom(raw)) {
+            TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+            return new TypeAdapter<>() {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException {
+                    delegate.write(out, value);
+                }
+
+                @Override
+                public T read(JsonReader in) throws IOException {
+                    if (!(in instanceof FieldTracker tracker)) return delegate.read(in);
+                    // Gson reads map keys through internals of the reader which a wrapper doesn't have, so the map is
+                    // read from the wrapped reader & all of its strings take the selection of the map
+                    Boolean outer = MAP_SELECTED.get();
+                    MAP_SELECTED.set(tracker.isSelected());
+                    try {
+                        return delegate.read(tracker.in);
+                    } finally {
+                        MAP_SELECTED.set(outer);
+                    }
+                }
+            };
+        }
+        if (raw != String.class && (raw != UUID.class || !uuids)) return null;
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        return new TypeAdapter<>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                delegate.write(out, value);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                boolean selected;
+                if (in instanceof FieldTracker tracker) {
+                    selected = tracker.isSelected();
+                } else {
+                    Boolean map = MAP_SELECTED.get();
+                    selected = map != null ? map : fields.isEmpty();
+                }
+                T value = delegate.read(in);
+                if (value == null || !selected) return value;
+                if (value instanceof String string && string.length() > maxLength) return value;
+                return intern(value);
+            }
+        };
+    }
+
+    /**
+     * A field name of {@link #fields}, selected if it's the last name of a field, as is the root if every string is.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean selected;
+
+        private Node(boolean selected) {
+            this.selected = selected;
+        }
+    }
+
+    /**
+     * Reads through another reader, keeping the {@link Node} of the value being read, null if it's outside every field.
+     * Values within a selected node keep its node, array elements keep the node of their array.
+     */
+    private static final class FieldTracker extends JsonReader {
+
+        private static final Reader UNUSED = Reader.nullReader();
+
+        private final JsonReader in;
+        private final Node root;
+        private Node[] stack = new Node[8];
+        private int depth;
+        private Node current;
+
+        private FieldTracker(JsonReader in, Node root) {
+            super(UNUSED);
+            this.in = in;
+            this.root = root;
+            this.current = root;
+        }
+
+        private boolean isSelected() {
+            return current != null && current.selected;
+        }
+
+        private void push() {
+            if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+            stack[depth++] = current;
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            in.beginObject();
+            push();
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            in.endObject();
+            current = stack[--depth];
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            in.beginArray();
+            push();
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            in.endArray();
+            current = stack[--depth];
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            String name = in.nextName();
+            Node parent = stack[depth - 1];
+            if (parent == null) {
+                current = null;
+            } else if (parent == root && depth == 1 && name.equals("identifier")) {
+                current = null;
+            } else if (parent.selected) {
+                current = parent;
+            } else {
+                current = parent.children.get(name);
+            }
+            return name;
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            if (in.peek() == JsonToken.NAME) {
+                current = null;
+            }
+            in.skipValue();
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return in.hasNext();
+        }
+
+        @Override
+        public JsonToken peek() throws IOException {
+            return in.peek();
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            return in.nextString();
+        }
+
+        @Override
+        public boolean nextBoolean() throws IOException {
+            return in.nextBoolean();
+        }
+
+        @Override
+        public void nextNull() throws IOException {
+            in.nextNull();
+        }
+
+        @Override
+        public double nextDouble() throws IOException {
+            return in.nextDouble();
+        }
+
+        @Override
+        public long nextLong() throws IOException {
+            return in.nextLong();
+        }
+
+        @Override
+        public int nextInt() throws IOException {
+            return in.nextInt();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public String getPath() {
+            return in.getPath();
+        }
+
+        @Override
+        public String getPreviousPath() {
+            return in.getPreviousPath();
+        }
+
+        @Override
+        public String toString() {
+            return in.toString();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package not.savage.cereal.internal;
+
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.Reader;
+
+/**
+ * Thread local buffers which objects are serialized into before they're handed to a backend, so saving doesn't
+ * allocate & regrow a new stream or a JSON String every time.
+ * A buffer is taken with {@link #bytes()} or {@link #chars()} & given back by closing it, usually with try-with-resources.
+ * Buffers grown past {@link #RETAINED_SIZE} are shrunk when given back, so a single huge object isn't kept by the thread.
+ */
+public final class StreamBuffers {
+
+    /**
+     * The largest buffer a thread keeps between uses, in bytes or chars.
+     */
+    public static final int RETAINED_SIZE = 1 << 20;
+    private static final int INITIAL_SIZE = 8192;
+
+    private static final ThreadLocal<Bytes> BYTES = ThreadLocal.withInitial(Bytes::new);
+    private static final ThreadLocal<Chars> CHARS = ThreadLocal.withInitial(Chars::new);
+
+    private StreamBuffers() {
+    }
+
+    /**
+     * @return The empty byte buffer of the thread, or a new one if the thread's buffer is already taken
+     */
+    public static @NonNull Bytes bytes() {
+        Bytes bytes = BYTES.get();
+        if (bytes.taken) return new Bytes();
+        bytes.taken = true;
+        return bytes;
+    }
+
+    /**
+     * @return The empty char buffer of the thread, or a new one if the thread's buffer is already taken
+     */
+    public static @NonNull Chars chars() {
+        Chars chars = CHARS.get();
+        if (chars.taken) return new Chars();
+        chars.taken = true;
+        return chars;
+    }
+
+    public static final class Bytes extends ByteArrayOutputStream implements AutoCloseable {
+
+        private boolean taken;
+
+        private Bytes() {
+            super(INITIAL_SIZE);
+        }
+
+        /**
+         * Give the buffer back to the thread.
+         */
+        @Override
+        public void close() {
+            count = 0;
+            if (buf.length > RETAINED_SIZE) buf = new byte[INITIAL_SIZE];
+            taken = false;
+        }
+    }
+
+    public static final class Chars extends CharArrayWriter implements AutoCloseable {
+
+        private boolean taken;
+
+        private Chars() {
+            super(INITIAL_SIZE);
+        }
+
+        /**
+         * @return A reader over the contents without copying them, valid until the buffer is given back
+         */
+        public @NonNull Reader reader() {
+            return new CharArrayReader(buf, 0, count);
+        }
+
+        /**
+         * Give the buffer back to the thread.
+         */
+        @Override
+        public void close() {
+            count = 0;
+            if (buf.length > RETAINED_SIZE) buf = new char[INITIAL_SIZE];
+            taken = false;
+        }
+    }
+}
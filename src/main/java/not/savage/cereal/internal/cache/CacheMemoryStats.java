@@ -0,0 +1,31 @@
+package not.savage.cereal.internal.cache;
+
+/**
+ * A point in time snapshot of the memory held by a cache, see {@link not.savage.cereal.internal.CerealCache#getMemoryStats()}.
+ * The intern counters are 0 unless the cache is annotated with {@link not.savage.cereal.annotation.Intern}.
+ * @param cacheId The id of the cache
+ * @param cachedObjects Objects currently held by the {@link EvictingCache}
+ * @param internLookups Values looked up in the intern table since the cache started
+ * @param internHits Lookups which returned an already held instance, so the deserialized copy was dropped
+ * @param dedupedBytes Estimated heap of the copies dropped since the cache started, an upper bound of what's
+ *                     saved now as the objects referencing the shared instances may have been evicted since
+ * @param internSlots The size of the intern table
+ * @param internOccupied Slots of the intern table holding a value
+ */
+public record CacheMemoryStats(
+        String cacheId,
+        int cachedObjects,
+        long internLookups,
+        long internHits,
+        long dedupedBytes,
+        int internSlots,
+        int internOccupied
+) {
+
+    /**
+     * @return The share of lookups which found a duplicate, 0 without lookups
+     */
+    public double internHitRatio() {
+        return internLookups == 0 ? 0 : (double) internHits / internLookups;
+    }
+}
@@ -68,6 +68,16 @@ public abstract class EvictingCache<K, V> implements CerealLogger {
         return Optional.empty();
     }
 
+    /**
+     * Get a value from the cache without counting it as an access.
+     * @param key Key to lookup
+     * @return Value if cached, empty if not.
+     */
+    public Optional<V> peek(@NonNull K key) {
+        CacheEntry<V> entry = cache.get(key);
+        return entry == null ? Optional.empty() : Optional.of(entry.getValue());
+    }
+
     /**
      * Get all values in the cache.
      * @return Set of all values in the cache.
@@ -76,6 +86,13 @@ public abstract class EvictingCache<K, V> implements CerealLogger {
         return cache.values().stream().map(CacheEntry::getValue).collect(Collectors.toSet());
     }
 
+    /**
+     * @return The number of cached values
+     */
+    public int size() {
+        return cache.size();
+    }
+
     /**
      * Cache a value.
      * @param key Key
@@ -0,0 +1,224 @@
+package not.savage.cereal.internal.codec;
+
+import com.google.gson.Gson;
+import lombok.NonNull;
+import not.savage.cereal.annotation.Tag;
+import not.savage.cereal.codec.BlobCodec;
+import not.savage.cereal.exception.DataPersistenceException;
+import not.savage.cereal.internal.CerealDataBlob;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InaccessibleObjectException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * The codec of {@link not.savage.cereal.codec.BinaryCodec}. A record is a {@link #MAGIC} byte followed by the tagged
+ * fields of the object, see {@link WireType}. The codecs of all types reachable from the data blob class are built
+ * once in the constructor & never changed after, so encoding & decoding is thread safe.
+ * @param <T> The type of data blob
+ */
+public class BinaryBlobCodec<T extends CerealDataBlob> implements BlobCodec<T> {
+
+    /**
+     * First byte of every record. Neither JSON nor zlib data starts with it.
+     */
+    public static final byte MAGIC = (byte) 0xCB;
+    private static final int MAX_TAG = 0xFFFF;
+
+    private final Class<T> clazz;
+    private final Gson gson;
+    private final Set<Class<?>> serializedTypes;
+    /**
+     * Codecs built so far, only used while building.
+     */
+    private final Map<Type, ValueCodec> codecs = new HashMap<>();
+    private final ObjectCodec root;
+
+    public BinaryBlobCodec(@NonNull Class<T> clazz, @NonNull Gson gson, @NonNull Set<Class<?>> serializedTypes) {
+        this.clazz = clazz;
+        this.gson = gson;
+        this.serializedTypes = serializedTypes;
+        if (!(codec(clazz) instanceof ObjectCodec objectCodec)) {
+            throw new IllegalArgumentException("%s can't be encoded by the binary codec, it needs a no-args constructor & no type parameters"
+                    .formatted(clazz.getName()));
+        }
+        this.root = objectCodec;
+        this.codecs.clear();
+    }
+
+    @Override
+    public byte @NonNull [] encode(@NonNull T t) {
+        BinaryOutput out = new BinaryOutput(256);
+        out.writeByte(MAGIC);
+        root.writeFields(out, t);
+        return out.toByteArray();
+    }
+
+    @Override
+    public @NonNull T decode(byte @NonNull [] bytes) {
+        if (bytes.length == 0 || bytes[0] != MAGIC) {
+            throw new DataPersistenceException("Failed to decode %s, the record isn't binary".formatted(clazz.getSimpleName()));
+        }
+        try {
+            T t = clazz.cast(root.newInstance());
+            root.readFields(new BinaryInput(bytes, 1), t);
+            return t;
+        } catch (RuntimeException e) {
+            throw new DataPersistenceException("Failed to decode %s".formatted(clazz.getSimpleName()), e);
+        }
+    }
+
+    private ValueCodec codec(Type type) {
+        ValueCodec codec = codecs.get(type);
+        if (codec == null) {
+            codec = createCodec(type);
+            codecs.put(type, codec);
+        }
+        return codec;
+    }
+
+    private ValueCodec createCodec(Type type) {
+        if (type instanceof WildcardType wildcard) {
+            return codec(wildcard.getUpperBounds()[0]);
+        }
+        Class<?> raw = rawType(type);
+        if (raw == null || serializedTypes.contains(raw)) {
+            return new ValueCodec.EmbeddedJsonCodec(gson, type);
+        }
+
+        if (raw == boolean.class || raw == Boolean.class) return ValueCodec.BOOLEAN;
+        if (raw == byte.class || raw == Byte.class) return ValueCodec.BYTE;
+        if (raw == short.class || raw == Short.class) return ValueCodec.SHORT;
+        if (raw == char.class || raw == Character.class) return ValueCodec.CHAR;
+        if (raw == int.class || raw == Integer.class) return ValueCodec.INT;
+        if (raw == long.class || raw == Long.class) return ValueCodec.LONG;
+        if (raw == float.class || raw == Float.class) return ValueCodec.FLOAT;
+        if (raw == double.class || raw == Double.class) return ValueCodec.DOUBLE;
+        if (raw == String.class) return ValueCodec.STRING;
+        if (raw == UUID.class) return ValueCodec.UUID_CODEC;
+        if (raw == byte[].class) return ValueCodec.BYTES;
+        if (raw.isEnum()) return new ValueCodec.EnumCodec(raw);
+
+        if (raw.isArray()) {
+            Type component = type instanceof GenericArrayType array ? array.getGenericComponentType() : raw.getComponentType();
+            return new ValueCodec.ArrayCodec(raw.getComponentType(), codec(component));
+        }
+        Type[] arguments = type instanceof ParameterizedType parameterized ? parameterized.getActualTypeArguments() : new Type[0];
+        if (Collection.class.isAssignableFrom(raw)) {
+            Supplier<Collection<Object>> factory = collectionFactory(raw);
+            if (factory == null || arguments.length != 1) return new ValueCodec.EmbeddedJsonCodec(gson, type);
+            return new ValueCodec.CollectionCodec(factory, codec(arguments[0]));
+        }
+        if (Map.class.isAssignableFrom(raw)) {
+            Supplier<Map<Object, Object>> factory = mapFactory(raw);
+            if (factory == null || arguments.length != 2) return new ValueCodec.EmbeddedJsonCodec(gson, type);
+            return new ValueCodec.MapCodec(factory, codec(arguments[0]), codec(arguments[1]));
+        }
+
+        ValueCodec object = objectCodec(raw);
+        return object != null ? object : new ValueCodec.EmbeddedJsonCodec(gson, type);
+    }
+
+    /**
+     * @return The codec of a plain class, or null if it's left to Gson
+     */
+    private ObjectCodec objectCodec(Class<?> raw) {
+        String name = raw.getName();
+        if (raw.isInterface() || Modifier.isAbstract(raw.getModifiers()) || raw.isRecord() || raw.isAnonymousClass()
+                || raw.isLocalClass() || (raw.isMemberClass() && !Modifier.isStatic(raw.getModifiers()))
+                || raw.getTypeParameters().length > 0
+                || name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.")) {
+            return null;
+        }
+
+        Constructor<?> constructor;
+        List<Field> fields = new ArrayList<>();
+        try {
+            constructor = raw.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = raw; c != null && c != Object.class; c = c.getSuperclass()) {
+                hierarchy.add(0, c);
+            }
+            for (Class<?> c : hierarchy) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    // The modifiers excluded from the Gson instance of the datasources, plus statics. That instance replaces
+                    // Gson's default exclusions so it does write statics, but they aren't state of the object & decoding
+                    // them would overwrite the shared value, so records leave them out
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || Modifier.isVolatile(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        } catch (NoSuchMethodException | InaccessibleObjectException | SecurityException e) {
+            return null;
+        }
+
+        ObjectCodec codec = new ObjectCodec(constructor);
+        codecs.put(raw, codec);
+
+        FieldCodec[] fieldCodecs = new FieldCodec[fields.size()];
+        Set<Integer> tags = new HashSet<>();
+        int next = 1;
+        for (int i = 0; i < fieldCodecs.length; i++) {
+            Field field = fields.get(i);
+            Tag pinned = field.getAnnotation(Tag.class);
+            int tag = pinned != null ? pinned.value() : next;
+            if (tag < 1 || tag > MAX_TAG) {
+                throw new IllegalArgumentException("Tag %d of %s.%s is out of range 1-%d".formatted(tag, raw.getName(), field.getName(), MAX_TAG));
+            }
+            if (!tags.add(tag)) {
+                throw new IllegalArgumentException("Tag %d of %s.%s is already used".formatted(tag, raw.getName(), field.getName()));
+            }
+            next = tag + 1;
+            fieldCodecs[i] = FieldCodec.of(tag, field, codec(field.getGenericType()));
+        }
+        codec.setFields(fieldCodecs);
+        return codec;
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class<?> c) return c;
+        if (type instanceof ParameterizedType parameterized) return (Class<?>) parameterized.getRawType();
+        if (type instanceof GenericArrayType array) {
+            Class<?> component = rawType(array.getGenericComponentType());
+            return component != null ? component.arrayType() : null;
+        }
+        return null;
+    }
+
+    /**
+     * @return The collection to read into, the same Gson would create, or null if it's left to Gson
+     */
+    private static Supplier<Collection<Object>> collectionFactory(Class<?> raw) {
+        if (raw == Collection.class || raw == List.class || raw == ArrayList.class) return ArrayList::new;
+        if (raw == Set.class || raw == LinkedHashSet.class) return LinkedHashSet::new;
+        if (raw == SortedSet.class || raw == NavigableSet.class || raw == TreeSet.class) return TreeSet::new;
+        if (raw == Queue.class || raw == Deque.class || raw == ArrayDeque.class) return ArrayDeque::new;
+        if (raw == HashSet.class) return HashSet::new;
+        if (raw == LinkedList.class) return LinkedList::new;
+        return null;
+    }
+
+    private static Supplier<Map<Object, Object>> mapFactory(Class<?> raw) {
+        if (raw == Map.class || raw == LinkedHashMap.class) return LinkedHashMap::new;
+        if (raw == HashMap.class) return HashMap::new;
+        if (raw == SortedMap.class || raw == NavigableMap.class || raw == TreeMap.class) return TreeMap::new;
+        if (raw == ConcurrentMap.class || raw == ConcurrentHashMap.class) return ConcurrentHashMap::new;
+        if (raw == ConcurrentSkipListMap.class) return ConcurrentSkipListMap::new;
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+package not.savage.cereal.internal.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads what {@link BinaryOutput} wrote. Reading past the end throws an {@link IndexOutOfBoundsException}.
+ */
+final class BinaryInput {
+
+    private final byte[] buffer;
+    private int position;
+
+    BinaryInput(byte[] buffer, int position) {
+        this.buffer = buffer;
+        this.position = position;
+    }
+
+    boolean hasRemaining() {
+        return position < buffer.length;
+    }
+
+    int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    int readSignedInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readSignedLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readFixed32() {
+        checkRemaining(4);
+        return (buffer[position++] & 0xFF)
+                | (buffer[position++] & 0xFF) << 8
+                | (buffer[position++] & 0xFF) << 16
+                | (buffer[position++] & 0xFF) << 24;
+    }
+
+    long readFixed64() {
+        return (readFixed32() & 0xFFFFFFFFL) | (long) readFixed32() << 32;
+    }
+
+    byte[] readBytes() {
+        int length = readLength();
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    String readString() {
+        int length = readLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Skip a value of the wire type, including whole groups.
+     */
+    void skip(int wireType) {
+        switch (wireType) {
+            case WireType.VARINT -> readVarLong();
+            case WireType.FIXED64 -> skipBytes(8);
+            case WireType.FIXED32 -> skipBytes(4);
+            case WireType.LENGTH -> skipBytes(readLength());
+            case WireType.GROUP -> {
+                int key;
+                while ((key = readVarInt()) != WireType.END) {
+                    skip(key & 7);
+                }
+            }
+            case WireType.NULL -> { }
+            default -> throw new IllegalStateException("Unknown wire type " + wireType);
+        }
+    }
+
+    private int readLength() {
+        int length = readVarInt();
+        checkRemaining(length);
+        return length;
+    }
+
+    private void skipBytes(int bytes) {
+        checkRemaining(bytes);
+        position += bytes;
+    }
+
+    private void checkRemaining(int bytes) {
+        if (bytes < 0 || bytes > buffer.length - position) {
+            throw new IndexOutOfBoundsException("Truncated record, %d bytes missing".formatted(bytes - (buffer.length - position)));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package not.savage.cereal.internal.codec;
+
+import java.lang.reflect.Field;
+
+/**
+ * Writes one field of an object under its tag & reads it back. Primitive fields are read & written without boxing.
+ */
+abstract class FieldCodec {
+
+    final int tag;
+    final Field field;
+
+    private FieldCodec(int tag, Field field) {
+        this.tag = tag;
+        this.field = field;
+    }
+
+    abstract void write(BinaryOutput out, Object owner) throws IllegalAccessException;
+
+    /**
+     * Read the value of the key into the field, skipping values written with another wire type.
+     */
+    abstract void read(BinaryInput in, Object owner, int wireType) throws IllegalAccessException;
+
+    /**
+     * @param codec The codec of the field type, used for non-primitive fields
+     */
+    static FieldCodec of(int tag, Field field, ValueCodec codec) {
+        Class<?> type = field.getType();
+        if (type == int.class) return new IntField(tag, field);
+        if (type == long.class) return new LongField(tag, field);
+        if (type == double.class) return new DoubleField(tag, field);
+        if (type == boolean.class) return new BooleanField(tag, field);
+        if (type.isPrimitive()) return new BoxedPrimitiveField(tag, field, codec);
+        return new ObjectField(tag, field, codec);
+    }
+
+    private static final class IntField extends FieldCodec {
+
+        private IntField(int tag, Field field) {
+            super(tag, field);
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeKey(tag, WireType.VARINT);
+            out.writeSignedInt(field.getInt(owner));
+        }
+
+        @Override
+        void read(BinaryInput in, Object owner, int wireType) throws IllegalAccessException {
+            if (wireType != WireType.VARINT) {
+                in.skip(wireType);
+                return;
+            }
+            field.setInt(owner, in.readSignedInt());
+        }
+    }
+
+    private static final class LongField extends FieldCodec {
+
+        private LongField(int tag, Field field) {
+            super(tag, field);
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeKey(tag, WireType.VARINT);
+            out.writeSignedLong(field.getLong(owner));
+        }
+
+        @Override
+        void read(BinaryInput in, Object owner, int wireType) throws IllegalAccessException {
+            if (wireType != WireType.VARINT) {
+                in.skip(wireType);
+                return;
+            }
+            field.setLong(owner, in.readSignedLong());
+        }
+    }
+
+    private static final class DoubleField extends FieldCodec {
+
+        private DoubleField(int tag, Field field) {
+            super(tag, field);
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeKey(tag, WireType.FIXED64);
+            out.writeFixed64(Double.doubleToRawLongBits(field.getDouble(owner)));
+        }
+
+        @Override
+        void read(BinaryInput in, Object owner, int wireType) throws IllegalAccessException {
+            if (wireType != WireType.FIXED64) {
+                in.skip(wireType);
+                return;
+            }
+            field.setDouble(owner, Double.longBitsToDouble(in.readFixed64()));
+        }
+    }
+
+    private static final class BooleanField extends FieldCodec {
+
+        private BooleanField(int tag, Field field) {
+            super(tag, field);
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeKey(tag, WireType.VARINT);
+            out.writeVarInt(field.getBoolean(owner) ? 1 : 0);
+        }
+
+        @Override
+        void read(BinaryInput in, Object owner, int wireType) throws IllegalAccessException {
+            if (wireType != WireType.VARINT) {
+                in.skip(wireType);
+                return;
+            }
+            field.setBoolean(owner, in.readVarInt() != 0);
+        }
+    }
+
+    /**
+     * The less common primitives (byte, short, char, float), boxed through the codec of their wrapper.
+     */
+    private static final class BoxedPrimitiveField extends FieldCodec {
+
+        private final ValueCodec codec;
+
+        private BoxedPrimitiveField(int tag, Field field, ValueCodec codec) {
+            super(tag, field);
+            this.codec = codec;
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeKey(tag, codec.wireType());
+            codec.write(out, field.get(owner));
+        }
+
+        @Override
+        void read(BinaryInput in, Object owner, int wireType) throws IllegalAccessException {
+            if (wireType != codec.wireType()) {
+                in.skip(wireType);
+                return;
+            }
+            field.set(owner, codec.read(in));
+        }
+    }
+
+    private static final class ObjectField extends FieldCodec {
+
+        private final ValueCodec codec;
+
+        private ObjectField(int tag, Field field, ValueCodec codec) {
+            super(tag, field);
+            this.codec = codec;
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            ValueCodec.writeElement(out, tag, codec, field.get(owner));
+        }
+
+        @Override
+        void read(BinaryInput in, Object owner, int wireType) throws IllegalAccessException {
+            if (wireType == WireType.NULL) {
+                field.set(owner, null);
+            } else if (wireType == codec.wireType()) {
+                field.set(owner, codec.read(in));
+            } else {
+                in.skip(wireType);
+            }
+        }
+    }
+}
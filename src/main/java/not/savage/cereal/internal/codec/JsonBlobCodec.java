@@ -0,0 +1,60 @@
+package not.savage.cereal.internal.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import lombok.NonNull;
+import not.savage.cereal.codec.BlobCodec;
+import not.savage.cereal.exception.DataPersistenceException;
+import not.savage.cereal.internal.CerealDataBlob;
+import not.savage.cereal.internal.StreamBuffers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact JSON through the Gson instance of the cache.
+ * @param <T> The type of data blob
+ */
+public class JsonBlobCodec<T extends CerealDataBlob> implements BlobCodec<T> {
+
+    private final Class<T> clazz;
+    private final Gson gson;
+
+    public JsonBlobCodec(@NonNull Class<T> clazz, @NonNull Gson gson) {
+        this.clazz = clazz;
+        this.gson = gson;
+    }
+
+    @Override
+    public byte @NonNull [] encode(@NonNull T t) {
+        try (StreamBuffers.Bytes bytes = StreamBuffers.bytes()) {
+            // A JsonWriter of our own isn't pretty printed, unlike gson.toJson(Object)
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+            gson.toJson(t, clazz, writer);
+            writer.flush();
+            // The thread's buffer saves regrowing a fresh stream per record, the codec still returns one exact copy
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public @NonNull T decode(byte @NonNull [] bytes) {
+        T t;
+        try {
+            t = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8), clazz);
+        } catch (JsonParseException e) {
+            throw new DataPersistenceException("Failed to decode %s".formatted(clazz.getSimpleName()), e);
+        }
+        if (t == null) {
+            throw new DataPersistenceException("Failed to decode %s, the record is null".formatted(clazz.getSimpleName()));
+        }
+        return t;
+    }
+}
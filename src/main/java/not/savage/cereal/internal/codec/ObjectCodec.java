@@ -0,0 +1,96 @@
+package not.savage.cereal.internal.codec;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * The fields of a class, each under its tag & closed by an {@link WireType#END} key.
+ * Built empty & given its fields afterwards, so classes referencing themselves can point at their own codec.
+ */
+final class ObjectCodec extends ValueCodec {
+
+    private final Constructor<?> constructor;
+    private FieldCodec[] fields;
+    /**
+     * The fields indexed by tag, null where a tag isn't used.
+     */
+    private FieldCodec[] byTag;
+
+    ObjectCodec(Constructor<?> constructor) {
+        this.constructor = constructor;
+    }
+
+    void setFields(FieldCodec[] fields) {
+        int maxTag = 0;
+        for (FieldCodec field : fields) {
+            maxTag = Math.max(maxTag, field.tag);
+        }
+        FieldCodec[] byTag = new FieldCodec[maxTag + 1];
+        for (FieldCodec field : fields) {
+            byTag[field.tag] = field;
+        }
+        this.fields = fields;
+        this.byTag = byTag;
+    }
+
+    @Override
+    int wireType() {
+        return WireType.GROUP;
+    }
+
+    @Override
+    void write(BinaryOutput out, Object value) {
+        writeFields(out, value);
+        out.writeVarInt(WireType.END);
+    }
+
+    @Override
+    Object read(BinaryInput in) {
+        Object value = newInstance();
+        readFields(in, value);
+        return value;
+    }
+
+    /**
+     * Write the fields without closing the group, for the top level object.
+     */
+    void writeFields(BinaryOutput out, Object value) {
+        try {
+            for (FieldCodec field : fields) {
+                field.write(out, value);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read fields into the object up to the end of the group, or the end of the input for the top level object.
+     */
+    void readFields(BinaryInput in, Object value) {
+        try {
+            while (in.hasRemaining()) {
+                int key = in.readVarInt();
+                if (key == WireType.END) return;
+
+                int tag = key >>> 3;
+                FieldCodec field = tag < byTag.length ? byTag[tag] : null;
+                if (field == null) {
+                    in.skip(key & 7);
+                } else {
+                    field.read(in, value, key & 7);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Object newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Failed to construct %s".formatted(constructor.getDeclaringClass().getName()), e);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package not.savage.cereal.internal.codec;
+
+import com.google.gson.Gson;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Encodes the non-null values of one type. Nulls are written as {@link WireType#NULL} keys by the enclosing field.
+ */
+abstract class ValueCodec {
+
+    abstract int wireType();
+
+    abstract void write(BinaryOutput out, Object value);
+
+    abstract Object read(BinaryInput in);
+
+    static final ValueCodec BOOLEAN = of(WireType.VARINT, (out, value) -> out.writeVarInt((Boolean) value ? 1 : 0), in -> in.readVarInt() != 0);
+    static final ValueCodec BYTE = of(WireType.VARINT, (out, value) -> out.writeSignedInt((Byte) value), in -> (byte) in.readSignedInt());
+    static final ValueCodec SHORT = of(WireType.VARINT, (out, value) -> out.writeSignedInt((Short) value), in -> (short) in.readSignedInt());
+    static final ValueCodec CHAR = of(WireType.VARINT, (out, value) -> out.writeVarInt((Character) value), in -> (char) in.readVarInt());
+    static final ValueCodec INT = of(WireType.VARINT, (out, value) -> out.writeSignedInt((Integer) value), BinaryInput::readSignedInt);
+    static final ValueCodec LONG = of(WireType.VARINT, (out, value) -> out.writeSignedLong((Long) value), BinaryInput::readSignedLong);
+    static final ValueCodec FLOAT = of(WireType.FIXED32, (out, value) -> out.writeFixed32(Float.floatToRawIntBits((Float) value)),
+            in -> Float.intBitsToFloat(in.readFixed32()));
+    static final ValueCodec DOUBLE = of(WireType.FIXED64, (out, value) -> out.writeFixed64(Double.doubleToRawLongBits((Double) value)),
+            in -> Double.longBitsToDouble(in.readFixed64()));
+    static final ValueCodec STRING = of(WireType.LENGTH, (out, value) -> out.writeString((String) value), BinaryInput::readString);
+    static final ValueCodec BYTES = of(WireType.LENGTH, (out, value) -> out.writeBytes((byte[]) value), BinaryInput::readBytes);
+    /**
+     * Both halves as fixed 64 bit, random UUIDs don't shrink as varints.
+     */
+    static final ValueCodec UUID_CODEC = of(WireType.LENGTH, (out, value) -> {
+        out.writeVarInt(16);
+        out.writeFixed64(((UUID) value).getMostSignificantBits());
+        out.writeFixed64(((UUID) value).getLeastSignificantBits());
+    }, in -> {
+        if (in.readVarInt() != 16) {
+            throw new IllegalStateException("Malformed UUID");
+        }
+        return new UUID(in.readFixed64(), in.readFixed64());
+    });
+
+    private static ValueCodec of(int wireType, BiConsumer<BinaryOutput, Object> writer, Function<BinaryInput, Object> reader) {
+        return new ValueCodec() {
+            @Override
+            int wireType() {
+                return wireType;
+            }
+
+            @Override
+            void write(BinaryOutput out, Object value) {
+                writer.accept(out, value);
+            }
+
+            @Override
+            Object read(BinaryInput in) {
+                return reader.apply(in);
+            }
+        };
+    }
+
+    /**
+     * By name rather than ordinal, so constants can be reordered. Unknown names read as null, like Gson does.
+     */
+    static final class EnumCodec extends ValueCodec {
+
+        private final Map<String, Object> constants = new HashMap<>();
+
+        EnumCodec(Class<?> type) {
+            for (Object constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+        }
+
+        @Override
+        int wireType() {
+            return WireType.LENGTH;
+        }
+
+        @Override
+        void write(BinaryOutput out, Object value) {
+            out.writeString(((Enum<?>) value).name());
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            return constants.get(in.readString());
+        }
+    }
+
+    /**
+     * Values Gson has to handle, such as types with a {@link not.savage.cereal.TypeSerializer}, embedded as JSON.
+     */
+    static final class EmbeddedJsonCodec extends ValueCodec {
+
+        private final Gson gson;
+        private final Type type;
+
+        EmbeddedJsonCodec(Gson gson, Type type) {
+            this.gson = gson;
+            this.type = type;
+        }
+
+        @Override
+        int wireType() {
+            return WireType.LENGTH;
+        }
+
+        @Override
+        void write(BinaryOutput out, Object value) {
+            out.writeString(gson.toJson(value, type));
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            return gson.fromJson(in.readString(), type);
+        }
+    }
+
+    /**
+     * Elements as repeated tag 1, in iteration order.
+     */
+    static final class CollectionCodec extends ValueCodec {
+
+        private final Supplier<Collection<Object>> factory;
+        private final ValueCodec element;
+
+        CollectionCodec(Supplier<Collection<Object>> factory, ValueCodec element) {
+            this.factory = factory;
+            this.element = element;
+        }
+
+        @Override
+        int wireType() {
+            return WireType.GROUP;
+        }
+
+        @Override
+        void write(BinaryOutput out, Object value) {
+            for (Object e : (Collection<?>) value) {
+                writeElement(out, 1, element, e);
+            }
+            out.writeVarInt(WireType.END);
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            Collection<Object> collection = factory.get();
+            int key;
+            while ((key = in.readVarInt()) != WireType.END) {
+                collection.add(readElement(in, key, element));
+            }
+            return collection;
+        }
+    }
+
+    /**
+     * Entries as tag 1 keys each followed by a tag 2 value.
+     */
+    static final class MapCodec extends ValueCodec {
+
+        private final Supplier<Map<Object, Object>> factory;
+        private final ValueCodec key;
+        private final ValueCodec value;
+
+        MapCodec(Supplier<Map<Object, Object>> factory, ValueCodec key, ValueCodec value) {
+            this.factory = factory;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        int wireType() {
+            return WireType.GROUP;
+        }
+
+        @Override
+        void write(BinaryOutput out, Object map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) map).entrySet()) {
+                writeElement(out, 1, key, entry.getKey());
+                writeElement(out, 2, value, entry.getValue());
+            }
+            out.writeVarInt(WireType.END);
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            Map<Object, Object> map = factory.get();
+            int k;
+            while ((k = in.readVarInt()) != WireType.END) {
+                Object entryKey = readElement(in, k, key);
+                map.put(entryKey, readElement(in, in.readVarInt(), value));
+            }
+            return map;
+        }
+    }
+
+    /**
+     * The length as tag 1, then elements as repeated tag 2, for arrays of any component type.
+     */
+    static final class ArrayCodec extends ValueCodec {
+
+        private final Class<?> component;
+        private final ValueCodec element;
+
+        ArrayCodec(Class<?> component, ValueCodec element) {
+            this.component = component;
+            this.element = element;
+        }
+
+        @Override
+        int wireType() {
+            return WireType.GROUP;
+        }
+
+        @Override
+        void write(BinaryOutput out, Object value) {
+            int length = Array.getLength(value);
+            out.writeKey(1, WireType.VARINT);
+            out.writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                writeElement(out, 2, element, Array.get(value, i));
+            }
+            out.writeVarInt(WireType.END);
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            int key = in.readVarInt();
+            if (key != (1 << 3 | WireType.VARINT)) {
+                throw new IllegalStateException("Array without a length");
+            }
+            Object array = Array.newInstance(component, in.readVarInt());
+            int i = 0;
+            while ((key = in.readVarInt()) != WireType.END) {
+                Object e = readElement(in, key, element);
+                if (e != null || !component.isPrimitive()) {
+                    Array.set(array, i, e);
+                }
+                i++;
+            }
+            return array;
+        }
+    }
+
+    static void writeElement(BinaryOutput out, int tag, ValueCodec codec, Object value) {
+        if (value == null) {
+            out.writeKey(tag, WireType.NULL);
+            return;
+        }
+        out.writeKey(tag, codec.wireType());
+        codec.write(out, value);
+    }
+
+    /**
+     * @return The element, or null if it was null or written with another wire type
+     */
+    static Object readElement(BinaryInput in, int key, ValueCodec codec) {
+        int wireType = key & 7;
+        if (wireType == codec.wireType()) {
+            return codec.read(in);
+        }
+        in.skip(wireType);
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package not.savage.cereal.internal.codec;
+
+/**
+ * Wire types of the binary codec, stored in the low 3 bits of every field key so unknown fields can be skipped.
+ */
+final class WireType {
+
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    /**
+     * Length prefixed bytes, strings & values embedded as JSON.
+     */
+    static final int LENGTH = 2;
+    /**
+     * Nested fields or elements, closed by an {@link #END} key.
+     */
+    static final int GROUP = 3;
+    /**
+     * An explicit null, without a value.
+     */
+    static final int NULL = 4;
+    static final int FIXED32 = 5;
+
+    /**
+     * Key closing a group, tag 0 is never used by a field.
+     */
+    static final int END = 0;
+
+    private WireType() {
+    }
+}
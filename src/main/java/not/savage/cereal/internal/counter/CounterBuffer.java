@@ -0,0 +1,129 @@
+package not.savage.cereal.internal.counter;
+
+import lombok.NonNull;
+import not.savage.cereal.annotation.Counter;
+import not.savage.cereal.internal.FieldPaths;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-combining buffer for {@link Counter} increments.
+ * Deltas are accumulated locally in {@link LongAdder}s (striped internally, so hot counters don't contend)
+ * & drained periodically into a single batch of backend increments.
+ */
+public final class CounterBuffer {
+
+    private static final ClassValue<Set<String>> COUNTER_FIELDS = new ClassValue<>() {
+        @Override
+        protected Set<String> computeValue(Class<?> type) {
+            Set<String> fields = new HashSet<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(Counter.class) && !Modifier.isStatic(field.getModifiers())) {
+                        fields.add(field.getName());
+                    }
+                }
+            }
+            return Collections.unmodifiableSet(fields);
+        }
+    };
+
+    private record Key(UUID identifier, String field) { }
+
+    private final ConcurrentHashMap<Key, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Get the names of all fields annotated with {@link Counter} in the class or its super classes.
+     * @param clazz The data blob class
+     * @return The counter field names
+     */
+    public static @NonNull Set<String> getCounterFields(@NonNull Class<?> clazz) {
+        return COUNTER_FIELDS.get(clazz);
+    }
+
+    /**
+     * Add a delta to a counter.
+     * @param identifier The identifier of the object
+     * @param field The counter field
+     * @param delta The amount to add, can be negative
+     */
+    public void increment(@NonNull UUID identifier, @NonNull String field, long delta) {
+        Key key = new Key(identifier, field);
+        LongAdder adder = counters.computeIfAbsent(key, k -> new LongAdder());
+        adder.add(delta);
+        if (counters.get(key) != adder) {
+            // Pruned by drain() while we were adding, move whatever landed on the orphaned adder to the live one.
+            long orphaned = adder.sumThenReset();
+            if (orphaned != 0) {
+                increment(identifier, field, orphaned);
+            }
+        }
+    }
+
+    /**
+     * Take all pending deltas, resetting them to 0. Idle counters are pruned.
+     * @return Pending deltas by identifier, then field. Empty if nothing is pending.
+     */
+    public @NonNull Map<UUID, Map<String, Long>> drain() {
+        Map<UUID, Map<String, Long>> drained = new HashMap<>();
+        for (Map.Entry<Key, LongAdder> entry : counters.entrySet()) {
+            Key key = entry.getKey();
+            long delta = entry.getValue().sumThenReset();
+            if (delta == 0 && counters.remove(key, entry.getValue())) {
+                // Catch anything added between the reset & the removal
+                delta = entry.getValue().sumThenReset();
+            }
+            if (delta != 0) {
+                drained.computeIfAbsent(key.identifier(), k -> new HashMap<>()).merge(key.field(), delta, Long::sum);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Put drained deltas back, used when a flush fails so no increments are lost.
+     * @param deltas The deltas returned by {@link #drain()}
+     */
+    public void restore(@NonNull Map<UUID, Map<String, Long>> deltas) {
+        deltas.forEach((identifier, fields) -> fields.forEach((field, delta) -> increment(identifier, field, delta)));
+    }
+
+    /**
+     * Apply a delta directly to the counter field of an in-memory object.
+     * @param target The object to update
+     * @param field The counter field
+     * @param delta The amount to add
+     */
+    public static void apply(@NonNull Object target, @NonNull String field, long delta) {
+        synchronized (target) {
+            try {
+                Field f = FieldPaths.findField(target.getClass(), field).orElseThrow(() ->
+                        new IllegalArgumentException("Counter field %s not found in %s".formatted(field, target.getClass().getName())));
+                Class<?> type = f.getType();
+                Object current = f.get(target);
+                long value = current == null ? 0 : ((Number) current).longValue();
+                if (type == long.class || type == Long.class) {
+                    f.set(target, value + delta);
+                } else if (type == int.class || type == Integer.class) {
+                    f.set(target, (int) (value + delta));
+                } else if (type == short.class || type == Short.class) {
+                    f.set(target, (short) (value + delta));
+                } else if (type == byte.class || type == Byte.class) {
+                    f.set(target, (byte) (value + delta));
+                } else if (type == double.class || type == Double.class) {
+                    f.set(target, ((Number) (current == null ? 0D : current)).doubleValue() + delta);
+                } else if (type == float.class || type == Float.class) {
+                    f.set(target, ((Number) (current == null ? 0F : current)).floatValue() + delta);
+                } else {
+                    throw new IllegalArgumentException("Counter field %s in %s isn't numeric".formatted(field, target.getClass().getName()));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Failed to update counter field %s in %s".formatted(field, target.getClass().getName()), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package not.savage.cereal.internal.platform.file;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Crash-safe file replacement, a file is either fully the old or fully the new contents after a crash.
+ */
+final class AtomicFiles {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private AtomicFiles() {}
+
+    /**
+     * Writes the new contents of a file.
+     */
+    @FunctionalInterface
+    interface Contents {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Stream the contents to a temp file next to the target, force it to disk & rename it over the target.
+     * @param target The file to replace
+     * @param contents Writes the new contents, the stream is buffered & mustn't be closed
+     */
+    static void write(File target, Contents contents) throws IOException {
+        write(target, contents, () -> true);
+    }
+
+    /**
+     * Stream the contents to a temp file next to the target, then only replace the target if they changed,
+     * otherwise the temp file is deleted. Lets the contents be compared while they're streamed, e.g. by their hash.
+     * @param target The file to replace
+     * @param contents Writes the new contents, the stream is buffered & mustn't be closed
+     * @param changed Whether the contents written differ from the target, asked once they're written
+     * @return true if the target was replaced
+     */
+    static boolean write(File target, Contents contents, BooleanSupplier changed) throws IOException {
+        File temp = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".tmp");
+        boolean replace;
+        try (FileChannel channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            contents.writeTo(out);
+            out.flush();
+            replace = changed.getAsBoolean();
+            if (replace) {
+                channel.force(true);
+            }
+        } catch (IOException er) {
+            Files.deleteIfExists(temp.toPath());
+            throw er;
+        }
+        if (!replace) {
+            Files.deleteIfExists(temp.toPath());
+            return false;
+        }
+
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException er) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.getAbsoluteFile().getParentFile());
+        return true;
+    }
+
+    /**
+     * Force a rename into the directory entry, otherwise a crash could still bring back the old file.
+     * Not supported on every platform, where the rename itself is still atomic.
+     * @return false if the directory couldn't be synced
+     */
+    static boolean syncDirectory(File directory) {
+        try (FileChannel dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+            return true;
+        } catch (IOException er) {
+            return false;
+        }
+    }
+}
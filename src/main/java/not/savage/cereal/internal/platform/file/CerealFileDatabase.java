@@ -3,6 +3,7 @@ package not.savage.cereal.internal.platform.file;
 import lombok.Getter;
 import not.savage.cereal.CerealLogger;
 import not.savage.cereal.config.CerealConfig;
+import not.savage.cereal.config.sub.FileEngine;
 import not.savage.cereal.exception.CacheInstantiationException;
 import not.savage.cereal.exception.DatasourceException;
 import not.savage.cereal.internal.CerealCache;
@@ -11,21 +12,49 @@ import not.savage.cereal.internal.CerealDatabase;
 import not.savage.cereal.internal.CerealDatasource;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Flat file implementation of CerealDatabase for CerealDataObjects
- * Serializes data to a json string & saves it to a file.
+ * Serializes data to a json string & saves it to a file, or appends it to a log with {@link FileEngine#LOG},
+ * or to memory-mapped segments with {@link FileEngine#SEGMENT}.
  */
 @Getter
 public class CerealFileDatabase extends CerealDatabase implements CerealLogger {
 
+    /**
+     * Logs of the started caches, closed on shutdown.
+     */
+    private final List<LogStore> logs = new ArrayList<>();
+    /**
+     * Segment stores of the started caches, closed on shutdown.
+     */
+    private final List<SegmentStore> segments = new ArrayList<>();
+    /**
+     * Runs log & segment compactions in the background, one at a time.
+     */
+    private ExecutorService compactor;
+    /**
+     * Writes JSON snapshots in the background, one at a time.
+     */
+    private ExecutorService snapshotter;
+
     public CerealFileDatabase(CerealConfig config) {
         super(config);
     }
 
     @Override
     public boolean start() {
-        // Files have no start up requirements
+        if (getConfig().getFileConfig().getEngine() != FileEngine.JSON) {
+            this.compactor = Executors.newSingleThreadExecutor();
+        } else {
+            this.snapshotter = Executors.newSingleThreadExecutor();
+        }
         return true;
     }
 
@@ -33,7 +62,28 @@ public class CerealFileDatabase extends CerealDatabase implements CerealLogger {
     public void shutdown() {
         // Save all data
         debug("Shutting down database...");
-        this.loadedCaches.values().forEach(CerealCache::saveAll);
+        this.loadedCaches.values().forEach(CerealCache::shutdown);
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+        }
+        if (compactor == null) return;
+
+        compactor.shutdown();
+        try {
+            if (!compactor.awaitTermination(30, TimeUnit.SECONDS)) {
+                error("Timed out waiting for compaction to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LogStore log : logs) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                error("Failed to close log %s", e, log.getFile().getName());
+            }
+        }
+        segments.forEach(SegmentStore::close);
     }
 
     @Override
@@ -44,11 +94,36 @@ public class CerealFileDatabase extends CerealDatabase implements CerealLogger {
         File file = getFilePath(cacheClass);
         // The mapped data folder - depends on bukkit atm :fat:
         File mapped = new File(file.getName());
-        CerealDatasource<V> source = new CerealFileDatasource<>(dataObjectClass, mapped, this, getSerializers(cacheClass));
+        CerealDatasource<V> source;
+        switch (getConfig().getFileConfig().getEngine()) {
+            case LOG -> {
+                LogStore log = new LogStore(new File(baseName(mapped.getName()) + ".log"), getConfig().getFileConfig(), compactor);
+                logs.add(log);
+                source = new CerealFileDatasource<>(dataObjectClass, mapped, log, this, getSerializers(cacheClass),
+                        getCompressor(cacheClass, dataObjectClass), getCodec(cacheClass));
+            }
+            case SEGMENT -> {
+                SegmentStore store = new SegmentStore(new File(baseName(mapped.getName()) + ".segments"), getConfig().getFileConfig(), compactor);
+                segments.add(store);
+                source = new CerealSegmentDatasource<>(dataObjectClass, mapped, store, this, getSerializers(cacheClass),
+                        getCompressor(cacheClass, dataObjectClass), getCodec(cacheClass));
+            }
+            default -> source = new CerealFileDatasource<>(dataObjectClass, mapped, null, this, getSerializers(cacheClass),
+                        getCompressor(cacheClass, dataObjectClass), getCodec(cacheClass));
+        }
+        source.setInterner(getInterner(cacheClass));
         source.start();
         CerealCache<V> cache = createNewCacheInstance(cacheClass);
         cache.setDependencies(source, getConfig());
         return cache;
     }
+
+    /**
+     * The file name of a cache without its extension, e.g. "guilds" for "guilds.json".
+     */
+    static String baseName(String fileName) {
+        int extension = fileName.lastIndexOf('.');
+        return extension > 0 ? fileName.substring(0, extension) : fileName;
+    }
 }
 
@@ -1,51 +1,112 @@
 package not.savage.cereal.internal.platform.file;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
 import lombok.NonNull;
 import not.savage.cereal.CerealLogger;
+import not.savage.cereal.IncrementResult;
+import not.savage.cereal.Projection;
 import not.savage.cereal.TypeSerializer;
+import not.savage.cereal.codec.BlobCodec;
+import not.savage.cereal.codec.BlobCodecFactory;
+import not.savage.cereal.exception.DataPersistenceException;
 import not.savage.cereal.exception.DatasourceException;
+import not.savage.cereal.internal.BlobCompressor;
 import not.savage.cereal.internal.CerealDataBlob;
 import not.savage.cereal.internal.CerealDatabase;
 import not.savage.cereal.internal.CerealDatasource;
+import not.savage.cereal.internal.counter.CounterBuffer;
 import not.savage.cereal.sort.CerealFilterMode;
 import not.savage.cereal.sort.CerealSortMode;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Field;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
 
 public class CerealFileDatasource<T extends CerealDataBlob> extends CerealDatasource<T> implements CerealLogger {
 
-    // One file to store all data.
-    private final File file;
-    private final Class<T> clazz;
+    // One file to store all data, or the legacy file when the cache is split into several shard files, renamed once split.
+    protected final File file;
+    /**
+     * The log of the cache with {@link not.savage.cereal.config.sub.FileEngine#LOG}, null when JSON files are used.
+     */
+    private final LogStore log;
 
-    // In memory cache of data from the file
-    private final HashMap<UUID, T> datastore = new HashMap<>();
-    private Gson gson;
-    private final Type type;
+    // In memory cache of data from the file(s), split by key so concurrent access doesn't contend on one lock
+    private final List<FileShard<T>> shards;
+    /**
+     * Runs JSON snapshots in the background, created on start. Null when the datasource persists to a log instead.
+     */
+    private SnapshotCoalescer snapshots;
+    /**
+     * Compresses shard files & log records of a {@link not.savage.cereal.annotation.Compressed} cache, otherwise null.
+     */
+    protected final BlobCompressor compressor;
+    /**
+     * Creates the codec of log & segment records, see {@link not.savage.cereal.annotation.Codec}.
+     */
+    private final BlobCodecFactory codecs;
+    private final Set<Class<?>> serializedTypes = new HashSet<>();
+    protected BlobCodec<T> codec;
 
-    public CerealFileDatasource( Class<T> clazz, File file, CerealDatabase database, TypeSerializer<?>[] serializers) {
-        super(database);
+    public CerealFileDatasource(Class<T> clazz, File file, LogStore log, CerealDatabase database, TypeSerializer<?>[] serializers,
+                                BlobCompressor compressor, BlobCodecFactory codecs) {
+        super(clazz, database);
         this.file = file;
+        this.log = log;
+        this.compressor = compressor;
+        this.codecs = codecs;
         this.database = database;
-        this.clazz = clazz;
-        this.type = TypeToken.getParameterized(Map.class, UUID.class, clazz).getType();
+
+        int count = database.getConfig().getFileConfig().getShards();
+        this.shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            this.shards.add(new FileShard<>(log != null ? null : count == 1 ? file : new File(shardDirectory(), "%03d.json".formatted(i))));
+        }
 
         for (TypeSerializer<?> serializer : serializers) {
             this.builder.registerTypeAdapter(getTypeClass(serializer), serializer);
+            this.serializedTypes.add(getTypeClass(serializer));
         }
     }
 
-    public void start() throws DatasourceException {
-        debug("Starting file datasource for %s", file.getAbsolutePath());
+    /**
+     * Create the Gson instance & the record codec, which may depend on it.
+     */
+    protected void createCodec() {
         this.gson = builder.create();
+        this.codec = codecs.create(clazz, gson, serializedTypes);
+    }
+
+    public void start() throws DatasourceException {
+        debug("Starting file datasource for %s", log != null ? log.getFile().getAbsolutePath() : file.getAbsolutePath());
+        createCodec();
+        if (log != null) {
+            startLog();
+            return;
+        }
+        if (database instanceof CerealFileDatabase fileDatabase && fileDatabase.getSnapshotter() != null) {
+            this.snapshots = new SnapshotCoalescer(this::saveShards, fileDatabase.getSnapshotter());
+        }
+        if (shards.size() > 1 || shardDirectory().isDirectory()) {
+            startShards();
+            return;
+        }
 
         // try try try
         if (!file.exists()) {
@@ -63,68 +124,426 @@ public class CerealFileDatasource<T extends CerealDataBlob> extends CerealDataso
                 throw new DatasourceException("Failed to write to file %s".formatted(file.getAbsolutePath()), e);
             }
         } else {
+            readInto(file);
+        }
+    }
 
-            // Load data from file
-            String readData = null;
+    /**
+     * Read every shard file. If there are none yet but the cache still has its single JSON file, that file is split into
+     * the shards & renamed to "*.json.bak" once they're written. Objects which are read from another shard's file, after
+     * the shard count was changed, are moved & the shards rewritten right away. Going back to a single shard merges the
+     * shard files back into the single JSON file & removes the shard directory.
+     */
+    private void startShards() throws DatasourceException {
+        File directory = shardDirectory();
+        List<File> sources = jsonFiles();
+        if (shards.size() > 1 && !directory.isDirectory()) {
+            if (!directory.mkdirs()) {
+                throw new DatasourceException("Failed to create shard directory %s".formatted(directory.getAbsolutePath()));
+            }
+            if (!sources.isEmpty()) {
+                log("Splitting %s into %d shards in %s", file.getName(), shards.size(), directory.getName());
+            }
+        }
+
+        boolean moved = false;
+        for (File source : sources) {
+            moved |= readInto(source);
+        }
+        for (FileShard<T> shard : shards) {
+            if (!shard.getFile().exists()) shard.markDirty();
+        }
+        if (moved) {
             try {
-                readData = Files.readString(file.toPath());
-            } catch (IOException e) {
-                throw new DatasourceException("Failed to read data from file: %s".formatted(file.getName()), e);
+                saveShards();
+            } catch (DataPersistenceException e) {
+                throw new DatasourceException("Failed to move objects into shards of %s".formatted(file.getName()), e);
             }
+        }
 
-            if (readData == null || readData.isEmpty()) return;
-            debug("Data Type Token: %s", type.getTypeName());
-            HashMap<UUID, T> data = gson.fromJson(readData, type);
-            if (data != null) {
-                data.values().forEach(CerealDataBlob::load);
-                datastore.putAll(data);
+        // Every object is in the shards now, so files which aren't a shard's can't be loaded again by mistake
+        for (File source : sources) {
+            if (shards.stream().anyMatch(shard -> shard.getFile().equals(source))) continue;
+            if (source.equals(file)) {
+                File backup = new File(file.getParentFile(), file.getName() + ".bak");
+                if (!file.renameTo(backup)) {
+                    error("Failed to rename split file %s to %s".formatted(file.getAbsolutePath(), backup.getName()));
+                }
+            } else if (!source.delete()) {
+                error("Failed to delete stale shard file %s".formatted(source.getAbsolutePath()));
             }
         }
+        if (shards.size() == 1 && directory.isDirectory() && !directory.delete()) {
+            error("Failed to delete shard directory %s".formatted(directory.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * The JSON files holding the objects of the cache, read on start or imported by the other engines.
+     * @return The shard files if the cache was split into shards, otherwise its single JSON file if it has one
+     */
+    protected List<File> jsonFiles() {
+        File[] files = shardDirectory().listFiles((dir, name) -> name.endsWith(".json"));
+        if (files != null && files.length > 0) {
+            Arrays.sort(files);
+            return Arrays.asList(files);
+        }
+        return file.exists() && file.length() > 0 ? List.of(file) : List.of();
+    }
+
+    /**
+     * Load a JSON file into the shards its objects belong to.
+     * @return true if any object belongs to a shard other than the one of the file
+     */
+    private boolean readInto(File source) throws DatasourceException {
+        // Load data from file
+        AtomicBoolean moved = new AtomicBoolean();
+        try {
+            new JsonFileLoader<>(gson, clazz).load(source, (key, t) -> {
+                t.load();
+                FileShard<T> shard = shard(key);
+                shard.load(key, t);
+                if (!source.equals(shard.getFile())) {
+                    shard.markDirty();
+                    moved.set(true);
+                }
+            });
+        } catch (IOException | JsonParseException e) {
+            throw new DatasourceException("Failed to read data from file: %s".formatted(source.getName()), e);
+        }
+        return moved.get();
+    }
+
+    /**
+     * Replay the log into the datastore. If the log is new but the cache still has JSON files, they're imported.
+     */
+    private void startLog() throws DatasourceException {
+        try {
+            log.open();
+            List<File> imports = log.isEmpty() ? jsonFiles() : List.of();
+            if (!imports.isEmpty()) {
+                for (File source : imports) {
+                    log("Importing %s into log %s", source.getName(), log.getFile().getName());
+                    new JsonFileLoader<>(gson, clazz).load(source, (key, t) -> {
+                        try {
+                            log.put(key, serialize(t));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        t.load();
+                        shard(key).load(key, t);
+                    });
+                }
+                log.sync();
+                return;
+            }
+
+            log.forEach((key, payload) -> {
+                T t = deserialize(payload);
+                t.load();
+                shard(key).load(key, t);
+            });
+        } catch (IOException | UncheckedIOException | JsonParseException | DataPersistenceException e) {
+            throw new DatasourceException("Failed to open log %s".formatted(log.getFile().getAbsolutePath()), e);
+        }
+    }
+
+    /**
+     * The directory holding the shard files of a cache split into several shards, e.g. "guilds.shards" for "guilds.json".
+     */
+    private File shardDirectory() {
+        return new File(file.getParentFile(), CerealFileDatabase.baseName(file.getName()) + ".shards");
+    }
+
+    /**
+     * @return The shard holding the object with this key
+     */
+    private FileShard<T> shard(UUID key) {
+        return shards.get(Math.floorMod(key.hashCode(), shards.size()));
+    }
+
+    /**
+     * Encode an object into a log record payload with the codec of the cache, deflated if the cache is compressed.
+     */
+    protected byte[] serialize(T t) {
+        byte[] bytes = codec.encode(t);
+        return compressor != null ? compressor.compress(bytes) : bytes;
+    }
+
+    /**
+     * Decode a log record payload written by {@link #serialize(CerealDataBlob)}.
+     * Deflated & plain payloads are both read, as are JSON payloads whatever the codec, so records written before
+     * a cache was (un)compressed or switched codec still load.
+     */
+    protected T deserialize(byte[] payload) {
+        if (BlobCompressor.isCompressed(payload)) {
+            payload = BlobCompressor.decompress(payload);
+        }
+        if (payload.length > 0 && payload[0] == '{') {
+            return gson.fromJson(new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8), clazz);
+        }
+        return codec.decode(payload);
     }
 
     @Override
     public void save(@NonNull T t) {
         debug("Saving object with key \"%s\" to file datasource", t.getIdentifier());
+        FileShard<T> shard = shard(t.getIdentifier());
+        if (log != null) {
+            // Appended right away, but only forced to disk by the next saveAll like every other change
+            shard.put(t.getIdentifier(), t);
+            t.lastSaved();
+            try {
+                log.put(t.getIdentifier(), serialize(t));
+            } catch (IOException e) {
+                error("Failed to append object with key \"%s\" to log %s", e, t.getIdentifier(), log.getFile().getName());
+            }
+            return;
+        }
         // Shouldn't do anything unless the object isn't already in the datastore as the dataobject is loaded into memory & passed around.
-        if (datastore.containsKey(t.getIdentifier())) {
+        if (shard.get(t.getIdentifier()) != null) {
             t.lastSaved(); // Keep consistency with other datasources
             return;
         }
-        datastore.put(t.getIdentifier(), t);
+        shard.put(t.getIdentifier(), t);
+    }
+
+    @Override
+    public void saveFields(@NonNull T t, @NonNull String... fields) {
+        // The whole shard is written on saveAll, so there's nothing to gain from a partial write here.
+        save(t);
+    }
+
+    @Override
+    public @NonNull IncrementResult<UUID> incrementAll(@NonNull Map<UUID, Map<String, Long>> deltas, @NonNull Set<UUID> creatable) {
+        Set<UUID> missing = new HashSet<>();
+        deltas.forEach((key, fields) -> {
+            T t = lookup(key);
+            if (t == null) {
+                missing.add(key);
+                return;
+            }
+            fields.forEach((field, delta) -> CounterBuffer.apply(t, field, delta));
+            if (log != null) {
+                // Appended by the next flush
+                t.markDirty(fields.keySet().toArray(String[]::new));
+            }
+        });
+        return new IncrementResult<>(missing, Set.of());
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return true;
     }
 
     @Override
     public void saveAll(@NonNull Set<T> t) {
+        if (log != null) {
+            saveAllToLog();
+            return;
+        }
         try {
-            debug("Saving all data to file: %s", file.getName());
-            datastore.values().forEach(CerealDataBlob::lastSaved);
-            Files.write(file.toPath(), gson.toJson(datastore).getBytes());
+            saveAllAsync(t).join();
+        } catch (CompletionException e) {
+            error("Failed to save data to file: %s", e.getCause(), file.getName());
+        }
+    }
+
+    /**
+     * With JSON files, the snapshot is written on the database's snapshot thread & snapshots requested
+     * while one is being written are coalesced into the next one.
+     */
+    @Override
+    public @NonNull CompletableFuture<Void> saveAllAsync(@NonNull Set<T> t) {
+        if (snapshots == null) {
+            return super.saveAllAsync(t);
+        }
+        debug("Requesting snapshot of %d shard(s) of %s", shards.size(), file.getName());
+        return snapshots.request();
+    }
+
+    /**
+     * Write every shard which changed since it was last written, in parallel.
+     * Objects are changed in place, so each shard is serialized & compared against what was last written.
+     * @throws DataPersistenceException if any shard failed to be written, the others are still written
+     */
+    private void saveShards() {
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>(shards.size());
+        for (FileShard<T> shard : shards) {
+            writes.add(CompletableFuture.supplyAsync(() -> writeShard(shard)));
+        }
+
+        int written = 0;
+        int failed = 0;
+        for (int i = 0; i < writes.size(); i++) {
+            try {
+                if (writes.get(i).join()) {
+                    written++;
+                }
+            } catch (CompletionException e) {
+                error("Failed to save data to file: %s", e.getCause(), shards.get(i).getFile().getName());
+                failed++;
+            }
+        }
+        debug("Wrote %d of %d shard(s) of %s", written, shards.size(), file.getName());
+        if (failed > 0) {
+            throw new DataPersistenceException("Failed to write %d of %d shard(s) of %s".formatted(failed, shards.size(), file.getName()));
+        }
+    }
+
+    /**
+     * Serialize the shard into the stream, pretty printed like the datasource's Gson, or compact if it's gzipped.
+     * @return The hash of the JSON
+     */
+    private long writeJson(HashMap<UUID, T> view, OutputStream out) throws IOException {
+        HashingOutputStream hashing = new HashingOutputStream(out);
+        Writer writer = new OutputStreamWriter(hashing, StandardCharsets.UTF_8);
+        JsonWriter json = compressor != null ? new JsonWriter(writer) : gson.newJsonWriter(writer);
+        gson.toJson(view, view.getClass(), json);
+        json.flush();
+        return hashing.getHash();
+    }
+
+    /**
+     * The shard is copied under its lock & serialized from the copy, so writers only wait for the copy.
+     * The copy is streamed to a temp file while it's hashed, so the JSON of the shard is never held in memory.
+     * The temp file is renamed over the shard file, a crash leaves either the old or the new shard, or deleted if
+     * the hash matches what was last written. Shards of a compressed cache are written as gzip of the compact JSON.
+     * @return true if the shard was written, false if it was unchanged
+     */
+    private boolean writeShard(FileShard<T> shard) {
+        boolean dirty = shard.clearDirty();
+        HashMap<UUID, T> view;
+        shard.getLock().readLock().lock();
+        try {
+            view = new HashMap<>(shard.getData());
+        } finally {
+            shard.getLock().readLock().unlock();
+        }
+        view.values().forEach(CerealDataBlob::lastSaved);
+
+        try {
+            long[] hash = new long[1];
+            boolean written = AtomicFiles.write(shard.getFile(), out -> {
+                if (compressor == null) {
+                    hash[0] = writeJson(view, out);
+                    return;
+                }
+                GZIPOutputStream gzip = new GZIPOutputStream(out, 8192) {
+                    {
+                        def.setLevel(compressor.getLevel());
+                    }
+                };
+                hash[0] = writeJson(view, gzip);
+                // Writes the trailer & ends the deflater, without closing the file
+                gzip.finish();
+            }, () -> dirty || hash[0] != shard.getWrittenHash());
+            if (written) {
+                shard.setWrittenHash(hash[0]);
+            }
+            return written;
+        } catch (IOException e) {
+            shard.markDirty();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Saves are appended right away, so only objects with fields marked by {@link CerealDataBlob#markDirty(String...)}
+     * since are serialized & appended, a flush costs what changed rather than the size of the cache.
+     */
+    private void saveAllToLog() {
+        debug("Saving all data to log: %s", log.getFile().getName());
+        int appended = 0;
+        try {
+            for (T t : values()) {
+                if (!t.isDirty()) continue;
+                Set<String> dirty = t.drainDirtyFields();
+                t.lastSaved();
+                try {
+                    if (log.put(t.getIdentifier(), serialize(t))) {
+                        appended++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Appended by the next flush instead
+                    t.markDirty(dirty.toArray(String[]::new));
+                    throw e;
+                }
+            }
+            log.sync();
+            debug("Appended %d objects to log %s", appended, log.getFile().getName());
         } catch (Exception e) {
+            error("Failed to save data to log: %s", e, log.getFile().getName());
+        }
+    }
+
+    /**
+     * @param key The key of the object
+     * @return The stored object, or null if there's none
+     */
+    protected T lookup(@NonNull UUID key) {
+        return shard(key).get(key);
+    }
 
-            error("Failed to save data to file: %s", e, file.getName());
+    /**
+     * @return A snapshot of every stored object, which queries are evaluated against
+     */
+    protected Collection<T> values() {
+        List<T> values = new ArrayList<>();
+        for (FileShard<T> shard : shards) {
+            shard.getLock().readLock().lock();
+            try {
+                values.addAll(shard.getData().values());
+            } finally {
+                shard.getLock().readLock().unlock();
+            }
         }
+        return values;
     }
 
     @Override
     public @NonNull Optional<T> get(@NonNull UUID key) {
-        return Optional.ofNullable(datastore.get(key));
+        return Optional.ofNullable(lookup(key));
     }
 
     @Override
     public @NonNull Set<T> getAll() {
-        return new HashSet<>(datastore.values());
+        return new HashSet<>(values());
     }
 
     @Override
     public @NonNull Optional<T> getByField(@NonNull String field, @NonNull Object value) {
-        return this.datastore.values().stream().filter(getFieldAccessor(field, value)).findFirst();
+        return values().stream().filter(getFieldAccessor(field, value)).findFirst();
     }
 
     @Override
     public @NonNull Set<T> getAllByField(String field, Object value, int limit) {
-        return this.datastore.values().stream()
+        return values().stream()
+                .filter(getFieldAccessor(field, value))
+                .limit(limit == -1 ? Integer.MAX_VALUE : limit)
+                .collect(HashSet::new, HashSet::add, HashSet::addAll);
+    }
+
+    // Objects are already held in memory in flat file mode, so projections only serialize the selected fields.
+    @Override
+    public @NonNull Optional<Projection<UUID>> getProjected(@NonNull UUID key, @NonNull String... fields) {
+        return get(key).map(t -> project(t, fields));
+    }
+
+    @Override
+    public @NonNull Set<Projection<UUID>> getAllProjected(@NonNull String... fields) {
+        return values().stream()
+                .map(t -> project(t, fields))
+                .collect(HashSet::new, HashSet::add, HashSet::addAll);
+    }
+
+    @Override
+    public @NonNull Set<Projection<UUID>> getAllByFieldProjected(@NonNull String field, @NonNull Object value, int limit, @NonNull String... fields) {
+        return values().stream()
                 .filter(getFieldAccessor(field, value))
                 .limit(limit == -1 ? Integer.MAX_VALUE : limit)
+                .map(t -> project(t, fields))
                 .collect(HashSet::new, HashSet::add, HashSet::addAll);
     }
 
@@ -135,7 +554,7 @@ public class CerealFileDatasource<T extends CerealDataBlob> extends CerealDataso
             CerealSortMode sortMode, String sortByField,
             int limit) {
 
-        return this.datastore.values().stream()
+        return values().stream()
                 .filter(getFieldAccessor(filterByField, filterFor))
                 .limit(limit == -1 ? Integer.MAX_VALUE : limit)
                 .sorted((o1, o2) -> {
@@ -162,7 +581,13 @@ public class CerealFileDatasource<T extends CerealDataBlob> extends CerealDataso
     @Override
     public void delete(@NonNull T t) {
         debug("Deleting object with key \"%s\" from file datasource", t.getIdentifier());
-        datastore.remove(t.getIdentifier(), t);
+        if (shard(t.getIdentifier()).remove(t.getIdentifier(), t) && log != null) {
+            try {
+                log.delete(t.getIdentifier());
+            } catch (IOException e) {
+                error("Failed to append delete of \"%s\" to log %s", e, t.getIdentifier(), log.getFile().getName());
+            }
+        }
     }
 
     private Predicate<T> getFieldAccessor(String field, Object value) {
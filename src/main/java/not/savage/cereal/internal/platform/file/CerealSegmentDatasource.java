@@ -0,0 +1,211 @@
+package not.savage.cereal.internal.platform.file;
+
+import com.google.gson.JsonParseException;
+import lombok.NonNull;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.TypeSerializer;
+import not.savage.cereal.codec.BlobCodecFactory;
+import not.savage.cereal.exception.DatasourceException;
+import not.savage.cereal.internal.BlobCompressor;
+import not.savage.cereal.internal.CerealDataBlob;
+import not.savage.cereal.internal.CerealDatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * File datasource backed by a {@link SegmentStore}, for {@link not.savage.cereal.config.sub.FileEngine#SEGMENT}.
+ * Objects are deserialized the first time they're read & kept from then on, objects which were never read stay in
+ * the mapped segments. Only read objects can have changed, so saveAll only serializes those.
+ * Queries over all objects (getAll, getByField, ...) still deserialize every object they scan, but those which were
+ * never read are dropped again once the query is done with them rather than kept.
+ * @param <T> The type of data blob
+ */
+public class CerealSegmentDatasource<T extends CerealDataBlob> extends CerealFileDatasource<T> implements CerealLogger {
+
+    private final SegmentStore store;
+    /**
+     * Objects deserialized so far.
+     */
+    private final ConcurrentHashMap<UUID, T> loaded = new ConcurrentHashMap<>();
+    /**
+     * Payload hash of the latest stored record of each loaded object, so unchanged objects aren't appended again.
+     */
+    private final ConcurrentHashMap<UUID, Long> stored = new ConcurrentHashMap<>();
+
+    public CerealSegmentDatasource(Class<T> clazz, File file, SegmentStore store, CerealDatabase database, TypeSerializer<?>[] serializers,
+                                   BlobCompressor compressor, BlobCodecFactory codecs) {
+        super(clazz, file, null, database, serializers, compressor, codecs);
+        this.store = store;
+    }
+
+    /**
+     * Index the segments. If there are none yet but the cache still has JSON files, they're imported.
+     */
+    @Override
+    public void start() throws DatasourceException {
+        debug("Starting segment datasource for %s", store.getDirectory().getAbsolutePath());
+        createCodec();
+        try {
+            store.open();
+            List<File> imports = store.size() == 0 ? jsonFiles() : List.of();
+            for (File source : imports) {
+                log("Importing %s into segments %s", source.getName(), store.getDirectory().getName());
+                new JsonFileLoader<>(gson, clazz).load(source, (key, t) -> {
+                    try {
+                        store.put(key, serialize(t));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            if (!imports.isEmpty()) {
+                store.sync();
+            }
+        } catch (IOException | UncheckedIOException | JsonParseException e) {
+            throw new DatasourceException("Failed to open segments %s".formatted(store.getDirectory().getAbsolutePath()), e);
+        }
+    }
+
+    @Override
+    protected T lookup(@NonNull UUID key) {
+        T t = loaded.get(key);
+        if (t != null) return t;
+
+        // Read under the key's lock, delete removes the key from the store before it's removed from loaded, so either
+        // the record is already gone or the object read here is removed by the delete
+        return loaded.computeIfAbsent(key, k -> {
+            byte[] payload = store.read(k);
+            if (payload == null) return null;
+            T read = deserialize(payload);
+            read.load();
+            stored.put(k, LogStore.hash(payload));
+            return read;
+        });
+    }
+
+    /**
+     * @return The stored objects, those which weren't read yet are deserialized as they're iterated & not kept
+     */
+    @Override
+    protected Collection<T> values() {
+        List<UUID> keys = new ArrayList<>(store.size());
+        store.forEachKey(keys::add);
+        return new AbstractCollection<>() {
+            @Override
+            public @NonNull Iterator<T> iterator() {
+                Iterator<UUID> remaining = keys.iterator();
+                return new Iterator<>() {
+                    private T next;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && remaining.hasNext()) {
+                            next = peek(remaining.next());
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        T t = next;
+                        next = null;
+                        return t;
+                    }
+                };
+            }
+
+            @Override
+            public @NonNull Spliterator<T> spliterator() {
+                // Keys deleted since the snapshot are skipped, so the size is only an upper bound
+                return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.NONNULL);
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+
+    /**
+     * @return The loaded object, otherwise a copy deserialized from the store which isn't kept, or null if it's deleted
+     */
+    private T peek(UUID key) {
+        T t = loaded.get(key);
+        if (t != null) return t;
+        byte[] payload = store.read(key);
+        if (payload == null) return null;
+        T read = deserialize(payload);
+        read.load();
+        return read;
+    }
+
+    @Override
+    public void save(@NonNull T t) {
+        debug("Saving object with key \"%s\" to segment datasource", t.getIdentifier());
+        loaded.put(t.getIdentifier(), t);
+        try {
+            write(t);
+        } catch (IOException e) {
+            error("Failed to append object with key \"%s\" to segments %s", e, t.getIdentifier(), store.getDirectory().getName());
+        }
+    }
+
+    /**
+     * Append the object unless it's unchanged since its latest record. Forced to disk by the next saveAll.
+     * @return true if a record was appended
+     */
+    private boolean write(T t) throws IOException {
+        t.lastSaved();
+        byte[] payload = serialize(t);
+        long hash = LogStore.hash(payload);
+        Long previous = stored.put(t.getIdentifier(), hash);
+        if (previous != null && previous == hash) return false;
+        store.put(t.getIdentifier(), payload);
+        return true;
+    }
+
+    @Override
+    public void saveAll(@NonNull Set<T> t) {
+        debug("Saving loaded data to segments: %s", store.getDirectory().getName());
+        int appended = 0;
+        try {
+            for (T loadedObject : loaded.values()) {
+                if (write(loadedObject)) {
+                    appended++;
+                }
+            }
+            store.sync();
+            debug("Appended %d of %d loaded objects to segments %s", appended, loaded.size(), store.getDirectory().getName());
+        } catch (Exception e) {
+            error("Failed to save data to segments: %s", e, store.getDirectory().getName());
+        }
+    }
+
+    @Override
+    public void delete(@NonNull T t) {
+        debug("Deleting object with key \"%s\" from segment datasource", t.getIdentifier());
+        try {
+            store.delete(t.getIdentifier());
+        } catch (IOException e) {
+            error("Failed to append delete of \"%s\" to segments %s", e, t.getIdentifier(), store.getDirectory().getName());
+        }
+        // After the store, so a concurrent lookup can't load the deleted record back, see lookup
+        loaded.remove(t.getIdentifier());
+        stored.remove(t.getIdentifier());
+    }
+}
@@ -0,0 +1,94 @@
+package not.savage.cereal.internal.platform.file;
+
+import lombok.Getter;
+import not.savage.cereal.internal.CerealDataBlob;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One shard of a file datasource, holding the objects whose key hashes to it.
+ * Reads take the read lock & changes to the map take the write lock, so shards don't contend with each other.
+ * @param <T> The type of data blob
+ */
+@Getter
+class FileShard<T extends CerealDataBlob> {
+
+    /**
+     * The JSON file of the shard, null when the datasource persists to a log instead.
+     */
+    private final File file;
+    private final HashMap<UUID, T> data = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Set when an object is added or removed, cleared when the shard is written.
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    /**
+     * Hash of the last written file contents, so shards whose objects weren't changed in place aren't rewritten.
+     */
+    private long writtenHash;
+
+    FileShard(File file) {
+        this.file = file;
+    }
+
+    T get(UUID key) {
+        lock.readLock().lock();
+        try {
+            return data.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add an object read from disk, without marking the shard dirty.
+     */
+    void load(UUID key, T t) {
+        lock.writeLock().lock();
+        try {
+            data.put(key, t);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void put(UUID key, T t) {
+        load(key, t);
+        dirty.set(true);
+    }
+
+    /**
+     * @return false if the object wasn't stored
+     */
+    boolean remove(UUID key, T t) {
+        boolean removed;
+        lock.writeLock().lock();
+        try {
+            removed = data.remove(key, t);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (removed) dirty.set(true);
+        return removed;
+    }
+
+    void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * @return true if the shard was dirty, clearing the flag
+     */
+    boolean clearDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    void setWrittenHash(long writtenHash) {
+        this.writtenHash = writtenHash;
+    }
+}
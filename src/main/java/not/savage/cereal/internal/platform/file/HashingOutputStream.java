@@ -0,0 +1,36 @@
+package not.savage.cereal.internal.platform.file;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes bytes through to another stream while hashing them like {@link LogStore#hash(byte[])}.
+ */
+final class HashingOutputStream extends FilterOutputStream {
+
+    private long hash = LogStore.HASH_SEED;
+
+    HashingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * @return The hash of the bytes written so far
+     */
+    long getHash() {
+        return hash;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        hash = LogStore.hash(hash, new byte[]{(byte) b}, 0, 1);
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        hash = LogStore.hash(hash, b, off, len);
+        out.write(b, off, len);
+    }
+}
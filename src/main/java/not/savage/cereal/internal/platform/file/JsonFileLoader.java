@@ -0,0 +1,179 @@
+package not.savage.cereal.internal.platform.file;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.internal.CerealDataBlob;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams a JSON file of key to object entries, as written by the JSON file engine.
+ * Entries are read one at a time & handed to the common fork/join pool in batches, where they're deserialized
+ * & passed on in parallel. Only a few batches are in flight at once, so the file is never held in memory as a whole.
+ * @param <T> The type of data blob
+ */
+class JsonFileLoader<T extends CerealDataBlob> implements CerealLogger {
+
+    private static final int BATCH_SIZE = 256;
+    /**
+     * Files smaller than this load quickly enough that progress isn't worth logging.
+     */
+    private static final long PROGRESS_MIN_BYTES = 16 * 1024 * 1024;
+
+    private final Gson gson;
+    private final Class<T> clazz;
+
+    JsonFileLoader(Gson gson, Class<T> clazz) {
+        this.gson = gson;
+        this.clazz = clazz;
+    }
+
+    /**
+     * Load every entry of the file.
+     * @param source The file to read
+     * @param consumer Called with every deserialized object, from pool threads, so it must be thread safe
+     * @return The number of objects loaded
+     */
+    long load(File source, BiConsumer<UUID, T> consumer) throws IOException {
+        long length = source.length();
+        if (length == 0) return 0;
+
+        long started = System.nanoTime();
+        LongAdder loaded = new LongAdder();
+        ArrayDeque<ForkJoinTask<?>> inFlight = new ArrayDeque<>();
+        int maxInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+        int reported = 0;
+
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(source));
+             JsonReader reader = new JsonReader(new InputStreamReader(open(counter), StandardCharsets.UTF_8))) {
+            if (reader.peek() == JsonToken.NULL) return 0;
+
+            reader.beginObject();
+            List<Map.Entry<UUID, JsonElement>> batch = new ArrayList<>(BATCH_SIZE);
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                UUID key;
+                try {
+                    key = UUID.fromString(name);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid key \"%s\" in %s".formatted(name, source.getName()), e);
+                }
+                batch.add(new AbstractMap.SimpleImmutableEntry<>(key, JsonParser.parseReader(reader)));
+                if (batch.size() < BATCH_SIZE) continue;
+
+                submit(batch, consumer, loaded, inFlight, maxInFlight);
+                batch = new ArrayList<>(BATCH_SIZE);
+                if (length >= PROGRESS_MIN_BYTES) {
+                    int percent = (int) (counter.getCount() * 100 / length);
+                    if (percent / 10 > reported / 10) {
+                        reported = percent;
+                        log("Loading %s: %d%% (%d objects)", source.getName(), percent, loaded.sum());
+                    }
+                }
+            }
+            reader.endObject();
+            if (!batch.isEmpty()) {
+                submit(batch, consumer, loaded, inFlight, maxInFlight);
+            }
+            ForkJoinTask<?> task;
+            while ((task = inFlight.poll()) != null) {
+                task.join();
+            }
+        } finally {
+            // Don't leave tasks running after a failure, the caller gives up on the file
+            ForkJoinTask<?> task;
+            while ((task = inFlight.poll()) != null) {
+                task.quietlyJoin();
+            }
+        }
+
+        debug("Loaded %d objects from %s in %dms", loaded.sum(), source.getName(), (System.nanoTime() - started) / 1_000_000);
+        return loaded.sum();
+    }
+
+    /**
+     * Buffer the file, unwrapping it if it was gzipped by a {@link not.savage.cereal.annotation.Compressed} cache.
+     * Progress is still counted on the file bytes, not the inflated ones.
+     */
+    private static InputStream open(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xFF) && second == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            return new BufferedInputStream(new GZIPInputStream(buffered, 64 * 1024), 64 * 1024);
+        }
+        return buffered;
+    }
+
+    /**
+     * Hand a batch to the pool, first waiting for the oldest batch if too many are in flight.
+     */
+    private void submit(List<Map.Entry<UUID, JsonElement>> batch, BiConsumer<UUID, T> consumer, LongAdder loaded,
+                        ArrayDeque<ForkJoinTask<?>> inFlight, int maxInFlight) {
+        if (inFlight.size() >= maxInFlight) {
+            inFlight.poll().join();
+        }
+        inFlight.add(ForkJoinPool.commonPool().submit(() -> {
+            for (Map.Entry<UUID, JsonElement> entry : batch) {
+                T t = gson.fromJson(entry.getValue(), clazz);
+                if (t == null) continue;
+                consumer.accept(entry.getKey(), t);
+                loaded.increment();
+            }
+        }));
+    }
+
+    /**
+     * Counts the bytes read from the file, for progress.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) count++;
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) count += read;
+            return read;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
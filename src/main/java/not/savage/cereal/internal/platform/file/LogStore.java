@@ -0,0 +1,382 @@
+package not.savage.cereal.internal.platform.file;
+
+import lombok.Getter;
+import lombok.NonNull;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.config.sub.FileConfig;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of serialized objects, used by {@link not.savage.cereal.config.sub.FileEngine#LOG}.
+ * Every save or delete is appended as a length prefixed & checksummed record, and an index of the latest record
+ * per key is rebuilt by replaying the log on open. A torn record at the end of the log, left by a crash mid-append,
+ * is truncated away on open.
+ * <p>
+ * Overwritten & deleted records are garbage. Once enough of the log is garbage it's compacted in the background into
+ * a new log holding only the latest records, which atomically replaces the old one.
+ */
+public class LogStore implements CerealLogger {
+
+    private static final int MAGIC = 0x43524C47; // CRLG
+    /**
+     * The hash of an empty payload, see {@link #hash(byte[])}.
+     */
+    static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 8;
+    /**
+     * Payload length, checksum, operation & key. Shared with {@link SegmentStore}.
+     */
+    static final int RECORD_HEADER = 4 + 4 + 1 + 16;
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    /**
+     * The latest record of a key.
+     * @param offset Offset of the record in the log
+     * @param length Length of the whole record, header included
+     * @param hash Hash of the payload, so saving an unchanged object appends nothing
+     */
+    private record Entry(long offset, int length, long hash) {
+    }
+
+    @Getter private final File file;
+    private final FileConfig config;
+    private final Executor compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private FileChannel channel;
+    private Map<UUID, Entry> index = new HashMap<>();
+    private long size;
+    private long garbage;
+
+    /**
+     * @param file The log file
+     * @param config Compaction thresholds
+     * @param compactor Executor compactions run on
+     */
+    public LogStore(@NonNull File file, @NonNull FileConfig config, @NonNull Executor compactor) {
+        this.file = file;
+        this.config = config;
+        this.compactor = compactor;
+    }
+
+    /**
+     * Open the log, creating it if it doesn't exist yet, and replay it into the index.
+     */
+    public synchronized void open() throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            writeFileHeader(channel);
+            this.size = FILE_HEADER;
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("%s is not a Cereal log".formatted(file.getAbsolutePath()));
+        }
+        replay();
+    }
+
+    private void replay() throws IOException {
+        long end = channel.size();
+        long position = FILE_HEADER;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER);
+        CRC32C crc = new CRC32C();
+        while (position < end) {
+            recordHeader.clear();
+            int length;
+            byte[] payload;
+            try {
+                readFully(channel, recordHeader, position);
+                length = recordHeader.getInt(0);
+                if (length < 0 || position + RECORD_HEADER + length > end) {
+                    throw new EOFException();
+                }
+                payload = new byte[length];
+                readFully(channel, ByteBuffer.wrap(payload), position + RECORD_HEADER);
+            } catch (EOFException er) {
+                truncate(position, end);
+                break;
+            }
+
+            crc.reset();
+            crc.update(recordHeader.array(), 8, RECORD_HEADER - 8);
+            crc.update(payload);
+            if ((int) crc.getValue() != recordHeader.getInt(4)) {
+                truncate(position, end);
+                break;
+            }
+
+            UUID key = new UUID(recordHeader.getLong(9), recordHeader.getLong(17));
+            int recordLength = RECORD_HEADER + length;
+            if (recordHeader.get(8) == PUT) {
+                Entry previous = index.put(key, new Entry(position, recordLength, hash(payload)));
+                if (previous != null) garbage += previous.length();
+            } else {
+                Entry previous = index.remove(key);
+                garbage += recordLength + (previous != null ? previous.length() : 0);
+            }
+            position += recordLength;
+        }
+        this.size = position;
+        debug("Replayed %d objects from %s (%d of %d bytes garbage)", index.size(), file.getName(), garbage, size);
+    }
+
+    /**
+     * Cut off a torn or corrupt tail, everything after it can't be trusted to be complete.
+     */
+    private void truncate(long position, long end) throws IOException {
+        error("Truncating corrupt or incomplete log %s at offset %d, dropping %d bytes".formatted(file.getAbsolutePath(), position, end - position));
+        channel.truncate(position);
+        channel.force(true);
+    }
+
+    /**
+     * Read the latest record of every stored key.
+     * @param consumer Called with each key & payload
+     */
+    public synchronized void forEach(@NonNull BiConsumer<UUID, byte[]> consumer) throws IOException {
+        for (Map.Entry<UUID, Entry> entry : index.entrySet()) {
+            byte[] payload = new byte[entry.getValue().length() - RECORD_HEADER];
+            readFully(channel, ByteBuffer.wrap(payload), entry.getValue().offset() + RECORD_HEADER);
+            consumer.accept(entry.getKey(), payload);
+        }
+    }
+
+    /**
+     * @return true if the log holds no objects
+     */
+    public synchronized boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * Append a record for the object, unless its latest record has the same payload.
+     * Not forced to disk until {@link #sync()}.
+     * @param key The key of the object
+     * @param payload The serialized object
+     * @return true if a record was appended
+     */
+    public synchronized boolean put(@NonNull UUID key, byte @NonNull [] payload) throws IOException {
+        long hash = hash(payload);
+        Entry previous = index.get(key);
+        if (previous != null && previous.hash() == hash && previous.length() == RECORD_HEADER + payload.length) {
+            return false;
+        }
+
+        int length = append(PUT, key, payload);
+        index.put(key, new Entry(size - length, length, hash));
+        if (previous != null) garbage += previous.length();
+        return true;
+    }
+
+    /**
+     * Append a delete record for the object, if it's stored.
+     * @param key The key of the object
+     */
+    public synchronized void delete(@NonNull UUID key) throws IOException {
+        Entry previous = index.remove(key);
+        if (previous == null) return;
+        garbage += previous.length() + append(DELETE, key, new byte[0]);
+    }
+
+    private int append(byte operation, UUID key, byte[] payload) throws IOException {
+        ByteBuffer record = ByteBuffer.wrap(record(operation, key, payload));
+        long position = size;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        size = position;
+        return record.capacity();
+    }
+
+    /**
+     * Force appended records to disk, then schedule a compaction if enough of the log is garbage.
+     */
+    public void sync() throws IOException {
+        long garbage;
+        long size;
+        synchronized (this) {
+            channel.force(false);
+            garbage = this.garbage;
+            size = this.size;
+        }
+
+        if (size >= config.getCompactionMinBytes() && garbage >= size * config.getCompactionGarbageRatio()
+                && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (Exception er) {
+                    error("Failed to compact log %s", er, file.getAbsolutePath());
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rewrite the log with only the latest record of every key, then atomically replace the old log with it.
+     * Live records are copied without holding the lock, so saves continue meanwhile; records appended in the
+     * meantime are copied over at the end.
+     */
+    public void compact() throws IOException {
+        Map<UUID, Entry> snapshot;
+        FileChannel source;
+        long snapshotEnd;
+        synchronized (this) {
+            snapshot = new HashMap<>(index);
+            source = channel;
+            snapshotEnd = size;
+        }
+
+        long started = System.currentTimeMillis();
+        File compacted = new File(file.getPath() + ".compact");
+        FileChannel target = FileChannel.open(compacted.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            writeFileHeader(target);
+            long position = FILE_HEADER;
+            Map<UUID, Long> moved = new HashMap<>(snapshot.size());
+            for (Map.Entry<UUID, Entry> entry : snapshot.entrySet()) {
+                transfer(source, entry.getValue().offset(), entry.getValue().length(), target, position);
+                moved.put(entry.getKey(), position);
+                position += entry.getValue().length();
+            }
+
+            synchronized (this) {
+                // Records appended while copying are copied as-is, so their offsets shift by a constant
+                long tail = size - snapshotEnd;
+                transfer(source, snapshotEnd, tail, target, position);
+                long shift = position - snapshotEnd;
+
+                Map<UUID, Entry> compactedIndex = new HashMap<>(index.size());
+                long live = 0;
+                for (Map.Entry<UUID, Entry> entry : index.entrySet()) {
+                    Entry current = entry.getValue();
+                    long offset = current.offset() >= snapshotEnd ? current.offset() + shift : moved.get(entry.getKey());
+                    compactedIndex.put(entry.getKey(), new Entry(offset, current.length(), current.hash()));
+                    live += current.length();
+                }
+
+                target.force(true);
+                Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                syncDirectory();
+
+                long before = size;
+                this.channel = target;
+                this.index = compactedIndex;
+                this.size = position + tail;
+                this.garbage = size - FILE_HEADER - live;
+                source.close();
+                debug("Compacted log %s from %d to %d bytes in %dms", file.getName(), before, size, System.currentTimeMillis() - started);
+            }
+        } catch (IOException | RuntimeException er) {
+            target.close();
+            Files.deleteIfExists(compacted.toPath());
+            throw er;
+        }
+    }
+
+    /**
+     * Force the rename into the directory entry, otherwise a crash could still bring back the old log.
+     */
+    private void syncDirectory() {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!AtomicFiles.syncDirectory(directory)) {
+            // Not supported on every platform, the rename is still atomic
+            debug("Failed to sync directory %s", directory);
+        }
+    }
+
+    /**
+     * Force & close the log.
+     */
+    public synchronized void close() throws IOException {
+        if (channel == null || !channel.isOpen()) return;
+        channel.force(true);
+        channel.close();
+    }
+
+    private static void writeFileHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putInt(VERSION).flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new EOFException();
+            position += read;
+        }
+    }
+
+    private static void transfer(FileChannel source, long position, long count, FileChannel target, long targetPosition) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 64 * 1024));
+        long end = position + count;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(source, buffer, position);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                int written = target.write(buffer, targetPosition);
+                targetPosition += written;
+                position += written;
+            }
+        }
+    }
+
+    /**
+     * Encode a record: payload length, CRC32C of everything after the checksum, operation, key & payload.
+     */
+    static byte[] record(byte operation, UUID key, byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+        record.putInt(payload.length).putInt(0).put(operation)
+                .putLong(key.getMostSignificantBits()).putLong(key.getLeastSignificantBits()).put(payload);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 8, record.capacity() - 8);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * 64 bit FNV-1a, only used to detect unchanged payloads.
+     */
+    static long hash(byte[] payload) {
+        return hash(HASH_SEED, payload, 0, payload.length);
+    }
+
+    /**
+     * Continue a hash with part of an array, for payloads which are hashed as they're streamed.
+     * @param hash The hash so far, {@link #HASH_SEED} at the start of the payload
+     */
+    static long hash(long hash, byte[] payload, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= payload[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
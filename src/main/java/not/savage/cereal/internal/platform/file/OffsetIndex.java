@@ -0,0 +1,143 @@
+package not.savage.cereal.internal.platform.file;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Compact open addressing map of UUIDs to record locations, three longs per slot instead of the
+ * key, value & node objects a HashMap would allocate per entry. Not thread safe.
+ */
+public class OffsetIndex {
+
+    public static final long MISSING = -1;
+
+    /**
+     * Receives the entries of the index.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(UUID key, long location);
+    }
+
+    private long[] mostSignificant;
+    private long[] leastSignificant;
+    /**
+     * Locations are never negative, so {@link #MISSING} marks an empty slot.
+     */
+    private long[] locations;
+    private int size;
+
+    public OffsetIndex() {
+        allocate(1024);
+    }
+
+    private void allocate(int capacity) {
+        this.mostSignificant = new long[capacity];
+        this.leastSignificant = new long[capacity];
+        this.locations = new long[capacity];
+        Arrays.fill(locations, MISSING);
+    }
+
+    /**
+     * @return The location of the key, or {@link #MISSING}
+     */
+    public long get(@NonNull UUID key) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        return locations[slot];
+    }
+
+    /**
+     * @param location The location of the key, never negative
+     * @return The previous location of the key, or {@link #MISSING}
+     */
+    public long put(@NonNull UUID key, long location) {
+        if (location < 0) {
+            throw new IllegalArgumentException("Negative location " + location);
+        }
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int slot = find(msb, lsb);
+        long previous = locations[slot];
+        if (previous == MISSING) {
+            mostSignificant[slot] = msb;
+            leastSignificant[slot] = lsb;
+            if (++size > locations.length * 3 / 4) {
+                locations[slot] = location;
+                grow();
+                return MISSING;
+            }
+        }
+        locations[slot] = location;
+        return previous;
+    }
+
+    /**
+     * @return The removed location of the key, or {@link #MISSING}
+     */
+    public long remove(@NonNull UUID key) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        long previous = locations[slot];
+        if (previous == MISSING) return MISSING;
+
+        // Shift following entries of the probe sequence back, so lookups never stop at the hole
+        int mask = locations.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (locations[next] != MISSING) {
+            int home = slot(mostSignificant[next], leastSignificant[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                mostSignificant[hole] = mostSignificant[next];
+                leastSignificant[hole] = leastSignificant[next];
+                locations[hole] = locations[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        locations[hole] = MISSING;
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(@NonNull EntryConsumer consumer) {
+        for (int i = 0; i < locations.length; i++) {
+            if (locations[i] != MISSING) {
+                consumer.accept(new UUID(mostSignificant[i], leastSignificant[i]), locations[i]);
+            }
+        }
+    }
+
+    private int find(long msb, long lsb) {
+        int mask = locations.length - 1;
+        int slot = slot(msb, lsb);
+        while (locations[slot] != MISSING && (mostSignificant[slot] != msb || leastSignificant[slot] != lsb)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int slot(long msb, long lsb) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (locations.length - 1);
+    }
+
+    private void grow() {
+        long[] oldMost = mostSignificant;
+        long[] oldLeast = leastSignificant;
+        long[] oldLocations = locations;
+        allocate(oldLocations.length * 2);
+        for (int i = 0; i < oldLocations.length; i++) {
+            if (oldLocations[i] != MISSING) {
+                int slot = find(oldMost[i], oldLeast[i]);
+                mostSignificant[slot] = oldMost[i];
+                leastSignificant[slot] = oldLeast[i];
+                locations[slot] = oldLocations[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package not.savage.cereal.internal.platform.file;
+
+import lombok.Getter;
+import lombok.NonNull;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.config.sub.FileConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Store of serialized objects in memory-mapped segment files, used by {@link not.savage.cereal.config.sub.FileEngine#SEGMENT}.
+ * Records use the {@link LogStore} format & are appended to the newest segment through its mapping, older segments are
+ * read-only. Opening only builds an {@link OffsetIndex} of where the latest record of each key is, payloads stay in the
+ * page cache until they're read, so startup & heap don't grow with the stored data.
+ * <p>
+ * Sealed segments which are mostly overwritten or deleted records are compacted in the background, by copying their
+ * live records into the newest segment & deleting the segment file. A crash mid-compaction only leaves duplicates,
+ * which replay resolves as the newer segment wins.
+ */
+public class SegmentStore implements CerealLogger {
+
+    private static final int MAGIC = 0x43525347; // CRSG
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 8;
+    private static final String EXTENSION = ".seg";
+
+    private static class Segment {
+        private final int id;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        /**
+         * Offset the next record is written at.
+         */
+        private int end = FILE_HEADER;
+        private long garbage;
+        private boolean dirty;
+
+        private Segment(int id, File file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    @Getter private final File directory;
+    private final FileConfig config;
+    private final Executor compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final OffsetIndex index = new OffsetIndex();
+    private Segment active;
+
+    /**
+     * @param directory The directory holding the segment files
+     * @param config Segment size & compaction thresholds
+     * @param compactor Executor compactions run on
+     */
+    public SegmentStore(@NonNull File directory, @NonNull FileConfig config, @NonNull Executor compactor) {
+        this.directory = directory;
+        this.config = config;
+        this.compactor = compactor;
+    }
+
+    /**
+     * Map the existing segments & index their records, creating the directory if it doesn't exist yet.
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory.toPath());
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            for (File file : files) {
+                int id = Integer.parseInt(file.getName().substring(0, file.getName().length() - EXTENSION.length()));
+                segments.put(id, map(id, file, file.length()));
+            }
+        }
+
+        for (Segment segment : segments.values()) {
+            if (segment.buffer.getInt(0) != MAGIC || segment.buffer.getInt(4) != VERSION) {
+                throw new IOException("%s is not a Cereal segment".formatted(segment.file.getAbsolutePath()));
+            }
+            scan(segment, segment == segments.lastEntry().getValue());
+        }
+
+        this.active = segments.isEmpty() ? create(1, 0) : segments.lastEntry().getValue();
+        debug("Indexed %d objects in %d segments of %s", index.size(), segments.size(), directory.getName());
+    }
+
+    /**
+     * Index the records of a segment, in order. The unwritten rest of a segment is zeroed, so the first zero operation ends it.
+     * @param last Whether it's the newest segment, where a torn record from a crash mid-append may be left
+     */
+    private void scan(Segment segment, boolean last) {
+        MappedByteBuffer buffer = segment.buffer;
+        CRC32C crc = new CRC32C();
+        int position = FILE_HEADER;
+        while (position + LogStore.RECORD_HEADER <= buffer.capacity()) {
+            byte operation = buffer.get(position + 8);
+            if (operation == 0) break;
+
+            int length = buffer.getInt(position);
+            if (length < 0 || position + LogStore.RECORD_HEADER + length > buffer.capacity() || !checksum(buffer, position, length, crc)) {
+                if (last) {
+                    error("Zeroing corrupt or incomplete tail of segment %s at offset %d".formatted(segment.file.getAbsolutePath(), position));
+                    for (int i = position; i < buffer.capacity(); i++) {
+                        buffer.put(i, (byte) 0);
+                    }
+                    buffer.force();
+                } else {
+                    error("Skipping corrupt rest of segment %s at offset %d".formatted(segment.file.getAbsolutePath(), position));
+                }
+                break;
+            }
+
+            UUID key = new UUID(buffer.getLong(position + 9), buffer.getLong(position + 17));
+            int recordLength = LogStore.RECORD_HEADER + length;
+            long previous = operation == LogStore.PUT ? index.put(key, location(segment.id, position)) : index.remove(key);
+            if (previous != OffsetIndex.MISSING) {
+                addGarbage(previous);
+            }
+            if (operation == LogStore.DELETE) {
+                segment.garbage += recordLength;
+            }
+            position += recordLength;
+        }
+        segment.end = position;
+    }
+
+    private static boolean checksum(MappedByteBuffer buffer, int position, int length, CRC32C crc) {
+        crc.reset();
+        crc.update(buffer.slice(position + 8, LogStore.RECORD_HEADER - 8 + length));
+        return (int) crc.getValue() == buffer.getInt(position + 4);
+    }
+
+    /**
+     * Read the latest payload of a key, straight from the mapped segment.
+     * @param key The key of the object
+     * @return The payload, or null if the key isn't stored
+     */
+    public byte[] read(@NonNull UUID key) {
+        MappedByteBuffer buffer;
+        int offset;
+        synchronized (this) {
+            long location = index.get(key);
+            if (location == OffsetIndex.MISSING) return null;
+            buffer = segments.get(segmentOf(location)).buffer;
+            offset = offsetOf(location);
+        }
+        // Absolute reads don't touch the buffer's position, so they're safe outside the lock
+        byte[] payload = new byte[buffer.getInt(offset)];
+        buffer.get(offset + LogStore.RECORD_HEADER, payload);
+        return payload;
+    }
+
+    /**
+     * @param consumer Called with every stored key
+     */
+    public void forEachKey(@NonNull Consumer<UUID> consumer) {
+        List<UUID> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(index.size());
+            index.forEach((key, location) -> keys.add(key));
+        }
+        keys.forEach(consumer);
+    }
+
+    /**
+     * @return How many objects are stored
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Append a record for the object. Not forced to disk until {@link #sync()}.
+     * @param key The key of the object
+     * @param payload The serialized object
+     */
+    public synchronized void put(@NonNull UUID key, byte @NonNull [] payload) throws IOException {
+        long location = append(LogStore.record(LogStore.PUT, key, payload));
+        long previous = index.put(key, location);
+        if (previous != OffsetIndex.MISSING) {
+            addGarbage(previous);
+        }
+    }
+
+    /**
+     * Append a delete record for the object, if it's stored.
+     * @param key The key of the object
+     */
+    public synchronized void delete(@NonNull UUID key) throws IOException {
+        long previous = index.remove(key);
+        if (previous == OffsetIndex.MISSING) return;
+        addGarbage(previous);
+        long location = append(LogStore.record(LogStore.DELETE, key, new byte[0]));
+        segments.get(segmentOf(location)).garbage += LogStore.RECORD_HEADER;
+    }
+
+    /**
+     * Write a record at the end of the active segment, starting a new segment if it doesn't fit.
+     * @return The location of the record
+     */
+    private long append(byte[] record) throws IOException {
+        if (active.end + record.length > active.buffer.capacity()) {
+            active = create(active.id + 1, record.length);
+        }
+        int offset = active.end;
+        active.buffer.put(offset, record);
+        active.end += record.length;
+        active.dirty = true;
+        return location(active.id, offset);
+    }
+
+    private void addGarbage(long location) {
+        Segment segment = segments.get(segmentOf(location));
+        segment.garbage += LogStore.RECORD_HEADER + segment.buffer.getInt(offsetOf(location));
+    }
+
+    /**
+     * Force written segments to disk, then schedule a compaction if any sealed segment is mostly garbage.
+     */
+    public void sync() {
+        boolean compact = false;
+        synchronized (this) {
+            long total = 0;
+            for (Segment segment : segments.values()) {
+                if (segment.dirty) {
+                    segment.buffer.force();
+                    segment.dirty = false;
+                }
+                total += segment.end;
+            }
+            if (total >= config.getCompactionMinBytes()) {
+                for (Segment segment : segments.values()) {
+                    compact |= isCompactable(segment);
+                }
+            }
+        }
+
+        if (compact && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (Exception er) {
+                    error("Failed to compact segments of %s", er, directory.getAbsolutePath());
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private boolean isCompactable(Segment segment) {
+        return segment != active && segment.garbage >= (segment.end - FILE_HEADER) * config.getCompactionGarbageRatio();
+    }
+
+    /**
+     * Copy the live records of every compactable segment into the active segment, then delete those segments.
+     * Each record is copied under the lock on its own, so saves & reads continue meanwhile.
+     */
+    public void compact() throws IOException {
+        List<Segment> victims = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments.values()) {
+                if (isCompactable(segment)) victims.add(segment);
+            }
+        }
+
+        for (Segment victim : victims) {
+            long started = System.currentTimeMillis();
+            MappedByteBuffer buffer = victim.buffer;
+            int position = FILE_HEADER;
+            while (position < victim.end) {
+                int recordLength = LogStore.RECORD_HEADER + buffer.getInt(position);
+                UUID key = new UUID(buffer.getLong(position + 9), buffer.getLong(position + 17));
+                synchronized (this) {
+                    boolean delete = buffer.get(position + 8) == LogStore.DELETE;
+                    if (!delete && index.get(key) == location(victim.id, position)) {
+                        index.put(key, append(copy(buffer, position, recordLength)));
+                    } else if (delete && index.get(key) == OffsetIndex.MISSING && segments.firstKey() != victim.id) {
+                        // An older segment may still hold a record the delete hides
+                        long location = append(copy(buffer, position, recordLength));
+                        segments.get(segmentOf(location)).garbage += recordLength;
+                    }
+                }
+                position += recordLength;
+            }
+
+            synchronized (this) {
+                active.buffer.force();
+                active.dirty = false;
+                segments.remove(victim.id);
+                // The mapping stays valid for readers still holding it, until it's garbage collected
+                Files.deleteIfExists(victim.file.toPath());
+            }
+            debug("Compacted segment %s of %s in %dms", victim.file.getName(), directory.getName(), System.currentTimeMillis() - started);
+        }
+    }
+
+    private static byte[] copy(MappedByteBuffer buffer, int position, int length) {
+        byte[] record = new byte[length];
+        buffer.get(position, record);
+        return record;
+    }
+
+    /**
+     * Force all segments to disk.
+     */
+    public synchronized void close() {
+        for (Segment segment : segments.values()) {
+            if (segment.dirty) {
+                segment.buffer.force();
+                segment.dirty = false;
+            }
+        }
+    }
+
+    /**
+     * Create & map a new segment, large enough for at least the given record.
+     */
+    private Segment create(int id, int recordLength) throws IOException {
+        long capacity = Math.max(config.getSegmentBytes(), FILE_HEADER + recordLength);
+        File file = new File(directory, "%08d%s".formatted(id, EXTENSION));
+        Segment segment = map(id, file, capacity);
+        segment.buffer.putInt(0, MAGIC).putInt(4, VERSION);
+        segment.dirty = true;
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static Segment map(int id, File file, long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Segment %s is larger than 2GB".formatted(file.getAbsolutePath()));
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping beyond the end grows the file (sparsely), the mapping outlives the channel
+            return new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+}
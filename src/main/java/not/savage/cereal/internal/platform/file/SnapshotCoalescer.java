@@ -0,0 +1,66 @@
+package not.savage.cereal.internal.platform.file;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs snapshots one at a time on an executor. Snapshots requested while one is running are coalesced into
+ * a single follow-up snapshot, which starts once the running one is done & completes all of their futures.
+ */
+class SnapshotCoalescer {
+
+    private final Runnable snapshot;
+    private final Executor executor;
+
+    private CompletableFuture<Void> running;
+    private CompletableFuture<Void> pending;
+
+    SnapshotCoalescer(Runnable snapshot, Executor executor) {
+        this.snapshot = snapshot;
+        this.executor = executor;
+    }
+
+    /**
+     * @return A future completed once a snapshot, started after this call, is done
+     */
+    synchronized CompletableFuture<Void> request() {
+        if (running == null) {
+            return start();
+        }
+        // The running snapshot may have missed changes made before this call, so wait for the next one
+        if (pending == null) {
+            pending = new CompletableFuture<>();
+        }
+        return pending;
+    }
+
+    /**
+     * Start a snapshot, {@link #running} is set before the completion callback is attached in case it's already done.
+     */
+    private CompletableFuture<Void> start() {
+        CompletableFuture<Void> future = CompletableFuture.runAsync(snapshot, executor);
+        running = future;
+        future.whenComplete((ignored, er) -> next());
+        return future;
+    }
+
+    private synchronized void next() {
+        running = null;
+        CompletableFuture<Void> waiting = pending;
+        pending = null;
+        if (waiting == null) return;
+
+        try {
+            start().whenComplete((ignored, er) -> {
+                if (er != null) {
+                    waiting.completeExceptionally(er);
+                } else {
+                    waiting.complete(null);
+                }
+            });
+        } catch (RuntimeException er) {
+            // The executor was shut down
+            waiting.completeExceptionally(er);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package not.savage.cereal.internal.platform.mongo;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+import lombok.NonNull;
+import not.savage.cereal.internal.BlobCompressor;
+import org.bson.BsonBinary;
+import org.bson.BsonWriter;
+import org.bson.UuidRepresentation;
+import org.bson.types.Decimal128;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A JsonWriter which writes straight to a {@link BsonWriter}, so Gson type adapters (including registered
+ * {@link not.savage.cereal.TypeSerializer}s) serialize to BSON without an intermediate JSON string.
+ * Numbers are written with the same BSON types parsing the equivalent JSON would produce, int32 where they fit.
+ * Integers of the date fields are written as BSON dates of that many epoch milliseconds instead.
+ */
+public class BsonJsonWriter extends JsonWriter {
+
+    private static final Writer UNWRITABLE_WRITER = new Writer() {
+        @Override public void write(char @NonNull [] buffer, int offset, int counter) {
+            throw new AssertionError();
+        }
+        @Override public void flush() {
+            throw new AssertionError();
+        }
+        @Override public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private final BsonWriter writer;
+    private final UUID identifier;
+    private final byte[] compressed;
+    /**
+     * Dotted paths of the fields written as dates.
+     */
+    private final Set<String> dateFields;
+    private String pendingName;
+    /**
+     * The name of the value being written, null within arrays.
+     */
+    private String currentName;
+    /**
+     * The names of the documents & arrays being written, by depth.
+     */
+    private String[] names = new String[8];
+    private int depth;
+
+    /**
+     * @param writer The writer to write the BSON to
+     * @param identifier Written as the _id of the top level document, or null to write none
+     */
+    public BsonJsonWriter(@NonNull BsonWriter writer, UUID identifier) {
+        this(writer, identifier, null);
+    }
+
+    /**
+     * @param writer The writer to write the BSON to
+     * @param identifier Written as the _id of the top level document, or null to write none
+     * @param compressed Written as the {@link BlobCompressor#COMPRESSED_FIELD} binary of the top level document, or null to write none
+     */
+    public BsonJsonWriter(@NonNull BsonWriter writer, UUID identifier, byte[] compressed) {
+        this(writer, identifier, compressed, Set.of());
+    }
+
+    /**
+     * @param writer The writer to write the BSON to
+     * @param identifier Written as the _id of the top level document, or null to write none
+     * @param compressed Written as the {@link BlobCompressor#COMPRESSED_FIELD} binary of the top level document, or null to write none
+     * @param dateFields Dotted paths of the fields whose integers are written as dates
+     */
+    public BsonJsonWriter(@NonNull BsonWriter writer, UUID identifier, byte[] compressed, @NonNull Set<String> dateFields) {
+        super(UNWRITABLE_WRITER);
+        this.writer = writer;
+        this.identifier = identifier;
+        this.compressed = compressed;
+        this.dateFields = dateFields;
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        writePendingName();
+        writer.writeStartArray();
+        enter();
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        writer.writeEndArray();
+        depth--;
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        writePendingName();
+        writer.writeStartDocument();
+        if (enter() == 0 && identifier != null) {
+            writer.writeBinaryData("_id", new BsonBinary(identifier, UuidRepresentation.STANDARD));
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        if (--depth == 0 && compressed != null) {
+            writer.writeBinaryData(BlobCompressor.COMPRESSED_FIELD, new BsonBinary(compressed));
+        }
+        writer.writeEndDocument();
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(@NonNull String name) throws IOException {
+        if (pendingName != null) {
+            throw new IllegalStateException("Name %s is already pending".formatted(pendingName));
+        }
+        pendingName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writePendingName();
+        writer.writeString(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        writePendingName();
+        writer.writeBoolean(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        return value == null ? nullValue() : value((boolean) value);
+    }
+
+    @Override
+    public JsonWriter value(float value) throws IOException {
+        return value((double) value);
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        checkFinite(value);
+        writePendingName();
+        writer.writeDouble(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        writePendingName();
+        if (isDateField()) {
+            writer.writeDateTime(value);
+        } else if (value == (int) value) {
+            writer.writeInt32((int) value);
+        } else {
+            writer.writeInt64(value);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(value.longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return value(value.doubleValue());
+        }
+
+        // BigDecimal, BigInteger, LazilyParsedNumber & others, typed by their textual form like a JSON parser would
+        String text = value.toString();
+        try {
+            return value(Long.parseLong(text));
+        } catch (NumberFormatException ignored) {
+            // Not integral or out of range
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            writePendingName();
+            writer.writeDecimal128(new Decimal128(new BigDecimal(text)));
+            return this;
+        }
+        return value(Double.parseDouble(text));
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        if (pendingName != null && !getSerializeNulls()) {
+            // Skip the name & value, as JsonWriter does
+            pendingName = null;
+            return this;
+        }
+        writePendingName();
+        writer.writeNull();
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        write(JsonParser.parseString(value));
+        return this;
+    }
+
+    private void write(JsonElement element) throws IOException {
+        if (element.isJsonNull()) {
+            nullValue();
+        } else if (element instanceof JsonPrimitive primitive) {
+            if (primitive.isBoolean()) value(primitive.getAsBoolean());
+            else if (primitive.isNumber()) value(primitive.getAsNumber());
+            else value(primitive.getAsString());
+        } else if (element instanceof JsonArray array) {
+            beginArray();
+            for (JsonElement child : array) {
+                write(child);
+            }
+            endArray();
+        } else {
+            beginObject();
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                name(entry.getKey());
+                write(entry.getValue());
+            }
+            endObject();
+        }
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+
+    @Override
+    public void close() {
+        if (depth != 0) {
+            throw new IllegalStateException("Incomplete document");
+        }
+    }
+
+    private void writePendingName() {
+        currentName = pendingName;
+        if (pendingName != null) {
+            writer.writeName(pendingName);
+            pendingName = null;
+        }
+    }
+
+    /**
+     * Start a document or array named by the current name.
+     * @return The depth it's written at
+     */
+    private int enter() {
+        if (depth == names.length) names = Arrays.copyOf(names, depth * 2);
+        names[depth] = currentName;
+        return depth++;
+    }
+
+    /**
+     * @return true if the value being written is one of the date fields
+     */
+    private boolean isDateField() {
+        if (dateFields.isEmpty() || currentName == null) return false;
+        StringBuilder path = new StringBuilder();
+        // The top level document has no name
+        for (int i = 1; i < depth; i++) {
+            if (names[i] == null) return false;
+            path.append(names[i]).append('.');
+        }
+        return dateFields.contains(path.append(currentName).toString());
+    }
+
+    private void checkFinite(double value) {
+        if (!isLenient() && (Double.isNaN(value) || Double.isInfinite(value))) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+    }
+}
@@ -2,11 +2,17 @@ package not.savage.cereal.internal.platform.mongo;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import lombok.Getter;
 import not.savage.cereal.CerealLogger;
+import not.savage.cereal.annotation.MongoSettings;
 import not.savage.cereal.config.CerealConfig;
 import not.savage.cereal.exception.CacheInstantiationException;
 import not.savage.cereal.exception.DatasourceException;
@@ -14,18 +20,19 @@ import not.savage.cereal.internal.CerealCache;
 import not.savage.cereal.internal.CerealDataBlob;
 import not.savage.cereal.internal.CerealDatabase;
 import not.savage.cereal.internal.CerealDatasource;
-import org.bson.Document;
 import org.bson.UuidRepresentation;
 
-import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CerealMongoDatabase extends CerealDatabase implements CerealLogger {
 
     private MongoClient mongoClient;
     private MongoDatabase mongoDatabase;
-
-    // V is our data object, T is our cache
-    private final HashMap<Class<? extends CerealCache<?>>, CerealCache<? extends CerealDataBlob>> loadedCaches = new HashMap<>();
+    /**
+     * Runs saveAll chunks in parallel, each as its own bulk write.
+     */
+    @Getter private ExecutorService bulkExecutor;
 
     public CerealMongoDatabase(CerealConfig config) {
         super(config);
@@ -52,6 +59,8 @@ public class CerealMongoDatabase extends CerealDatabase implements CerealLogger
             return false;
         }
 
+        this.bulkExecutor = Executors.newFixedThreadPool(getConfig().getMongoDBConfig().getBulkParallelism());
+
         return true;
     }
 
@@ -59,7 +68,8 @@ public class CerealMongoDatabase extends CerealDatabase implements CerealLogger
     public void shutdown() {
         // Save all data
         debug("Saving all caches...");
-        this.loadedCaches.values().forEach(CerealCache::saveAll);
+        this.loadedCaches.values().forEach(CerealCache::shutdown);
+        this.bulkExecutor.shutdown();
         this.mongoClient.close();
     }
 
@@ -70,11 +80,43 @@ public class CerealMongoDatabase extends CerealDatabase implements CerealLogger
         // Overrides the code initializer of distinct to allow
         // Owners to edit the config to make specific datasource's distinct on their own usage.
         String name = classToCollectionName(cacheClass);
-        MongoCollection<Document> collection = mongoDatabase.getCollection(name);
-        CerealDatasource<V> source = new CerealMongoDatasource<>(dataObjectClass,  this, collection, getSerializers(cacheClass));
+        MongoCollection<V> collection = applySettings(mongoDatabase.getCollection(name, dataObjectClass), cacheClass);
+        MongoSettings settings = cacheClass.getAnnotation(MongoSettings.class);
+        int batchSize = settings != null ? settings.batchSize() : 0;
+        CerealDatasource<V> source = new CerealMongoDatasource<>(dataObjectClass,  this, collection, getSerializers(cacheClass), getIndexes(cacheClass), batchSize,
+                getCompressor(cacheClass, dataObjectClass));
+        source.setInterner(getInterner(cacheClass));
         source.start();
         CerealCache<V> cache = createNewCacheInstance(cacheClass);
         cache.setDependencies(source, getConfig());
         return cache;
     }
+
+    /**
+     * Apply the {@link MongoSettings} of a cache to its collection. The cursor batch size is applied by the datasource per query.
+     */
+    private <V> MongoCollection<V> applySettings(MongoCollection<V> collection, Class<? extends CerealCache<?>> cacheClass)
+            throws DatasourceException {
+        MongoSettings settings = cacheClass.getAnnotation(MongoSettings.class);
+        if (settings == null) return collection;
+
+        if (!settings.writeConcern().isEmpty()) {
+            WriteConcern writeConcern = WriteConcern.valueOf(settings.writeConcern());
+            if (writeConcern == null) {
+                throw new DatasourceException("Unknown write concern %s in %s".formatted(settings.writeConcern(), cacheClass.getName()));
+            }
+            collection = collection.withWriteConcern(writeConcern);
+        }
+        try {
+            if (!settings.readPreference().isEmpty()) {
+                collection = collection.withReadPreference(ReadPreference.valueOf(settings.readPreference()));
+            }
+            if (!settings.readConcern().isEmpty()) {
+                collection = collection.withReadConcern(new ReadConcern(ReadConcernLevel.fromString(settings.readConcern())));
+            }
+        } catch (IllegalArgumentException er) {
+            throw new DatasourceException("Invalid MongoSettings in %s: %s".formatted(cacheClass.getName(), er.getMessage()), er);
+        }
+        return collection;
+    }
 }
@@ -1,25 +1,55 @@
 package not.savage.cereal.internal.platform.mongo;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
 import lombok.NonNull;
 import not.savage.cereal.CerealLogger;
+import not.savage.cereal.IncrementResult;
+import not.savage.cereal.Projection;
 import not.savage.cereal.TypeSerializer;
+import not.savage.cereal.annotation.Index;
+import not.savage.cereal.exception.DataPersistenceException;
 import not.savage.cereal.exception.DatasourceException;
+import not.savage.cereal.internal.BlobCompressor;
 import not.savage.cereal.internal.CerealDataBlob;
 import not.savage.cereal.internal.CerealDatabase;
 import not.savage.cereal.internal.CerealDatasource;
+import not.savage.cereal.internal.FieldPaths;
 import not.savage.cereal.sort.CerealFilterMode;
 import not.savage.cereal.sort.CerealSortMode;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonString;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
+import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.mongodb.client.model.Filters.eq;
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
 
 /**
  * A MongoDB implementation of the {@link CerealDatasource} interface.
@@ -27,16 +57,47 @@ import static com.mongodb.client.model.Filters.eq;
  */
 public class CerealMongoDatasource<T extends CerealDataBlob> extends CerealDatasource<T> implements CerealLogger {
 
-    private final Class<T> clazz;
-    private Gson gson;
+    /**
+     * Write error codes of transient failures, such as write conflicts & primary step downs, worth retrying.
+     * Anything else (duplicate keys, validation failures, oversized documents) fails the same way on every attempt.
+     */
+    private static final Set<Integer> RETRYABLE_WRITE_ERRORS = Set.of(24, 50, 91, 112, 189, 262, 10107, 11600, 11601, 13435, 13436);
 
-    private final MongoCollection<Document> datastore;
+    private final CerealMongoDatabase database;
+    /**
+     * The collection typed to the data blob, decoded & encoded by {@link #codec} once started.
+     */
+    private MongoCollection<T> datastore;
+    private GsonBsonCodec<T> codec;
+    private final Index[] indexes;
+    /**
+     * Fields of the TTL indexes, stored as dates as MongoDB only expires documents by dates.
+     */
+    private Set<String> dateFields = Set.of();
+    /**
+     * Documents per cursor batch of multi document queries, 0 for the server default.
+     */
+    private final int batchSize;
+    /**
+     * Compresses the documents of a {@link not.savage.cereal.annotation.Compressed} cache, null if it isn't compressed.
+     */
+    private final BlobCompressor compressor;
+    /**
+     * Top level fields of a compressed object which are only stored within the compressed object, see {@link #toUpsert(CerealDataBlob)}.
+     */
+    private volatile BsonDocument compressedOnly;
 
-    public CerealMongoDatasource(Class<T> clazz, CerealDatabase database, MongoCollection<Document> document, TypeSerializer<?>[] serializers) {
-        super(database);
-        this.database = database;
-        this.clazz = clazz;
-        this.datastore = document;
+    public CerealMongoDatasource(Class<T> clazz, CerealDatabase database, MongoCollection<T> collection, TypeSerializer<?>[] serializers,
+                                 Index[] indexes, int batchSize, BlobCompressor compressor) {
+        super(clazz, database);
+        if (!(database instanceof CerealMongoDatabase)) {
+            throw new IllegalArgumentException("CerealMongoDatasource requires a CerealMongoDatabase");
+        }
+        this.database = (CerealMongoDatabase) database;
+        this.datastore = collection;
+        this.indexes = indexes;
+        this.batchSize = batchSize;
+        this.compressor = compressor;
 
         for (TypeSerializer<?> serializer : serializers) {
             this.builder.registerTypeAdapter(getTypeClass(serializer), serializer);
@@ -46,65 +107,353 @@ public class CerealMongoDatasource<T extends CerealDataBlob> extends CerealDatas
     public void start() throws DatasourceException {
         debug("Starting mongo datasource for %s", clazz.getName());
         this.gson = builder.create();
+        this.dateFields = findDateFields();
+        this.codec = new GsonBsonCodec<>(clazz, gson, compressor, dateFields);
+        this.datastore = datastore.withCodecRegistry(fromRegistries(fromCodecs(codec), datastore.getCodecRegistry()));
+        createIndexes();
+    }
+
+    /**
+     * @return The fields of the TTL indexes
+     * @throws DatasourceException if a TTL index has more than one field, or its field isn't a long
+     */
+    private Set<String> findDateFields() throws DatasourceException {
+        Set<String> fields = new HashSet<>();
+        for (Index index : indexes) {
+            if (index.expireAfterSeconds() < 0) continue;
+            if (index.value().length != 1) {
+                throw new DatasourceException("TTL index %s of %s must have a single field".formatted(Arrays.toString(index.value()), clazz.getName()));
+            }
+            String field = FieldPaths.validate(index.value()[0]);
+            // Only checked where the path resolves to declared fields, e.g. not through map keys
+            Class<?> type = clazz;
+            for (String name : field.split("\\.")) {
+                Optional<Field> found = FieldPaths.findField(type, name);
+                if (found.isEmpty()) {
+                    type = null;
+                    break;
+                }
+                type = found.get().getType();
+            }
+            if (type != null && type != long.class && type != Long.class) {
+                throw new DatasourceException("TTL index field %s of %s must be a long of epoch milliseconds".formatted(field, clazz.getName()));
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    /**
+     * Create the declared {@link Index}es. Creating an index which already exists with the same options is a no-op,
+     * an index which exists with different options is left as-is & logged, as rebuilding it could lock the collection.
+     */
+    private void createIndexes() {
+        for (Index index : indexes) {
+            Document keys = new Document();
+            String[] fields = index.value();
+            for (int i = 0; i < fields.length; i++) {
+                boolean descending = i < index.order().length && index.order()[i] == CerealSortMode.DESCENDING;
+                keys.append(FieldPaths.validate(fields[i]), descending ? -1 : 1);
+            }
+
+            IndexOptions options = new IndexOptions().unique(index.unique());
+            if (index.expireAfterSeconds() >= 0) {
+                options.expireAfter(index.expireAfterSeconds(), TimeUnit.SECONDS);
+            }
+            if (!index.partialFilter().isEmpty()) {
+                options.partialFilterExpression(Document.parse(index.partialFilter()));
+            }
+
+            try {
+                debug("Creating index %s on %s", keys.toJson(), datastore.getNamespace());
+                datastore.createIndexes(List.of(new IndexModel(keys, options)));
+            } catch (MongoCommandException e) {
+                error("Failed to create index %s on %s, an index with different options likely exists", e, keys.toJson(), datastore.getNamespace());
+            }
+        }
     }
 
     @Override
     public void save(@NonNull T t) {
         debug("Saving object with key \"%s\" to file datasource", t.getIdentifier());
         t.lastSaved();
-        Document doc = Document.parse(this.gson.toJson(t));
-        doc.put("_id", t.getIdentifier());
-        UpdateOptions opts = new UpdateOptions().upsert(true);
-        datastore.updateOne(new Document("_id", t.getIdentifier()), new Document("$set", doc), opts);
+        Document filter = new Document("_id", t.getIdentifier());
+        if (getCounterFields().isEmpty()) {
+            datastore.replaceOne(filter, t, new ReplaceOptions().upsert(true));
+        } else {
+            datastore.updateOne(filter, toUpsert(t), new UpdateOptions().upsert(true));
+        }
     }
 
+    @Override
+    public void saveFields(@NonNull T t, @NonNull String... fields) {
+        debug("Saving fields %s of object with key \"%s\" to mongo datasource", Arrays.toString(fields), t.getIdentifier());
+        if (!isQueryable(fields)) {
+            // Part of the compressed object, which can only be rewritten as a whole
+            save(t);
+            return;
+        }
+        JsonObject changes = new JsonObject();
+        for (String field : fields) {
+            changes.add(FieldPaths.validate(field), FieldPaths.resolve(t, field).map(gson::toJsonTree).orElse(JsonNull.INSTANCE));
+        }
+        BsonDocument set = new BsonDocument();
+        gson.toJson(changes, new BsonJsonWriter(new BsonDocumentWriter(set), null, null, dateFields));
+        t.lastSaved();
+        UpdateResult result = datastore.updateOne(new Document("_id", t.getIdentifier()), new BsonDocument("$set", set));
+        if (result.getMatchedCount() == 0) {
+            // Not stored yet, the partial document isn't enough to load from.
+            save(t);
+        }
+    }
+
+    /**
+     * Save all objects as unordered bulk writes, split into chunks which are written in parallel.
+     * A failing document doesn't stop the rest of its chunk, and documents which failed transiently are retried on their own.
+     */
     @Override
     public void saveAll(@NonNull Set<T> all) {
-        List<WriteModel<Document>> writeModels = new ArrayList<>();
-        for (T t : all) {
-            t.lastSaved();
-            Document doc = Document.parse(this.gson.toJson(t));
-            doc.put("_id", t.getIdentifier());
-            writeModels.add(new UpdateOneModel<>(
-                    new Document("_id", t.getIdentifier()),
-                    new Document("$set", doc),
-                    new UpdateOptions().upsert(true)
-            ));
+        debug("Saving all objects... (%d objects)", all.size());
+        if (all.isEmpty()) return;
+
+        int chunkSize = database.getConfig().getMongoDBConfig().getBulkChunkSize();
+        List<T> objects = new ArrayList<>(all);
+        List<CompletableFuture<ChunkResult>> chunks = new ArrayList<>();
+        for (int from = 0; from < objects.size(); from += chunkSize) {
+            List<T> chunk = objects.subList(from, Math.min(from + chunkSize, objects.size()));
+            int chunkIndex = chunks.size();
+            chunks.add(CompletableFuture.supplyAsync(() -> saveChunk(chunkIndex, chunk), database.getBulkExecutor()));
+        }
+
+        int written = 0;
+        int failed = 0;
+        for (CompletableFuture<ChunkResult> chunk : chunks) {
+            ChunkResult result = chunk.join();
+            written += result.written();
+            failed += result.failed();
+        }
+        if (failed > 0) {
+            error("Failed to save %d of %d objects to %s".formatted(failed, objects.size(), datastore.getNamespace()));
+        } else {
+            debug("Saved %d objects in %d chunks to %s", written, chunks.size(), datastore.getNamespace());
         }
+    }
+
+    /**
+     * The outcome of writing one saveAll chunk.
+     * @param written Documents written
+     * @param failed Documents which still failed after retrying
+     */
+    private record ChunkResult(int written, int failed) {
+    }
 
-        BulkWriteResult result = datastore.bulkWrite(writeModels);
-        debug("Saved %d objects to MongoDB datasource", result.getModifiedCount());
+    /**
+     * Write a chunk as one unordered bulk write, retrying only the documents which failed transiently.
+     */
+    private ChunkResult saveChunk(int chunkIndex, @NonNull List<T> chunk) {
+        int retries = database.getConfig().getMongoDBConfig().getBulkRetries();
+        List<T> pending = chunk;
+        int written = 0;
+        int failed = 0;
+        for (int attempt = 0; ; attempt++) {
+            List<WriteModel<T>> writeModels = new ArrayList<>(pending.size());
+            for (T t : pending) {
+                t.lastSaved();
+                writeModels.add(toWriteModel(t));
+            }
+
+            try {
+                datastore.bulkWrite(writeModels, new BulkWriteOptions().ordered(false));
+                return new ChunkResult(written + pending.size(), failed);
+            } catch (MongoBulkWriteException er) {
+                if (er.getWriteConcernError() != null) {
+                    error("Chunk %d of %s was written but not acknowledged by the write concern: %s"
+                            .formatted(chunkIndex, datastore.getNamespace(), er.getWriteConcernError().getMessage()));
+                }
+
+                List<T> retry = new ArrayList<>();
+                for (BulkWriteError writeError : er.getWriteErrors()) {
+                    T t = pending.get(writeError.getIndex());
+                    if (attempt < retries && RETRYABLE_WRITE_ERRORS.contains(writeError.getCode())) {
+                        retry.add(t);
+                    } else {
+                        failed++;
+                        error("Failed to save object with key \"%s\" to %s: %s",
+                                new DataPersistenceException("Failed to save object in bulk write.", er),
+                                t.getIdentifier(), datastore.getNamespace(), writeError.getMessage());
+                    }
+                }
+                written += pending.size() - er.getWriteErrors().size();
+                if (retry.isEmpty()) {
+                    return new ChunkResult(written, failed);
+                }
+                debug("Retrying %d objects of chunk %d in %s", retry.size(), chunkIndex, datastore.getNamespace());
+                pending = retry;
+            } catch (MongoException er) {
+                // Nothing is known to be written, e.g. a network error which outlasted the driver's own retry
+                if (attempt >= retries) {
+                    error("Failed to save chunk %d containing %d objects (first key %s)",
+                            new DataPersistenceException("Failed to save data chunk.", er),
+                            chunkIndex, pending.size(), pending.getFirst().getIdentifier());
+                    return new ChunkResult(written, failed + pending.size());
+                }
+                debug("Retrying chunk %d in %s: %s", chunkIndex, datastore.getNamespace(), er.getMessage());
+            }
+        }
     }
 
+    /**
+     * Replace the whole stored document, which is encoded straight to the wire by the codec.
+     * Caches with counter fields upsert with {@link #toUpsert(CerealDataBlob)} instead, so stored counters aren't overwritten.
+     */
+    private WriteModel<T> toWriteModel(T t) {
+        Document filter = new Document("_id", t.getIdentifier());
+        if (getCounterFields().isEmpty()) {
+            return new ReplaceOneModel<>(filter, t, new ReplaceOptions().upsert(true));
+        }
+        return new UpdateOneModel<>(filter, toUpsert(t), new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Increments every key with a single $inc in an unordered bulk write. Creatable keys are upserted, so their deltas
+     * are never lost to a document inserted concurrently, & those which weren't stored yet are created holding only
+     * their counters & returned, so the caller saves them in full. Other keys which aren't stored are skipped.
+     * The increments of a bulk write which fails part way through are applied except for its failed writes, so only
+     * those are returned as failed.
+     */
     @Override
-    public @NonNull Optional<T> getByField(@NonNull String field, @NonNull Object value) {
-        Document document = datastore.find(new Document(field, value)).first();
-        if (document == null || document.isEmpty()) {
-            return Optional.empty();
+    public @NonNull IncrementResult<UUID> incrementAll(@NonNull Map<UUID, Map<String, Long>> deltas, @NonNull Set<UUID> creatable) {
+        debug("Incrementing counters of %d objects in mongo datasource", deltas.size());
+        List<UUID> keys = new ArrayList<>(deltas.keySet());
+        List<WriteModel<T>> writeModels = new ArrayList<>(keys.size());
+        for (UUID key : keys) {
+            Document inc = new Document();
+            deltas.get(key).forEach((field, delta) -> inc.put(FieldPaths.validate(field), delta));
+            writeModels.add(new UpdateOneModel<>(eq("_id", key), new Document("$inc", inc), new UpdateOptions().upsert(creatable.contains(key))));
+        }
+
+        BulkWriteResult result;
+        Set<UUID> failed = new HashSet<>();
+        try {
+            result = datastore.bulkWrite(writeModels, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException er) {
+            if (er.getWriteConcernError() != null) {
+                // Applied, retrying would count them twice
+                error("Counter increments in %s were written but not acknowledged by the write concern: %s"
+                        .formatted(datastore.getNamespace(), er.getWriteConcernError().getMessage()));
+            }
+            for (BulkWriteError writeError : er.getWriteErrors()) {
+                UUID key = keys.get(writeError.getIndex());
+                failed.add(key);
+                error("Failed to increment counters of object with key \"%s\" in %s: %s",
+                        new DataPersistenceException("Failed to increment counters in bulk write.", er),
+                        key, datastore.getNamespace(), writeError.getMessage());
+            }
+            result = er.getWriteResult();
+        }
+
+        Set<UUID> missing = new HashSet<>();
+        if (result.wasAcknowledged()) {
+            result.getUpserts().forEach(upsert -> missing.add(keys.get(upsert.getIndex())));
+            int skipped = keys.size() - failed.size() - missing.size() - result.getMatchedCount();
+            if (skipped > 0) {
+                error("Dropped counter increments for %d objects in %s, they aren't stored or cached".formatted(skipped, datastore.getNamespace()));
+            }
+        }
+        return new IncrementResult<>(missing, failed);
+    }
+
+    /**
+     * Create an upsert of the whole object. Counter fields are only written on insert
+     * so increments from other nodes aren't overwritten by a full save.
+     * Compressed objects unset the fields which are only stored compressed, left behind if the document was stored
+     * before the cache was compressed.
+     */
+    private BsonDocument toUpsert(T t) {
+        BsonDocument set = codec.toDocument(t);
+        BsonDocument update = new BsonDocument("$set", set);
+        BsonDocument counters = new BsonDocument();
+        for (String field : getCounterFields()) {
+            BsonValue value = set.remove(field);
+            if (value != null) {
+                counters.put(field, value);
+            }
+        }
+        if (!counters.isEmpty()) {
+            update.append("$setOnInsert", counters);
+        }
+        if (compressor == null) {
+            // Drop the compressed object left behind if the cache used to be compressed
+            update.append("$unset", new BsonDocument(BlobCompressor.COMPRESSED_FIELD, new BsonString("")));
+        } else {
+            BsonDocument unset = getCompressedOnly(t);
+            if (!unset.isEmpty()) {
+                update.append("$unset", unset);
+            }
+        }
+        return update;
+    }
+
+    /**
+     * The top level fields of the object which aren't stored uncompressed, found once from the first object saved,
+     * as nulls are serialized so every object has the same fields.
+     */
+    private BsonDocument getCompressedOnly(T t) {
+        BsonDocument unset = compressedOnly;
+        if (unset != null) return unset;
+        Set<String> stored = new HashSet<>();
+        compressor.getUncompressedFields().forEach(field -> stored.add(field.split("\\.")[0]));
+        unset = new BsonDocument();
+        for (String field : gson.toJsonTree(t, clazz).getAsJsonObject().keySet()) {
+            if (!stored.contains(field)) {
+                unset.append(field, new BsonString(""));
+            }
+        }
+        this.compressedOnly = unset;
+        return unset;
+    }
+
+    /**
+     * @return true if the fields are stored as document fields, which isn't the case for most fields of compressed caches
+     */
+    private boolean isQueryable(@NonNull String... fields) {
+        if (compressor == null) return true;
+        for (String field : fields) {
+            if (!compressor.isUncompressed(field)) return false;
+        }
+        return true;
+    }
+
+    private void requireQueryable(@NonNull String... fields) {
+        if (compressor != null) {
+            compressor.requireUncompressed(fields);
         }
-        return Optional.ofNullable(gson.fromJson(document.toJson(), clazz));
+    }
+
+    @Override
+    public @NonNull Optional<T> getByField(@NonNull String field, @NonNull Object value) {
+        requireQueryable(field);
+        return Optional.ofNullable(datastore.find(new Document(field, queryValue(field, value))).first());
     }
 
     @Override
     public @NonNull Set<T> getAllByField(String field, Object value, int limit) {
+        requireQueryable(field);
+        Bson filter = eq(field, queryValue(field, value));
         if (limit == -1) {
-            return datastore.find(eq(field, value)).map(document -> gson.fromJson(document.toJson(), clazz)).into(new HashSet<>());
+            return batched(datastore.find(filter)).into(new HashSet<>());
         }
-        return datastore.find(eq(field, value)).limit(limit).map(document -> gson.fromJson(document.toJson(), clazz)).into(new HashSet<>());
+        return batched(datastore.find(filter)).limit(limit).into(new HashSet<>());
     }
 
     @Override
     public @NonNull Optional<T> get(@NonNull UUID key) {
-        Document document = datastore.find(new Document("_id", key)).first();
-        if (document == null || document.isEmpty()) {
-            return Optional.empty();
-        }
-        return Optional.ofNullable(gson.fromJson(document.toJson(), clazz));
+        return Optional.ofNullable(datastore.find(new Document("_id", key)).first());
     }
 
     @Override
     public @NonNull Set<T> getAll() {
-        return new HashSet<>(datastore.find().map(document -> gson.fromJson(document.toJson(), clazz)).into(new ArrayList<>()));
+        return batched(datastore.find()).into(new HashSet<>());
     }
 
     @Override
@@ -120,6 +469,8 @@ public class CerealMongoDatasource<T extends CerealDataBlob> extends CerealDatas
             int limit
     ) {
 
+        requireQueryable(filterByField, sortByField);
+        filterFor = queryValue(filterByField, filterFor);
         Document sortDoc = new Document(sortByField, sortMode == CerealSortMode.ASCENDING ? 1 : -1);
         Document filterDoc = switch (filterMode) {
             case CerealFilterMode.EQUAL -> new Document(filterByField, filterFor);
@@ -132,17 +483,91 @@ public class CerealMongoDatasource<T extends CerealDataBlob> extends CerealDatas
         };
 
         if (limit == -1) {
-            return datastore.find(filterDoc)
+            return batched(datastore.find(filterDoc))
                     .sort(sortDoc)
-                    .map(document -> gson.fromJson(document.toJson(), clazz))
                     .into(new HashSet<>());
         }
 
         return
-                datastore.find(filterDoc)
+                batched(datastore.find(filterDoc))
                         .sort(sortDoc)
                         .limit(limit)
-                        .map(document -> gson.fromJson(document.toJson(), clazz))
                         .into(new HashSet<>());
     }
+
+    @Override
+    public @NonNull Optional<Projection<UUID>> getProjected(@NonNull UUID key, @NonNull String... fields) {
+        if (!isQueryable(fields)) {
+            return get(key).map(t -> project(t, fields));
+        }
+        Document document = project(datastore.find(new Document("_id", key), Document.class), fields).first();
+        if (document == null || document.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(toProjection(document, fields));
+    }
+
+    @Override
+    public @NonNull Set<Projection<UUID>> getAllProjected(@NonNull String... fields) {
+        if (!isQueryable(fields)) {
+            return getAll().stream().map(t -> project(t, fields)).collect(HashSet::new, HashSet::add, HashSet::addAll);
+        }
+        return project(batched(datastore.find(Document.class)), fields)
+                .map(document -> toProjection(document, fields))
+                .into(new HashSet<>());
+    }
+
+    @Override
+    public @NonNull Set<Projection<UUID>> getAllByFieldProjected(@NonNull String field, @NonNull Object value, int limit, @NonNull String... fields) {
+        requireQueryable(field);
+        if (!isQueryable(fields)) {
+            return getAllByField(field, value, limit).stream().map(t -> project(t, fields)).collect(HashSet::new, HashSet::add, HashSet::addAll);
+        }
+        FindIterable<Document> find = project(batched(datastore.find(eq(field, queryValue(field, value)), Document.class)), fields);
+        if (limit != -1) {
+            find = find.limit(limit);
+        }
+        return find.map(document -> toProjection(document, fields)).into(new HashSet<>());
+    }
+
+    /**
+     * Numbers compared against a field stored as a date are converted to the date of that many epoch milliseconds.
+     */
+    private Object queryValue(String field, Object value) {
+        return value instanceof Number number && dateFields.contains(field) ? new Date(number.longValue()) : value;
+    }
+
+    /**
+     * Apply the configured cursor batch size to a query which may return many documents.
+     */
+    private <R> FindIterable<R> batched(FindIterable<R> find) {
+        return batchSize > 0 ? find.batchSize(batchSize) : find;
+    }
+
+    /**
+     * Apply a projection to a query so only the selected fields & _id are returned by the server.
+     */
+    private FindIterable<Document> project(FindIterable<Document> find, String... fields) {
+        List<String> include = new ArrayList<>(fields.length);
+        for (String field : fields) {
+            include.add(FieldPaths.validate(field));
+        }
+        Bson projection = Projections.include(include);
+        return find.projection(projection);
+    }
+
+    private Projection<UUID> toProjection(Document document, String... fields) {
+        Map<String, JsonElement> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            Object value = document.getEmbedded(List.of(field.split("\\.")), Object.class);
+            if (value instanceof Date date) {
+                // Read back as its milliseconds, like the codec does
+                value = date.getTime();
+            }
+            if (value != null) {
+                values.put(field, gson.toJsonTree(value));
+            }
+        }
+        return new Projection<>(document.get("_id", UUID.class), values, gson);
+    }
 }
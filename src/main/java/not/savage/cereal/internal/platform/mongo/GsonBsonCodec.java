@@ -0,0 +1,166 @@
+package not.savage.cereal.internal.platform.mongo;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import lombok.NonNull;
+import not.savage.cereal.internal.BlobCompressor;
+import not.savage.cereal.internal.CerealDataBlob;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Decimal128;
+
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Codec which (de)serializes data blobs with the datasource's Gson, straight from & to BSON.
+ * Writes stream through {@link BsonJsonWriter}, reads build the JsonElement tree Gson binds from directly off the
+ * {@link BsonReader}, so neither direction goes through a JSON string or an intermediate {@link org.bson.Document}.
+ * Compressed caches store their uncompressed fields next to the compressed object, in a binary field.
+ * Date fields hold epoch milliseconds & are stored as BSON dates, which are read back as their milliseconds.
+ * @param <T> The type of data blob
+ */
+public class GsonBsonCodec<T extends CerealDataBlob> implements Codec<T> {
+
+    private final Class<T> clazz;
+    private final Gson gson;
+    /**
+     * Compresses the documents of a {@link not.savage.cereal.annotation.Compressed} cache, null if it isn't compressed.
+     */
+    private final BlobCompressor compressor;
+    /**
+     * Dotted paths of the fields stored as dates, see {@link BsonJsonWriter}.
+     */
+    private final Set<String> dateFields;
+
+    public GsonBsonCodec(@NonNull Class<T> clazz, @NonNull Gson gson, BlobCompressor compressor, @NonNull Set<String> dateFields) {
+        this.clazz = clazz;
+        this.gson = gson;
+        this.compressor = compressor;
+        this.dateFields = dateFields;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        if (compressor == null) {
+            gson.toJson(value, clazz, new BsonJsonWriter(writer, value.getIdentifier(), null, dateFields));
+            return;
+        }
+        JsonObject tree = gson.toJsonTree(value, clazz).getAsJsonObject();
+        gson.toJson(compressor.uncompressed(tree), new BsonJsonWriter(writer, value.getIdentifier(), compressor.compress(tree), dateFields));
+    }
+
+    /**
+     * Serialize a value into a standalone BSON document, e.g. to build an update from.
+     * @param value The value to serialize
+     * @return The document, with the identifier as _id
+     */
+    public @NonNull BsonDocument toDocument(@NonNull T value) {
+        BsonDocument document = new BsonDocument();
+        encode(new BsonDocumentWriter(document), value, EncoderContext.builder().build());
+        return document;
+    }
+
+    /**
+     * Documents with a compressed object are restored from it, whether or not the cache is still compressed.
+     */
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        JsonObject object = new JsonObject();
+        byte[] compressed = null;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (name.equals("_id")) {
+                reader.skipValue();
+            } else if (name.equals(BlobCompressor.COMPRESSED_FIELD) && reader.getCurrentBsonType() == BsonType.BINARY) {
+                compressed = reader.readBinaryData().getData();
+            } else {
+                object.add(name, readValue(reader));
+            }
+        }
+        reader.readEndDocument();
+        return gson.fromJson(BlobCompressor.restore(compressor, compressed, object), clazz);
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return clazz;
+    }
+
+    /**
+     * Read the embedded document the reader is positioned at.
+     */
+    private static JsonObject readDocument(BsonReader reader) {
+        JsonObject object = new JsonObject();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            object.add(reader.readName(), readValue(reader));
+        }
+        reader.readEndDocument();
+        return object;
+    }
+
+    /**
+     * Read the value the reader is positioned at, mapped to the JSON Gson would have written for it.
+     * Types Gson never writes map to their closest JSON form, e.g. UUID binaries & object ids to strings.
+     */
+    private static JsonElement readValue(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case DOCUMENT -> readDocument(reader);
+            case ARRAY -> {
+                JsonArray array = new JsonArray();
+                reader.readStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    array.add(readValue(reader));
+                }
+                reader.readEndArray();
+                yield array;
+            }
+            case STRING -> new JsonPrimitive(reader.readString());
+            case INT32 -> new JsonPrimitive(reader.readInt32());
+            case INT64 -> new JsonPrimitive(reader.readInt64());
+            case DOUBLE -> new JsonPrimitive(reader.readDouble());
+            case DECIMAL128 -> {
+                Decimal128 decimal = reader.readDecimal128();
+                yield decimal.isFinite() ? new JsonPrimitive(decimal.bigDecimalValue()) : new JsonPrimitive(decimal.toString());
+            }
+            case BOOLEAN -> new JsonPrimitive(reader.readBoolean());
+            case DATE_TIME -> new JsonPrimitive(reader.readDateTime());
+            case TIMESTAMP -> new JsonPrimitive(reader.readTimestamp().getValue());
+            case OBJECT_ID -> new JsonPrimitive(reader.readObjectId().toHexString());
+            case SYMBOL -> new JsonPrimitive(reader.readSymbol());
+            case BINARY -> {
+                BsonBinary binary = reader.readBinaryData();
+                if (binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue()) {
+                    yield new JsonPrimitive(binary.asUuid(UuidRepresentation.STANDARD).toString());
+                }
+                if (binary.getType() == BsonBinarySubType.UUID_LEGACY.getValue()) {
+                    yield new JsonPrimitive(binary.asUuid(UuidRepresentation.JAVA_LEGACY).toString());
+                }
+                yield new JsonPrimitive(Base64.getEncoder().encodeToString(binary.getData()));
+            }
+            case NULL -> {
+                reader.readNull();
+                yield JsonNull.INSTANCE;
+            }
+            default -> {
+                reader.skipValue();
+                yield JsonNull.INSTANCE;
+            }
+        };
+    }
+}
@@ -2,10 +2,15 @@ package not.savage.cereal.internal.platform.sql;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import com.zaxxer.hikari.pool.HikariPool;
 import lombok.Getter;
 import not.savage.cereal.CerealLogger;
+import not.savage.cereal.annotation.Index;
 import not.savage.cereal.config.CerealConfig;
+import not.savage.cereal.config.Mode;
+import not.savage.cereal.config.sub.SQLPoolConfig;
+import not.savage.cereal.config.sub.SQLReplicaRouting;
 import not.savage.cereal.exception.CacheInstantiationException;
 import not.savage.cereal.exception.DatasourceException;
 import not.savage.cereal.internal.CerealCache;
@@ -13,10 +18,52 @@ import not.savage.cereal.internal.CerealDataBlob;
 import not.savage.cereal.internal.CerealDatabase;
 import not.savage.cereal.internal.CerealDatasource;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SQL implementation of CerealDatabase, backed by a Hikari connection pool on the primary
+ * and optionally one per read replica, see {@link #getReadConnection()}.
+ * Serves both {@link Mode#SQL} (MySQL/MariaDB) & {@link Mode#POSTGRES}, the engine specific SQL
+ * is chosen per table through {@link #createDialect(String, Set, Index[], boolean)}.
+ */
 @Getter
 public class CerealSQLDatabase extends CerealDatabase implements CerealLogger {
 
-    private HikariDataSource dataSource;
+    protected HikariDataSource dataSource;
+    /**
+     * Runs saveAll chunks in parallel, each on its own pooled connection.
+     */
+    protected ExecutorService batchExecutor;
+    /**
+     * Pools of the configured read replicas, empty if reads go to the primary.
+     */
+    protected final List<HikariDataSource> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    /**
+     * When each replica which failed to hand out a connection is tried again, 0 if it's healthy. Backed off replicas
+     * are skipped, so a dead replica doesn't hold every read for the pool's connection timeout.
+     */
+    private AtomicLongArray replicaRetryAt;
+    /**
+     * Consecutive failures of each replica, doubling its back-off up to {@link #MAX_REPLICA_BACKOFF_MILLIS}.
+     */
+    private AtomicIntegerArray replicaFailures;
+    private static final long REPLICA_BACKOFF_MILLIS = 1000;
+    private static final long MAX_REPLICA_BACKOFF_MILLIS = 60_000;
+    /**
+     * Connection level metrics of every pool, see {@link #getPoolStats()}.
+     */
+    protected final SQLPoolMetrics poolMetrics = new SQLPoolMetrics();
 
     public CerealSQLDatabase(CerealConfig config) {
         super(config);
@@ -29,16 +76,21 @@ public class CerealSQLDatabase extends CerealDatabase implements CerealLogger {
             return false;
         }
 
-        HikariConfig sqlConfig = new HikariConfig();
-        sqlConfig.setJdbcUrl(getConfig().getSqlConfig().getJdbcUrl());
-        sqlConfig.setUsername(getConfig().getSqlConfig().getUsername());
-        sqlConfig.setPassword(getConfig().getSqlConfig().getPassword());
-        sqlConfig.addDataSourceProperty("cachePrepStmts", "true");
-        sqlConfig.addDataSourceProperty("prepStmtCacheSize", "250");
-        sqlConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-
         try {
-            this.dataSource = new HikariDataSource(sqlConfig);
+            this.dataSource = new HikariDataSource(createPoolConfig(getConfig().getSqlConfig().getJdbcUrl(), "cereal-primary"));
+            List<String> replicaUrls = getConfig().getSqlConfig().getReplicaJdbcUrls();
+            for (int i = 0; i < replicaUrls.size(); i++) {
+                HikariConfig replicaConfig = createPoolConfig(replicaUrls.get(i), "cereal-replica-" + i);
+                replicaConfig.setReadOnly(true);
+                // A replica which is down doesn't stop the start, reads back off from it instead
+                replicaConfig.setInitializationFailTimeout(-1);
+                this.replicas.add(new HikariDataSource(replicaConfig));
+            }
+            this.replicaRetryAt = new AtomicLongArray(replicas.size());
+            this.replicaFailures = new AtomicIntegerArray(replicas.size());
+            if (!replicas.isEmpty()) {
+                log("Routing reads over %d SQL replicas (%s)", replicas.size(), getConfig().getSqlConfig().getReplicaRouting());
+            }
         } catch (Exception e) {
             if (e instanceof HikariPool.PoolInitializationException) {
                 // Faster to check for this exception than to check the message
@@ -53,17 +105,181 @@ public class CerealSQLDatabase extends CerealDatabase implements CerealLogger {
             return false;
         }
 
+        this.batchExecutor = Executors.newFixedThreadPool(getConfig().getSqlConfig().getBatchParallelism());
         return true;
     }
 
+    private HikariConfig createPoolConfig(String jdbcUrl, String poolName) {
+        HikariConfig sqlConfig = new HikariConfig();
+        sqlConfig.setJdbcUrl(jdbcUrl);
+        sqlConfig.setPoolName(poolName);
+        sqlConfig.setUsername(getConfig().getSqlConfig().getUsername());
+        sqlConfig.setPassword(getConfig().getSqlConfig().getPassword());
+        if (getConfig().getMode() == Mode.POSTGRES) {
+            sqlConfig.addDataSourceProperty("reWriteBatchedInserts", "true");
+        } else {
+            sqlConfig.addDataSourceProperty("cachePrepStmts", "true");
+            sqlConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+            sqlConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        }
+
+        SQLPoolConfig pool = getConfig().getSqlConfig().getPool();
+        sqlConfig.setMaximumPoolSize(pool.maximumPoolSize() > 0 ? pool.maximumPoolSize() : defaultPoolSize());
+        applyPoolConfig(sqlConfig, pool);
+        return sqlConfig;
+    }
+
+    /**
+     * Async reads run on the common pool & saveAll chunks on the batch executor, so a pool any smaller
+     * leaves those threads queueing for connections under load.
+     */
+    private int defaultPoolSize() {
+        return Math.max(10, ForkJoinPool.getCommonPoolParallelism() + getConfig().getSqlConfig().getBatchParallelism());
+    }
+
+    /**
+     * Apply the configured pool settings which aren't left at their default, and register the pool metrics.
+     * @param hikariConfig The pool to configure
+     * @param pool The pool settings
+     */
+    protected void applyPoolConfig(HikariConfig hikariConfig, SQLPoolConfig pool) {
+        if (pool.minimumIdle() > 0) hikariConfig.setMinimumIdle(Math.min(pool.minimumIdle(), hikariConfig.getMaximumPoolSize()));
+        if (pool.connectionTimeoutMillis() > 0) hikariConfig.setConnectionTimeout(pool.connectionTimeoutMillis());
+        if (pool.idleTimeoutMillis() > 0) hikariConfig.setIdleTimeout(pool.idleTimeoutMillis());
+        if (pool.maxLifetimeMillis() > 0) hikariConfig.setMaxLifetime(pool.maxLifetimeMillis());
+        if (pool.keepaliveTimeMillis() > 0) hikariConfig.setKeepaliveTime(pool.keepaliveTimeMillis());
+        if (pool.leakDetectionThresholdMillis() > 0) hikariConfig.setLeakDetectionThreshold(pool.leakDetectionThresholdMillis());
+        if (pool.validationTimeoutMillis() > 0) hikariConfig.setValidationTimeout(pool.validationTimeoutMillis());
+        pool.getDataSourceProperties().forEach(hikariConfig::addDataSourceProperty);
+        hikariConfig.setMetricsTrackerFactory(poolMetrics);
+    }
+
+    /**
+     * @return A snapshot of every open connection pool, with connection counts & acquire times
+     */
+    public List<SQLPoolStats> getPoolStats() {
+        return poolMetrics.snapshot();
+    }
+
     @Override
     public void shutdown() {
         // Save all data
         debug("Saving all caches...");
-        this.loadedCaches.values().forEach(CerealCache::saveAll);
+        this.loadedCaches.values().forEach(CerealCache::shutdown);
+        this.batchExecutor.shutdown();
+        this.replicas.forEach(HikariDataSource::close);
         this.dataSource.close();
     }
 
+    /**
+     * @return A connection for statements which write, always to the primary
+     */
+    public Connection getWriteConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * @return A connection for read-only statements, from a replica if any are configured.
+     *         Falls back to the primary if the chosen replica can't hand out a connection, or every replica is
+     *         backed off after failing. Once its back-off is over, a single read probes the replica again.
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicas.isEmpty()) {
+            return dataSource.getConnection();
+        }
+
+        long now = System.currentTimeMillis();
+        int index = chooseReplica(now);
+        if (index < 0 || !claimProbe(index, now)) {
+            return dataSource.getConnection();
+        }
+        HikariDataSource replica = replicas.get(index);
+        try {
+            Connection con = replica.getConnection();
+            if (replicaFailures.getAndSet(index, 0) > 0) {
+                log("Replica %s recovered, routing reads to it again", replica.getPoolName());
+            }
+            replicaRetryAt.set(index, 0);
+            return con;
+        } catch (SQLException er) {
+            int failures = replicaFailures.incrementAndGet(index);
+            long backoff = Math.min(MAX_REPLICA_BACKOFF_MILLIS, REPLICA_BACKOFF_MILLIS << Math.min(failures - 1, 16));
+            replicaRetryAt.set(index, System.currentTimeMillis() + backoff);
+            debug("Replica %s unavailable, reading from the primary for %dms: %s", replica.getPoolName(), backoff, er.getMessage());
+            return dataSource.getConnection();
+        }
+    }
+
+    /**
+     * @return true if reads may be served by a replica which lags behind the primary
+     */
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * @return The index of the replica to read from, skipping backed off replicas, -1 if they all are
+     */
+    private int chooseReplica(long now) {
+        if (getConfig().getSqlConfig().getReplicaRouting() == SQLReplicaRouting.ROUND_ROBIN) {
+            int start = nextReplica.getAndIncrement();
+            for (int i = 0; i < replicas.size(); i++) {
+                int index = Math.floorMod(start + i, replicas.size());
+                if (isAvailable(index, now)) return index;
+            }
+            return -1;
+        }
+
+        int least = -1;
+        long leastLoad = Long.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            if (!isAvailable(i, now)) continue;
+            long load = load(replicas.get(i));
+            if (least < 0 || load < leastLoad) {
+                least = i;
+                leastLoad = load;
+            }
+        }
+        return least;
+    }
+
+    private boolean isAvailable(int index, long now) {
+        return now >= replicaRetryAt.get(index);
+    }
+
+    /**
+     * A backed off replica is probed by the first read after its back-off, the others keep skipping it meanwhile.
+     * @return true if the replica is healthy or this read claimed the probe
+     */
+    private boolean claimProbe(int index, long now) {
+        long retryAt = replicaRetryAt.get(index);
+        return retryAt == 0 || (now >= retryAt && replicaRetryAt.compareAndSet(index, retryAt, now + MAX_REPLICA_BACKOFF_MILLIS));
+    }
+
+    /**
+     * Threads waiting for a connection, ties broken by connections in use. A pool with waiting threads is out of
+     * connections, so it counts as busier than any amount in use.
+     */
+    private long load(HikariDataSource pool) {
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        if (bean == null) return Long.MAX_VALUE;
+        return ((long) bean.getThreadsAwaitingConnection() << 32) + bean.getActiveConnections();
+    }
+
+    /**
+     * Create the dialect generating the SQL for a table.
+     * @param tableName The table name
+     * @param counterFields The counter fields of the stored blob
+     * @param indexes The declared indexes of the table
+     * @return The dialect for the configured engine
+     */
+    public SQLDialect createDialect(String tableName, Set<String> counterFields, Index[] indexes, boolean compressed) {
+        if (getConfig().getMode() == Mode.POSTGRES) {
+            return new PostgreSQLDialect(tableName, counterFields, indexes, compressed);
+        }
+        return new MySQLDialect(tableName, new SQLKeys(getConfig().getSqlConfig().getKeyFormat()), counterFields, indexes, compressed);
+    }
+
     @Override
     protected <T extends CerealCache<V>, V extends CerealDataBlob> CerealCache<V> prepareNewCache(Class<T> cacheClass,
                                                                                                   Class<V> dataObjectClass)
@@ -71,7 +287,9 @@ public class CerealSQLDatabase extends CerealDatabase implements CerealLogger {
         // Overrides the code initializer of distinct to allow
         // Owners to edit the config to make specific datasource's distinct on their own usage.
         String name = classToCollectionName(cacheClass);
-        CerealDatasource<V> source = new CerealSQLDatasource<>(dataObjectClass,this, name, getSerializers(cacheClass));
+        CerealDatasource<V> source = new CerealSQLDatasource<>(dataObjectClass,this, name, getSerializers(cacheClass), getIndexes(cacheClass),
+                getCompressor(cacheClass, dataObjectClass));
+        source.setInterner(getInterner(cacheClass));
         source.start();
         CerealCache<V> cache = createNewCacheInstance(cacheClass);
         cache.setDependencies(source, getConfig());
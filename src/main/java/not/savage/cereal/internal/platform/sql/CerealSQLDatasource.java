@@ -1,52 +1,77 @@
 package not.savage.cereal.internal.platform.sql;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
 import lombok.NonNull;
 import not.savage.cereal.CerealLogger;
+import not.savage.cereal.IncrementResult;
+import not.savage.cereal.Projection;
 import not.savage.cereal.TypeSerializer;
+import not.savage.cereal.annotation.Index;
 import not.savage.cereal.exception.DataPersistenceException;
 import not.savage.cereal.exception.DatasourceException;
+import not.savage.cereal.internal.BlobCompressor;
 import not.savage.cereal.internal.CerealDataBlob;
 import not.savage.cereal.internal.CerealDatabase;
 import not.savage.cereal.internal.CerealDatasource;
+import not.savage.cereal.internal.FieldPaths;
+import not.savage.cereal.internal.StreamBuffers;
+import not.savage.cereal.internal.counter.CounterBuffer;
 import not.savage.cereal.sort.CerealFilterMode;
 import not.savage.cereal.sort.CerealSortMode;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
- * A MySQL/MariaDB implementation of the {@link CerealDatasource} interface.
+ * A SQL implementation of the {@link CerealDatasource} interface, storing each blob as JSON in a key-data table.
+ * The engine specific SQL is generated by the {@link SQLDialect} of the table, see {@link CerealSQLDatabase#createDialect}.
  * @param <T> The type of data blob to store in the datasource
  */
 public class CerealSQLDatasource<T extends CerealDataBlob> extends CerealDatasource<T> implements CerealLogger {
 
-    public static final String SAVE_QUERY = """
-    INSERT INTO ? (id, data) VALUES (?, ?) ON DUPLICATE KEY UPDATE data = VALUES(data);
-    """;
     public static final String GET_QUERY = """
-    SELECT data FROM ? WHERE id = ?;
-    """;
-    public static final String GET_FIELD_QUERY = """
-    SELECT data FROM ? WHERE JSON_EXTRACT(data, ?) = ? LIMIT ?;
+    SELECT %s FROM %s WHERE id = ?;
     """;
 
-    private final Class<T> clazz;
-    private Gson gson;
     private final CerealSQLDatabase database;
     private final String tableName;
-
-
-    public CerealSQLDatasource(Class<T> clazz, CerealDatabase database, String tableName, TypeSerializer<?>[] serializers) {
-        super(database);
+    private final SQLDialect dialect;
+    private final SQLKeys keys;
+    /**
+     * Keys written by this node recently, read from the primary while replicas may lag behind. Null without replicas.
+     */
+    private final RecentWrites recentWrites;
+    /**
+     * Compresses the blobs of a {@link not.savage.cereal.annotation.Compressed} cache, null if it isn't compressed.
+     */
+    private final BlobCompressor compressor;
+    private String saveQuery;
+
+    public CerealSQLDatasource(Class<T> clazz, CerealDatabase database, String tableName, TypeSerializer<?>[] serializers, Index[] indexes,
+                               BlobCompressor compressor) {
+        super(clazz, database);
         if (!(database instanceof CerealSQLDatabase)) {
             throw new IllegalArgumentException("CerealSQLDatasource requires a CerealSQLDatabase");
         }
         this.database = (CerealSQLDatabase) database;
-        this.clazz = clazz;
         this.tableName = tableName;
+        this.compressor = compressor;
+        this.dialect = this.database.createDialect(tableName, CounterBuffer.getCounterFields(clazz), indexes, compressor != null);
+        this.keys = dialect.getKeys();
+        this.recentWrites = this.database.hasReplicas()
+                ? new RecentWrites(this.database.getConfig().getSqlConfig().getReadYourWritesMillis())
+                : null;
         debug("Registering %d type serializers", serializers.length);
         for (TypeSerializer<?> serializer : serializers) {
             this.builder.registerTypeAdapter(getTypeClass(serializer), serializer);
@@ -54,91 +79,299 @@ public class CerealSQLDatasource<T extends CerealDataBlob> extends CerealDatasou
     }
 
     public void start() throws DatasourceException {
-        debug("Starting mongo datasource for %s", clazz.getName());
-        try (Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement("CREATE TABLE IF NOT EXISTS ? (id VARCHAR(36) PRIMARY KEY, data JSON)");
-            stmt.setString(1, tableName);
-            stmt.executeUpdate();
+        debug("Starting SQL datasource for %s", clazz.getName());
+        try (Connection con = database.getWriteConnection()) {
+            dialect.createTable(con);
         } catch (SQLException er) {
             throw new DatasourceException("Failed to create SQL table for %s".formatted(clazz.getName()), er);
         }
+        this.saveQuery = dialect.upsert(1);
         this.gson = builder.create();
     }
 
+    /**
+     * A connection to read the given key from, the primary if this node wrote the key within the read-your-writes window.
+     * Reads which aren't by key always use {@link CerealSQLDatabase#getReadConnection()}.
+     */
+    private @NonNull Connection getReadConnection(@NonNull UUID key) throws SQLException {
+        if (recentWrites != null && recentWrites.isRecent(key)) {
+            return database.getWriteConnection();
+        }
+        return database.getReadConnection();
+    }
+
+    private void recordWrite(@NonNull UUID key) {
+        if (recentWrites != null) {
+            recentWrites.record(key);
+        }
+    }
+
+    /**
+     * The stored form of a blob, its JSON & its compressed blob.
+     * @param data The whole blob, or only the uncompressed fields if it's compressed
+     * @param zdata The compressed blob, null if it isn't compressed
+     */
+    private record Row(@NonNull String data, byte[] zdata) {
+    }
+
+    private @NonNull Row toRow(@NonNull T t) {
+        try (StreamBuffers.Chars data = StreamBuffers.chars()) {
+            byte[] zdata = writeRow(t, data);
+            return new Row(data.toString(), zdata);
+        }
+    }
+
+    /**
+     * Stream the compact JSON of the data column into the writer.
+     * @return The compressed blob, null if the cache isn't compressed
+     */
+    private byte[] writeRow(@NonNull T t, @NonNull Writer out) {
+        JsonWriter writer = new JsonWriter(out);
+        if (compressor == null) {
+            this.gson.toJson(t, clazz, writer);
+            return null;
+        }
+        JsonObject tree = this.gson.toJsonTree(t, clazz).getAsJsonObject();
+        this.gson.toJson(compressor.uncompressed(tree), writer);
+        return compressor.compress(tree);
+    }
+
+    /**
+     * Read the blob of the current row, selected with {@link SQLDialect#dataColumns()}, streamed from the data column.
+     * Rows written before the cache was compressed, or after compression was turned off, have no compressed blob.
+     */
+    private T fromRow(@NonNull ResultSet results) throws SQLException {
+        try (Reader data = results.getCharacterStream("data")) {
+            if (data == null) return null;
+            byte[] zdata = dialect.isCompressedColumn() ? results.getBytes("zdata") : null;
+            if (zdata == null) {
+                return gson.fromJson(data, clazz);
+            }
+            return gson.fromJson(BlobCompressor.restore(compressor, zdata, JsonParser.parseReader(data).getAsJsonObject()), clazz);
+        } catch (IOException er) {
+            throw new SQLException("Failed to read the data column", er);
+        }
+    }
+
+    /**
+     * @return true if the fields can be read from the JSON column, which isn't the case for most fields of compressed caches
+     */
+    private boolean isQueryable(@NonNull String... fields) {
+        if (compressor == null) return true;
+        for (String field : fields) {
+            if (!compressor.isUncompressed(field)) return false;
+        }
+        return true;
+    }
+
+    private void requireQueryable(@NonNull String... fields) {
+        if (compressor != null) {
+            compressor.requireUncompressed(fields);
+        }
+    }
+
     @Override
     public void save(@NonNull T t) {
-        debug("Saving object with key \"%s\" to file datasource", t.getIdentifier());
+        debug("Saving object with key \"%s\" to SQL datasource", t.getIdentifier());
         t.lastSaved();
-        String jsonData = this.gson.toJson(t);
-        try (Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement(SAVE_QUERY);
-            stmt.setString(1, tableName);
-            stmt.setString(1, t.getIdentifier().toString());
-            stmt.setString(2, jsonData);
-            stmt.executeUpdate();
+        // Serialized into the thread's buffer before taking a connection & streamed to the driver from there
+        try (StreamBuffers.Chars data = StreamBuffers.chars()) {
+            byte[] zdata = writeRow(t, data);
+            try (Connection con = database.getWriteConnection()) {
+                PreparedStatement stmt = con.prepareStatement(saveQuery);
+                keys.bind(stmt, 1, t.getIdentifier());
+                stmt.setCharacterStream(2, data.reader(), data.size());
+                if (dialect.isCompressedColumn()) {
+                    stmt.setBytes(3, zdata);
+                }
+                stmt.executeUpdate();
+                recordWrite(t.getIdentifier());
+            } catch (SQLException er) {
+                error("Failed to save object with key \"%s\" to SQL datasource", er, t.getIdentifier());
+            }
+        }
+    }
+
+    @Override
+    public void saveFields(@NonNull T t, @NonNull String... fields) {
+        debug("Saving fields %s of object with key \"%s\" to SQL datasource", Arrays.toString(fields), t.getIdentifier());
+        if (!isQueryable(fields)) {
+            // Part of the compressed blob, which can only be rewritten as a whole
+            save(t);
+            return;
+        }
+        t.lastSaved();
+        int updated;
+        try (Connection con = database.getWriteConnection()) {
+            PreparedStatement stmt = con.prepareStatement(dialect.updateFields(fields));
+            for (int i = 0; i < fields.length; i++) {
+                stmt.setString(i + 1, FieldPaths.resolve(t, fields[i]).map(gson::toJson).orElse("null"));
+            }
+            keys.bind(stmt, fields.length + 1, t.getIdentifier());
+            updated = stmt.executeUpdate();
+            recordWrite(t.getIdentifier());
         } catch (SQLException er) {
-            error("Failed to save object with key \"%s\" to file datasource", er, t.getIdentifier());
+            error("Failed to save fields of object with key \"%s\" to SQL datasource", er, t.getIdentifier());
+            throw new DataPersistenceException("Critical failure in database.", er);
+        }
+
+        if (updated == 0) {
+            // Not stored yet, the partial document isn't enough to load from, or a nested field's parent is missing.
+            save(t);
         }
     }
 
     @Override
-    public void saveAll(@NonNull Set<T> objects) {
-        debug("Saving all objects... (%d objects)", objects.size());
-        try (Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement(SAVE_QUERY);
-            for (T t : objects) {
-                t.lastSaved();
-                String jsonData = this.gson.toJson(t);
-                stmt.setString(1, tableName);
-                stmt.setString(1, t.getIdentifier().toString());
-                stmt.setString(2, jsonData);
-                stmt.addBatch();
+    public @NonNull IncrementResult<UUID> incrementAll(@NonNull Map<UUID, Map<String, Long>> deltas, @NonNull Set<UUID> creatable) {
+        debug("Incrementing counters of %d objects in SQL datasource", deltas.size());
+        Map<String, List<UUID>> byField = new HashMap<>();
+        deltas.forEach((key, fields) -> fields.keySet().forEach(field -> byField.computeIfAbsent(field, f -> new ArrayList<>()).add(key)));
+
+        Set<UUID> stored = new HashSet<>();
+        try (Connection con = database.getWriteConnection()) {
+            con.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, List<UUID>> entry : byField.entrySet()) {
+                    try (PreparedStatement stmt = con.prepareStatement(dialect.increment(entry.getKey()))) {
+                        for (UUID key : entry.getValue()) {
+                            stmt.setLong(1, deltas.get(key).get(entry.getKey()));
+                            keys.bind(stmt, 2, key);
+                            stmt.addBatch();
+                        }
+                        int[] updated = stmt.executeBatch();
+                        for (int i = 0; i < updated.length; i++) {
+                            if (updated[i] != 0) {
+                                stored.add(entry.getValue().get(i));
+                            }
+                        }
+                    }
+                }
+                con.commit();
+                stored.forEach(this::recordWrite);
+            } catch (SQLException er) {
+                con.rollback();
+                throw er;
+            } finally {
+                con.setAutoCommit(true);
             }
-            stmt.executeBatch();
         } catch (SQLException er) {
-            error("Failure to save data batch containing %d objects", er, objects.size());
+            error("Failed to increment counters of %d objects", er, deltas.size());
             throw new DataPersistenceException("Critical failure in database.", er);
         }
+
+        Set<UUID> missing = new HashSet<>(deltas.keySet());
+        missing.removeAll(stored);
+        return new IncrementResult<>(missing, Set.of());
+    }
+
+    /**
+     * Save all objects as bulk upserts, split into chunks which are written in parallel on separate connections.
+     * Each chunk is committed on its own, a failing chunk doesn't stop the others from being written.
+     * @throws DataPersistenceException once every chunk was attempted, if any failed, with the failures suppressed
+     */
+    @Override
+    public void saveAll(@NonNull Set<T> objects) {
+        debug("Saving all objects... (%d objects)", objects.size());
+        if (objects.isEmpty()) return;
+
+        int chunkSize = database.getConfig().getSqlConfig().getBatchChunkSize();
+        List<T> all = new ArrayList<>(objects);
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            List<T> chunk = all.subList(from, Math.min(from + chunkSize, all.size()));
+            int chunkIndex = chunks.size();
+            chunks.add(CompletableFuture.runAsync(() -> saveChunk(chunkIndex, chunk), database.getBatchExecutor()));
+        }
+
+        List<Throwable> failures = new ArrayList<>();
+        for (CompletableFuture<Void> chunk : chunks) {
+            try {
+                chunk.join();
+            } catch (CompletionException er) {
+                failures.add(er.getCause());
+            }
+        }
+        if (failures.isEmpty()) {
+            debug("Saved %d objects in %d chunks to table %s", objects.size(), chunks.size(), tableName);
+            return;
+        }
+        DataPersistenceException failed = new DataPersistenceException(
+                "Failed to save %d of %d chunks to table %s".formatted(failures.size(), chunks.size(), tableName));
+        failures.forEach(failed::addSuppressed);
+        throw failed;
+    }
+
+    /**
+     * Write a chunk with {@link SQLDialect#upsertAll} in its own transaction.
+     * @throws DataPersistenceException if the chunk wasn't committed
+     */
+    private void saveChunk(int chunkIndex, @NonNull List<T> chunk) {
+        List<UUID> ids = new ArrayList<>(chunk.size());
+        List<String> data = new ArrayList<>(chunk.size());
+        List<byte[]> zdata = new ArrayList<>(chunk.size());
+        for (T t : chunk) {
+            t.lastSaved();
+            ids.add(t.getIdentifier());
+            Row row = toRow(t);
+            data.add(row.data());
+            zdata.add(row.zdata());
+        }
+
+        try (Connection con = database.getWriteConnection()) {
+            con.setAutoCommit(false);
+            try {
+                dialect.upsertAll(con, ids, data, zdata);
+                con.commit();
+                ids.forEach(this::recordWrite);
+            } catch (SQLException er) {
+                con.rollback();
+                throw er;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception er) {
+            DataPersistenceException failed = new DataPersistenceException("Failed to save data chunk.", er);
+            error("Failed to save chunk %d containing %d objects (first key %s)", failed, chunkIndex, chunk.size(), chunk.getFirst().getIdentifier());
+            throw failed;
+        }
     }
 
     @Override
     public @NonNull Optional<T> getByField(@NonNull String field, @NonNull Object value) {
-        debug("Getting object with field \"%s\" matching \"%s\" from file datasource", field, value);
-        try(Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement(GET_FIELD_QUERY);
-            
-            stmt.setString(1, tableName);
-            stmt.setString(2, field);
-            stmt.setString(3, value.toString());
-            stmt.setInt(3, 1);
-            stmt.executeQuery();
-
-            if (!stmt.getResultSet().next()) {
+        debug("Getting object with field \"%s\" matching \"%s\" from SQL datasource", field, value);
+        requireQueryable(field);
+        String query = "SELECT %s FROM %s WHERE %s LIMIT 1;".formatted(dialect.dataColumns(), tableName, dialect.filter(field, CerealFilterMode.EQUAL, value));
+        try (Connection con = database.getReadConnection()) {
+            PreparedStatement stmt = con.prepareStatement(query);
+            dialect.bindFilter(stmt, 1, field, CerealFilterMode.EQUAL, value, gson);
+            ResultSet results = stmt.executeQuery();
+
+            if (!results.next()) {
                 return Optional.empty();
             }
 
-            return Optional.ofNullable(gson.fromJson(stmt.getResultSet().getString("data"), clazz));
+            return Optional.ofNullable(fromRow(results));
         } catch (Exception e) {
-            error("Failed to get object with key \"%s\" from file datasource", e, value);
+            error("Failed to get object with key \"%s\" from SQL datasource", e, value);
             throw new DataPersistenceException("Critical failure in database.", e);
         }
     }
 
     @Override
     public @NonNull Set<T> getAllByField(String field, Object value, int limit) {
-        debug("Getting objects with key field \"%s\" matching \"%s\" from file datasource %s", field, value, limit > 1 ? "with limit " + limit : "");
-        try(Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement(GET_FIELD_QUERY);
-
-            stmt.setString(1, tableName);
-            stmt.setString(2, field);
-            stmt.setString(3, value.toString());
-            stmt.setInt(3, limit);
-            stmt.executeQuery();
+        debug("Getting objects with key field \"%s\" matching \"%s\" from SQL datasource %s", field, value, limit > 1 ? "with limit " + limit : "");
+        requireQueryable(field);
+        String query = "SELECT %s FROM %s WHERE %s%s;".formatted(dialect.dataColumns(), tableName, dialect.filter(field, CerealFilterMode.EQUAL, value), limit > 0 ? " LIMIT ?" : "");
+        try (Connection con = database.getReadConnection()) {
+            PreparedStatement stmt = con.prepareStatement(query);
+            dialect.bindFilter(stmt, 1, field, CerealFilterMode.EQUAL, value, gson);
+            if (limit > 0) {
+                stmt.setInt(2, limit);
+            }
 
-            return getResultSet(stmt);
+            return getResultSet(stmt.executeQuery());
         } catch (Exception e) {
-            error("Failed to get object with key \"%s\" from file datasource", e, value);
+            error("Failed to get object with key \"%s\" from SQL datasource", e, value);
             throw new RuntimeException("Exception in database search request.", e);
         }
     }
@@ -150,53 +383,40 @@ public class CerealSQLDatasource<T extends CerealDataBlob> extends CerealDatasou
             int limit) {
 
         debug("Getting objects with filter mode \"%s\" matching \"%s\" from SQL datasource %s", filterMode, filterFor, limit > 1 ? "with limit " + limit : "");
-        StringBuilder query = createQuery(filterMode, sortMode, limit);
-        debug("Query: %s", query.toString());
+        requireQueryable(filterByField, sortByField);
+        String query = createQuery(filterMode, filterFor, filterByField, sortMode, sortByField, limit);
+        debug("Query: %s", query);
 
-        try(Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement(query.toString());
+        try (Connection con = database.getReadConnection()) {
+            PreparedStatement stmt = con.prepareStatement(query);
 
-            stmt.setString(1, tableName);
-            stmt.setString(2, filterByField);
-            stmt.setString(3, filterFor.toString());
-            stmt.setString(4, sortByField);
+            dialect.bindFilter(stmt, 1, filterByField, filterMode, filterFor, gson);
             if (limit > 0) {
-                stmt.setInt(5, limit);
+                stmt.setInt(2, limit);
             }
 
-            return getResultSet(stmt);
+            return getResultSet(stmt.executeQuery());
         } catch (Exception e) {
-            error("Failed to get object with key \"%s\" from file datasource", e, filterFor);
+            error("Failed to get object with key \"%s\" from SQL datasource", e, filterFor);
             throw new RuntimeException("Exception in database search request.", e);
         }
     }
 
 
-    private @NonNull Set<T> getResultSet(@NonNull PreparedStatement stmt) throws SQLException {
-        if (!stmt.getResultSet().next()) {
-            return Collections.emptySet();
-        }
-
+    private @NonNull Set<T> getResultSet(@NonNull ResultSet resultSet) throws SQLException {
         Set<T> results = new HashSet<>();
-        while (stmt.getResultSet().next()) {
-            results.add(gson.fromJson(stmt.getResultSet().getString("data"), clazz));
+        while (resultSet.next()) {
+            results.add(fromRow(resultSet));
         }
         return results;
     }
 
-    private @NonNull StringBuilder createQuery(CerealFilterMode filterMode, CerealSortMode sortMode, int limit) {
-        StringBuilder query = new StringBuilder("SELECT data FROM ? WHERE JSON_EXTRACT(data, ?)");
+    private @NonNull String createQuery(CerealFilterMode filterMode, Object filterFor, String filterByField,
+                                        CerealSortMode sortMode, String sortByField, int limit) {
+        StringBuilder query = new StringBuilder("SELECT ").append(dialect.dataColumns()).append(" FROM ").append(tableName)
+                .append(" WHERE ").append(dialect.filter(filterByField, filterMode, filterFor));
 
-        switch (filterMode) {
-            case EQUAL -> query.append(" = ?");
-            case GREATER_THAN -> query.append(" > ?");
-            case LESS_THAN -> query.append(" < ?");
-            case GREATER_THAN_OR_EQUAL_TO -> query.append(" >= ?");
-            case LESS_THAN_OR_EQUAL_TO -> query.append(" <= ?");
-            case NOT_EQUAL -> query.append(" != ?");
-        }
-
-        query.append(" ORDER BY JSON_EXTRACT(data, ?)");
+        query.append(" ORDER BY ").append(dialect.fieldExpression(sortByField));
 
         switch (sortMode) {
             case ASCENDING -> query.append(" ASC");
@@ -208,55 +428,136 @@ public class CerealSQLDatasource<T extends CerealDataBlob> extends CerealDatasou
         } else {
             query.append(";");
         }
-        return query;
+        return query.toString();
     }
 
     @Override
     public @NonNull Optional<T> get(@NonNull UUID key) {
-        debug("Getting object with key \"%s\" from file datasource", key);
-        try (Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement(GET_QUERY);
-            stmt.setString(1, tableName);
-            stmt.setString(2, key.toString());
-            stmt.executeQuery();
-            if (!stmt.getResultSet().next()) {
+        debug("Getting object with key \"%s\" from SQL datasource", key);
+        try (Connection con = getReadConnection(key)) {
+            PreparedStatement stmt = con.prepareStatement(GET_QUERY.formatted(dialect.dataColumns(), tableName));
+            keys.bind(stmt, 1, key);
+            ResultSet results = stmt.executeQuery();
+            if (!results.next()) {
                 return Optional.empty();
             }
-            return Optional.ofNullable(gson.fromJson(stmt.getResultSet().getString("data"), clazz));
+            return Optional.ofNullable(fromRow(results));
         } catch (Exception e) {
-            error("Failed to get object with key \"%s\" from file datasource", e, key);
+            error("Failed to get object with key \"%s\" from SQL datasource", e, key);
             throw new RuntimeException("Exception in database search request.", e);
         }
     }
 
     @Override
     public @NonNull Set<T> getAll() {
-        debug("Getting all objects from file datasource");
-        try (Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement("SELECT data FROM ?");
-            stmt.setString(1, tableName);
-            stmt.executeQuery();
-            Set<T> results = new HashSet<>();
-            while (stmt.getResultSet().next()) {
-                results.add(gson.fromJson(stmt.getResultSet().getString("data"), clazz));
-            }
-            return results;
+        debug("Getting all objects from SQL datasource");
+        try (Connection con = database.getReadConnection()) {
+            PreparedStatement stmt = con.prepareStatement("SELECT %s FROM %s;".formatted(dialect.dataColumns(), tableName));
+            return getResultSet(stmt.executeQuery());
         } catch (Exception e) {
-            error("Failed to get all objects from file datasource", e);
+            error("Failed to get all objects from SQL datasource", e);
             throw new RuntimeException("Exception in database search request.", e);
         }
     }
 
     @Override
     public void delete(@NonNull T t) {
-        debug("Deleting object with key \"%s\" from file datasource", t.getIdentifier());
-        try (Connection con = database.getDataSource().getConnection()) {
-            PreparedStatement stmt = con.prepareStatement("DELETE FROM ? WHERE id = ?");
-            stmt.setString(1, tableName);
-            stmt.setString(2, t.getIdentifier().toString());
+        debug("Deleting object with key \"%s\" from SQL datasource", t.getIdentifier());
+        try (Connection con = database.getWriteConnection()) {
+            PreparedStatement stmt = con.prepareStatement("DELETE FROM %s WHERE id = ?;".formatted(tableName));
+            keys.bind(stmt, 1, t.getIdentifier());
             stmt.executeUpdate();
+            recordWrite(t.getIdentifier());
         } catch (SQLException er) {
-            error("Failed to delete object with key \"%s\" from file datasource", er, t.getIdentifier());
+            error("Failed to delete object with key \"%s\" from SQL datasource", er, t.getIdentifier());
+        }
+    }
+
+    @Override
+    public @NonNull Optional<Projection<UUID>> getProjected(@NonNull UUID key, @NonNull String... fields) {
+        debug("Getting projection of object with key \"%s\" from SQL datasource", key);
+        if (!isQueryable(fields)) {
+            return get(key).map(t -> project(t, fields));
+        }
+        String query = "%s WHERE id = ?;".formatted(createProjectionQuery(fields));
+        try (Connection con = getReadConnection(key)) {
+            PreparedStatement stmt = con.prepareStatement(query);
+            keys.bind(stmt, 1, key);
+            ResultSet results = stmt.executeQuery();
+            if (!results.next()) {
+                return Optional.empty();
+            }
+            return Optional.of(toProjection(results, fields));
+        } catch (Exception e) {
+            error("Failed to get projection of object with key \"%s\" from SQL datasource", e, key);
+            throw new RuntimeException("Exception in database search request.", e);
+        }
+    }
+
+    @Override
+    public @NonNull Set<Projection<UUID>> getAllProjected(@NonNull String... fields) {
+        debug("Getting projection of all objects from SQL datasource");
+        if (!isQueryable(fields)) {
+            return getAll().stream().map(t -> project(t, fields)).collect(HashSet::new, HashSet::add, HashSet::addAll);
+        }
+        try (Connection con = database.getReadConnection()) {
+            PreparedStatement stmt = con.prepareStatement(createProjectionQuery(fields) + ";");
+            return getProjectionResultSet(stmt.executeQuery(), fields);
+        } catch (Exception e) {
+            error("Failed to get projection of all objects from SQL datasource", e);
+            throw new RuntimeException("Exception in database search request.", e);
+        }
+    }
+
+    @Override
+    public @NonNull Set<Projection<UUID>> getAllByFieldProjected(@NonNull String field, @NonNull Object value, int limit, @NonNull String... fields) {
+        debug("Getting projection of objects with field \"%s\" matching \"%s\" from SQL datasource", field, value);
+        requireQueryable(field);
+        if (!isQueryable(fields)) {
+            return getAllByField(field, value, limit).stream().map(t -> project(t, fields)).collect(HashSet::new, HashSet::add, HashSet::addAll);
+        }
+        String query = "%s WHERE %s%s;".formatted(
+                createProjectionQuery(fields), dialect.filter(field, CerealFilterMode.EQUAL, value), limit > 0 ? " LIMIT ?" : "");
+        try (Connection con = database.getReadConnection()) {
+            PreparedStatement stmt = con.prepareStatement(query);
+            dialect.bindFilter(stmt, 1, field, CerealFilterMode.EQUAL, value, gson);
+            if (limit > 0) {
+                stmt.setInt(2, limit);
+            }
+            return getProjectionResultSet(stmt.executeQuery(), fields);
+        } catch (Exception e) {
+            error("Failed to get projection of objects with field \"%s\" from SQL datasource", e, field);
+            throw new RuntimeException("Exception in database search request.", e);
+        }
+    }
+
+    /**
+     * Creates a SELECT which only extracts the given paths from the JSON column, in order, after the id.
+     */
+    private @NonNull String createProjectionQuery(@NonNull String... fields) {
+        StringBuilder query = new StringBuilder("SELECT id");
+        for (String field : fields) {
+            query.append(", ").append(dialect.projectionExpression(field));
+        }
+        return query.append(" FROM ").append(tableName).toString();
+    }
+
+    private @NonNull Set<Projection<UUID>> getProjectionResultSet(@NonNull ResultSet results, @NonNull String... fields) throws SQLException {
+        Set<Projection<UUID>> projections = new HashSet<>();
+        while (results.next()) {
+            projections.add(toProjection(results, fields));
+        }
+        return projections;
+    }
+
+    private @NonNull Projection<UUID> toProjection(@NonNull ResultSet results, @NonNull String... fields) throws SQLException {
+        Map<String, JsonElement> values = new LinkedHashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            String raw = results.getString(i + 2);
+            if (raw != null) {
+                values.put(fields[i], JsonParser.parseString(raw));
+            }
         }
+        return new Projection<>(keys.read(results, 1), values, gson);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,211 @@
+package not.savage.cereal.internal.platform.sql;
+
+import com.google.gson.Gson;
+import lombok.NonNull;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.annotation.Index;
+import not.savage.cereal.exception.DatasourceException;
+import not.savage.cereal.internal.FieldPaths;
+import not.savage.cereal.sort.CerealFilterMode;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * MySQL/MariaDB dialect, storing blobs in a JSON column.
+ * Declared {@link Index} fields are mirrored into stored generated columns, which are indexed & used in queries.
+ */
+public class MySQLDialect extends SQLDialect implements CerealLogger {
+
+    public static final String GENERATED_COLUMN_PREFIX = "cereal_";
+
+    /**
+     * Field path to the stored generated column which mirrors it, for declared {@link Index}es.
+     */
+    private final Map<String, String> generatedColumns = new HashMap<>();
+    /**
+     * Whether the server is MariaDB, found on {@link #createTable(Connection)}, as it parses bound JSON differently.
+     */
+    private boolean mariaDb;
+
+    public MySQLDialect(@NonNull String tableName, @NonNull SQLKeys keys, @NonNull Set<String> counterFields, @NonNull Index[] indexes,
+                        boolean compressed) {
+        super(tableName, keys, counterFields, indexes, compressed);
+    }
+
+    @Override
+    public void createTable(@NonNull Connection con) throws SQLException, DatasourceException {
+        mariaDb = con.getMetaData().getDatabaseProductVersion().contains("MariaDB");
+        con.prepareStatement("CREATE TABLE IF NOT EXISTS %s (id %s PRIMARY KEY, data JSON)".formatted(tableName, keys.getColumnType())).executeUpdate();
+        migrateKeys(con);
+        createIndexes(con);
+        createCompressedColumn(con, "LONGBLOB");
+    }
+
+    /**
+     * Migrate a string keyed table to the configured binary key format, in place.
+     * Binary keyed tables can't be migrated back automatically, as the byte order they were written in isn't known.
+     */
+    private void migrateKeys(@NonNull Connection con) throws SQLException, DatasourceException {
+        PreparedStatement column = con.prepareStatement(
+                "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'id';");
+        column.setString(1, tableName);
+        ResultSet result = column.executeQuery();
+        if (!result.next()) return;
+
+        boolean storedBinary = result.getString(1).toLowerCase().contains("binary");
+        if (storedBinary == keys.isBinary()) return;
+        if (storedBinary) {
+            throw new DatasourceException("Table %s has binary keys but the configured key format is %s".formatted(tableName, keys.getFormat()));
+        }
+
+        log("Migrating keys of table %s to %s, this may take a while on large tables...", tableName, keys.getFormat());
+        // DDL commits implicitly, so each step is written to be safe to re-run after a partial failure.
+        PreparedStatement migrating = con.prepareStatement(
+                "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'cereal_migrated_id';");
+        migrating.setString(1, tableName);
+        if (!migrating.executeQuery().next()) {
+            con.prepareStatement("ALTER TABLE %s ADD COLUMN cereal_migrated_id BINARY(16);".formatted(tableName)).executeUpdate();
+        }
+        int migrated = con.prepareStatement("UPDATE %s SET cereal_migrated_id = %s;".formatted(tableName, keys.fromStringExpression("id"))).executeUpdate();
+        con.prepareStatement(("ALTER TABLE %s DROP PRIMARY KEY, DROP COLUMN id, "
+                + "CHANGE COLUMN cereal_migrated_id id BINARY(16) NOT NULL FIRST, ADD PRIMARY KEY (id);").formatted(tableName)).executeUpdate();
+        log("Migrated %d keys of table %s", migrated, tableName);
+    }
+
+    /**
+     * Create & maintain a stored generated column for every declared {@link Index} field, plus a secondary index over them.
+     * Columns whose type no longer matches the declaration are modified in place.
+     */
+    private void createIndexes(@NonNull Connection con) throws SQLException {
+        if (indexes.length == 0) return;
+
+        Map<String, String> existingColumns = new HashMap<>();
+        PreparedStatement columns = con.prepareStatement(
+                "SELECT COLUMN_NAME, COLUMN_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?;");
+        columns.setString(1, tableName);
+        ResultSet columnResults = columns.executeQuery();
+        while (columnResults.next()) {
+            existingColumns.put(columnResults.getString(1).toLowerCase(), columnResults.getString(2));
+        }
+
+        Set<String> existingIndexes = new HashSet<>();
+        PreparedStatement indexNames = con.prepareStatement(
+                "SELECT DISTINCT INDEX_NAME FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?;");
+        indexNames.setString(1, tableName);
+        ResultSet indexResults = indexNames.executeQuery();
+        while (indexResults.next()) {
+            existingIndexes.add(indexResults.getString(1).toLowerCase());
+        }
+
+        for (Index index : indexes) {
+            List<String> indexColumns = new ArrayList<>();
+            for (String field : index.value()) {
+                String column = GENERATED_COLUMN_PREFIX + FieldPaths.validate(field).replace('.', '_');
+                String definition = "%s %s AS (JSON_VALUE(data, '%s')) STORED".formatted(column, index.sqlType(), FieldPaths.toJsonPath(field));
+                String existingType = existingColumns.get(column.toLowerCase());
+                if (existingType == null) {
+                    debug("Adding generated column %s to %s", column, tableName);
+                    con.prepareStatement("ALTER TABLE %s ADD COLUMN %s;".formatted(tableName, definition)).executeUpdate();
+                    existingColumns.put(column.toLowerCase(), index.sqlType());
+                } else if (!existingType.equalsIgnoreCase(index.sqlType())) {
+                    debug("Modifying generated column %s in %s from %s to %s", column, tableName, existingType, index.sqlType());
+                    con.prepareStatement("ALTER TABLE %s MODIFY COLUMN %s;".formatted(tableName, definition)).executeUpdate();
+                    existingColumns.put(column.toLowerCase(), index.sqlType());
+                }
+                generatedColumns.put(field, column);
+                indexColumns.add(column);
+            }
+
+            String indexName = createIndexName(indexColumns);
+            if (!existingIndexes.contains(indexName.toLowerCase())) {
+                debug("Creating index %s on %s", indexName, tableName);
+                con.prepareStatement("CREATE %sINDEX %s ON %s (%s);".formatted(
+                        index.unique() ? "UNIQUE " : "", indexName, tableName, String.join(", ", indexColumns))).executeUpdate();
+                existingIndexes.add(indexName.toLowerCase());
+            }
+        }
+    }
+
+    private @NonNull String createIndexName(@NonNull List<String> columns) {
+        String name = "idx_" + String.join("_", columns);
+        // MySQL identifiers are limited to 64 characters
+        return name.length() <= 64 ? name : "idx_%s_%08x".formatted(tableName.length() > 40 ? tableName.substring(0, 40) : tableName, name.hashCode());
+    }
+
+    /**
+     * The generated column if the field is indexed, otherwise extracted from the JSON column.
+     */
+    @Override
+    public @NonNull String fieldExpression(@NonNull String field) {
+        String column = generatedColumns.get(field);
+        return column != null ? column : "JSON_EXTRACT(data, '%s')".formatted(FieldPaths.toJsonPath(field));
+    }
+
+    @Override
+    public @NonNull String projectionExpression(@NonNull String field) {
+        return "JSON_EXTRACT(data, '%s')".formatted(FieldPaths.toJsonPath(field));
+    }
+
+    /**
+     * Generated columns hold plain SQL values, while JSON_EXTRACT only matches numbers & booleans when they're bound as such.
+     */
+    @Override
+    public void bindFilter(@NonNull PreparedStatement stmt, int index, @NonNull String field, @NonNull CerealFilterMode mode,
+                           @NonNull Object value, @NonNull Gson gson) throws SQLException {
+        if (generatedColumns.containsKey(field)) {
+            stmt.setString(index, value.toString());
+        } else {
+            super.bindFilter(stmt, index, field, mode, value, gson);
+        }
+    }
+
+    @Override
+    public @NonNull String upsert(int rows) {
+        if (compressedColumn) {
+            return "INSERT INTO %s (id, data, zdata) VALUES %s ON DUPLICATE KEY UPDATE data = %s, zdata = VALUES(zdata);"
+                    .formatted(tableName, rows("(?, ?, ?)", rows), upsertData());
+        }
+        return "INSERT INTO %s (id, data) VALUES %s ON DUPLICATE KEY UPDATE data = %s;".formatted(tableName, rows("(?, ?)", rows), upsertData());
+    }
+
+    /**
+     * The value written to the data column when a row already exists, keeping stored counters as-is.
+     */
+    private @NonNull String upsertData() {
+        if (counterFields.isEmpty()) {
+            return "VALUES(data)";
+        }
+        StringBuilder data = new StringBuilder("JSON_SET(VALUES(data)");
+        for (String field : counterFields) {
+            String path = FieldPaths.toJsonPath(field);
+            data.append(", '%1$s', COALESCE(JSON_EXTRACT(data, '%1$s'), JSON_EXTRACT(VALUES(data), '%1$s'))".formatted(path));
+        }
+        return data.append(")").toString();
+    }
+
+    @Override
+    public @NonNull String updateFields(@NonNull String... fields) {
+        StringBuilder query = new StringBuilder("UPDATE ").append(tableName).append(" SET data = JSON_SET(data");
+        // The bound value is parsed as JSON, otherwise it would be stored as a string. MariaDB has no JSON type to cast to.
+        String value = mariaDb ? "JSON_COMPACT(?)" : "CAST(? AS JSON)";
+        for (String field : fields) {
+            query.append(", '").append(FieldPaths.toJsonPath(field)).append("', ").append(value);
+        }
+        return query.append(") WHERE id = ?").append(parentsExist(fields)).append(";").toString();
+    }
+
+    @Override
+    protected @NonNull String isObject(@NonNull String field) {
+        return "JSON_TYPE(JSON_EXTRACT(data, '%s')) = 'OBJECT'".formatted(FieldPaths.toJsonPath(field));
+    }
+
+    @Override
+    public @NonNull String increment(@NonNull String field) {
+        return "UPDATE %1$s SET data = JSON_SET(data, '%2$s', COALESCE(JSON_EXTRACT(data, '%2$s'), 0) + ?) WHERE id = ?;"
+                .formatted(tableName, FieldPaths.toJsonPath(field));
+    }
+}
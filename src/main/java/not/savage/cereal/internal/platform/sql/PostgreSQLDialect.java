@@ -0,0 +1,199 @@
+package not.savage.cereal.internal.platform.sql;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.NonNull;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.annotation.Index;
+import not.savage.cereal.internal.FieldPaths;
+import not.savage.cereal.sort.CerealFilterMode;
+import not.savage.cereal.sort.CerealSortMode;
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * PostgreSQL dialect, storing blobs in a JSONB column keyed by a native UUID.
+ * Every table gets a jsonb_path_ops GIN index, which serves equality lookups of scalar values written as containment
+ * (@>) filters.
+ * Declared {@link Index} fields additionally get a btree expression index for range filters & sorting.
+ */
+public class PostgreSQLDialect extends SQLDialect implements CerealLogger {
+
+    public PostgreSQLDialect(@NonNull String tableName, @NonNull Set<String> counterFields, @NonNull Index[] indexes, boolean compressed) {
+        super(tableName, SQLKeys.nativeUuid(), counterFields, indexes, compressed);
+    }
+
+    @Override
+    public void createTable(@NonNull Connection con) throws SQLException {
+        con.prepareStatement("CREATE TABLE IF NOT EXISTS %s (id UUID PRIMARY KEY, data JSONB NOT NULL);".formatted(tableName)).executeUpdate();
+        con.prepareStatement("CREATE INDEX IF NOT EXISTS %s ON %s USING GIN (data jsonb_path_ops);"
+                .formatted(createIndexName("gin"), tableName)).executeUpdate();
+
+        for (Index index : indexes) {
+            List<String> expressions = new ArrayList<>();
+            for (int i = 0; i < index.value().length; i++) {
+                String expression = fieldExpression(FieldPaths.validate(index.value()[i]));
+                if (i < index.order().length && index.order()[i] == CerealSortMode.DESCENDING) {
+                    expression += " DESC";
+                }
+                expressions.add(expression);
+            }
+            String indexName = createIndexName(String.join("_", index.value()).replace('.', '_'));
+            debug("Creating index %s on %s", indexName, tableName);
+            con.prepareStatement("CREATE %sINDEX IF NOT EXISTS %s ON %s (%s);".formatted(
+                    index.unique() ? "UNIQUE " : "", indexName, tableName, String.join(", ", expressions))).executeUpdate();
+        }
+        createCompressedColumn(con, "BYTEA");
+    }
+
+    private @NonNull String createIndexName(@NonNull String suffix) {
+        String name = "idx_%s_%s".formatted(tableName, suffix);
+        // PostgreSQL identifiers are limited to 63 characters
+        return name.length() <= 63 ? name : "idx_%s_%08x".formatted(tableName.length() > 40 ? tableName.substring(0, 40) : tableName, name.hashCode());
+    }
+
+    /**
+     * The field as jsonb, which compares numbers numerically & matches the declared expression indexes.
+     */
+    @Override
+    public @NonNull String fieldExpression(@NonNull String field) {
+        return "(data #> '%s')".formatted(toPath(field));
+    }
+
+    @Override
+    public @NonNull String projectionExpression(@NonNull String field) {
+        return "data #> '%s'".formatted(toPath(field));
+    }
+
+    /**
+     * Equality with a scalar is written as containment so the GIN index is used, other comparisons are made between
+     * jsonb values. Containment isn't equality for arrays & objects, e.g. [1, 2] contains [1], so those are compared.
+     */
+    @Override
+    public @NonNull String filter(@NonNull String field, @NonNull CerealFilterMode mode, @NonNull Object value) {
+        return switch (mode) {
+            case EQUAL -> isContainment(value) ? "data @> ?::jsonb" : "%s = ?::jsonb".formatted(fieldExpression(field));
+            case NOT_EQUAL -> "%s <> ?::jsonb".formatted(fieldExpression(field));
+            default -> "%s %s ?::jsonb".formatted(fieldExpression(field), operator(mode));
+        };
+    }
+
+    /**
+     * Whether an equality filter against the value is written as containment, only for values serialized as a
+     * JSON scalar, which a scalar field only contains if it's equal to it.
+     */
+    private static boolean isContainment(@NonNull Object value) {
+        return value instanceof Number || value instanceof Boolean || value instanceof CharSequence
+                || value instanceof Character || value instanceof UUID || value instanceof Enum<?>;
+    }
+
+    @Override
+    public void bindFilter(@NonNull PreparedStatement stmt, int index, @NonNull String field, @NonNull CerealFilterMode mode,
+                           @NonNull Object value, @NonNull Gson gson) throws SQLException {
+        JsonElement json = gson.toJsonTree(value);
+        if (mode == CerealFilterMode.EQUAL && isContainment(value)) {
+            // Wrap the value into the document shape it must be contained in, e.g. {"stats": {"kills": 5}}
+            String[] path = FieldPaths.validate(field).split("\\.");
+            for (int i = path.length - 1; i >= 0; i--) {
+                JsonObject parent = new JsonObject();
+                parent.add(path[i], json);
+                json = parent;
+            }
+        }
+        stmt.setString(index, gson.toJson(json));
+    }
+
+    @Override
+    public @NonNull String upsert(int rows) {
+        if (compressedColumn) {
+            return "INSERT INTO %s (id, data, zdata) VALUES %s ON CONFLICT (id) DO UPDATE SET data = %s, zdata = excluded.zdata;"
+                    .formatted(tableName, rows("(?, ?::jsonb, ?)", rows), upsertData());
+        }
+        return "INSERT INTO %s (id, data) VALUES %s ON CONFLICT (id) DO UPDATE SET data = %s;".formatted(tableName, rows("(?, ?::jsonb)", rows), upsertData());
+    }
+
+    /**
+     * The value written to the data column when a row already exists, keeping stored counters as-is.
+     */
+    private @NonNull String upsertData() {
+        String data = "excluded.data";
+        for (String field : counterFields) {
+            String path = toPath(field);
+            data = "jsonb_set(%1$s, '%2$s', COALESCE(%3$s.data #> '%2$s', excluded.data #> '%2$s', 'null'::jsonb))".formatted(data, path, tableName);
+        }
+        return data;
+    }
+
+    @Override
+    public @NonNull String updateFields(@NonNull String... fields) {
+        String data = "data";
+        for (String field : fields) {
+            // Nested from the first field outwards, so the parameters stay in field order
+            data = "jsonb_set(%s, '%s', ?::jsonb)".formatted(data, toPath(field));
+        }
+        return "UPDATE %s SET data = %s WHERE id = ?%s;".formatted(tableName, data, parentsExist(fields));
+    }
+
+    @Override
+    protected @NonNull String isObject(@NonNull String field) {
+        return "jsonb_typeof(data #> '%s') = 'object'".formatted(toPath(field));
+    }
+
+    @Override
+    public @NonNull String increment(@NonNull String field) {
+        return "UPDATE %1$s SET data = jsonb_set(data, '%2$s', to_jsonb(COALESCE((data #>> '%2$s')::numeric, 0) + ?)) WHERE id = ?;"
+                .formatted(tableName, toPath(field));
+    }
+
+    /**
+     * Bulk load the chunk with COPY into a session local staging table, then upsert it into the table in one statement.
+     */
+    @Override
+    public void upsertAll(@NonNull Connection con, @NonNull List<UUID> ids, @NonNull List<String> data, @NonNull List<byte[]> zdata)
+            throws SQLException {
+        String staging = (compressedColumn ? "cereal_zcopy_" : "cereal_copy_") + tableName;
+        String columns = compressedColumn ? "id, data, zdata" : "id, data";
+        con.prepareStatement("CREATE TEMP TABLE IF NOT EXISTS %s (id UUID, data JSONB%s) ON COMMIT DELETE ROWS;"
+                .formatted(staging, compressedColumn ? ", zdata BYTEA" : "")).executeUpdate();
+
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            csv.append(ids.get(i)).append(",\"").append(data.get(i).replace("\"", "\"\"")).append('"');
+            if (compressedColumn) {
+                // Hex bytea input, an unquoted empty field is NULL
+                csv.append(',');
+                if (zdata.get(i) != null) {
+                    csv.append("\\x").append(HexFormat.of().formatHex(zdata.get(i)));
+                }
+            }
+            csv.append('\n');
+        }
+        try {
+            con.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY %s (%s) FROM STDIN WITH (FORMAT csv);".formatted(staging, columns), new StringReader(csv.toString()));
+        } catch (IOException er) {
+            throw new SQLException("Failed to copy rows into " + staging, er);
+        }
+
+        con.prepareStatement("INSERT INTO %s (%s) SELECT %s FROM %s ON CONFLICT (id) DO UPDATE SET data = %s%s;"
+                .formatted(tableName, columns, columns, staging, upsertData(), compressedColumn ? ", zdata = excluded.zdata" : "")).executeUpdate();
+    }
+
+    /**
+     * Convert a dotted field path into a PostgreSQL text array path, e.g. "stats.kills" to {stats,kills}
+     */
+    private static @NonNull String toPath(@NonNull String field) {
+        return "{%s}".formatted(FieldPaths.validate(field).replace('.', ','));
+    }
+}
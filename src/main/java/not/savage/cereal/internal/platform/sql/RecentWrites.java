@@ -0,0 +1,48 @@
+package not.savage.cereal.internal.platform.sql;
+
+import lombok.NonNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks keys written by this node within a time window, so reads of them can be pinned to the primary
+ * until replicas have caught up.
+ */
+public final class RecentWrites {
+
+    /**
+     * Expired keys are swept after this many writes, keeping the map bounded without a background task.
+     */
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final long windowMillis;
+    private final Map<UUID, Long> writtenAt = new ConcurrentHashMap<>();
+    private final AtomicInteger writesSinceSweep = new AtomicInteger();
+
+    public RecentWrites(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Record a write of the given key
+     */
+    public void record(@NonNull UUID key) {
+        writtenAt.put(key, System.currentTimeMillis());
+        if (writesSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            writesSinceSweep.set(0);
+            long expired = System.currentTimeMillis() - windowMillis;
+            writtenAt.values().removeIf(time -> time < expired);
+        }
+    }
+
+    /**
+     * @return true if the key was written within the window
+     */
+    public boolean isRecent(@NonNull UUID key) {
+        Long time = writtenAt.get(key);
+        return time != null && System.currentTimeMillis() - time < windowMillis;
+    }
+}
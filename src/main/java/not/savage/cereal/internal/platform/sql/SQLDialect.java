@@ -0,0 +1,194 @@
+package not.savage.cereal.internal.platform.sql;
+
+import com.google.gson.Gson;
+import lombok.Getter;
+import lombok.NonNull;
+import not.savage.cereal.annotation.Index;
+import not.savage.cereal.exception.DatasourceException;
+import not.savage.cereal.sort.CerealFilterMode;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Generates the engine specific SQL used by {@link CerealSQLDatasource} for a single table.
+ * Created once per table by {@link CerealSQLDatabase#createDialect(String, Set, Index[], boolean)}, so implementations
+ * may keep per-table state discovered on {@link #createTable(Connection)}, such as generated columns.
+ * <p>
+ * Every statement keeps the same parameter layout across dialects, only the SQL around the parameters differs.
+ */
+@Getter
+public abstract class SQLDialect {
+
+    protected final String tableName;
+    protected final SQLKeys keys;
+    /**
+     * Counter fields, which keep their stored value on upserts so increments from other nodes aren't overwritten.
+     */
+    protected final Set<String> counterFields;
+    protected final Index[] indexes;
+    /**
+     * Whether the cache is {@link not.savage.cereal.annotation.Compressed}, storing compressed blobs in the zdata column.
+     */
+    protected final boolean compressed;
+    /**
+     * Whether the table has a zdata column, which stays after compression is turned off so old rows remain readable.
+     * Known after {@link #createTable(Connection)}.
+     */
+    protected boolean compressedColumn;
+
+    protected SQLDialect(@NonNull String tableName, @NonNull SQLKeys keys, @NonNull Set<String> counterFields, @NonNull Index[] indexes,
+                         boolean compressed) {
+        this.tableName = tableName;
+        this.keys = keys;
+        this.counterFields = counterFields;
+        this.indexes = indexes;
+        this.compressed = compressed;
+    }
+
+    /**
+     * Create the table if missing, migrate it if needed & maintain the declared {@link Index}es.
+     */
+    public abstract void createTable(@NonNull Connection con) throws SQLException, DatasourceException;
+
+    /**
+     * Find the zdata column holding compressed blobs, adding it if the cache is compressed.
+     * @param type The binary column type of the engine
+     */
+    protected void createCompressedColumn(@NonNull Connection con, @NonNull String type) throws SQLException {
+        compressedColumn = false;
+        for (String table : new LinkedHashSet<>(List.of(tableName, tableName.toLowerCase()))) {
+            try (ResultSet columns = con.getMetaData().getColumns(con.getCatalog(), null, table, null)) {
+                while (columns.next()) {
+                    if (columns.getString("COLUMN_NAME").equalsIgnoreCase("zdata")) {
+                        compressedColumn = true;
+                    }
+                }
+            }
+        }
+        if (compressed && !compressedColumn) {
+            con.prepareStatement("ALTER TABLE %s ADD COLUMN zdata %s;".formatted(tableName, type)).executeUpdate();
+            compressedColumn = true;
+        }
+    }
+
+    /**
+     * The columns a blob is read from.
+     */
+    public @NonNull String dataColumns() {
+        return compressedColumn ? "data, zdata" : "data";
+    }
+
+    /**
+     * The SQL expression reading a field, used for sorting & comparisons.
+     */
+    public abstract @NonNull String fieldExpression(@NonNull String field);
+
+    /**
+     * The SQL expression reading a field as JSON text, or NULL if the field is missing.
+     */
+    public abstract @NonNull String projectionExpression(@NonNull String field);
+
+    /**
+     * An upsert of the given number of rows. Parameters: (id, data) per row, followed by zdata if the table has the column.
+     */
+    public abstract @NonNull String upsert(int rows);
+
+    /**
+     * An update of the given fields of a stored row. Parameters: the JSON value of each field in order, then the id.
+     * Matches no row unless the parent object of every nested field is stored, see {@link #parentsExist(String...)}.
+     */
+    public abstract @NonNull String updateFields(@NonNull String... fields);
+
+    /**
+     * A predicate which is true if the field of the stored row holds a JSON object.
+     */
+    protected abstract @NonNull String isObject(@NonNull String field);
+
+    /**
+     * The conditions appended to the WHERE clause of {@link #updateFields(String...)}.
+     * Setting a path within a missing or null parent is a silent no-op on every engine, so such an update matches no
+     * row instead & the caller falls back to saving the whole object.
+     */
+    protected @NonNull String parentsExist(@NonNull String... fields) {
+        StringBuilder conditions = new StringBuilder();
+        for (String field : fields) {
+            int parent = field.lastIndexOf('.');
+            if (parent > 0) {
+                conditions.append(" AND ").append(isObject(field.substring(0, parent)));
+            }
+        }
+        return conditions.toString();
+    }
+
+    /**
+     * An atomic increment of a numeric field of a stored row. Parameters: (delta, id).
+     */
+    public abstract @NonNull String increment(@NonNull String field);
+
+    /**
+     * A predicate comparing a field against a single parameter, bound by {@link #bindFilter}.
+     * @param value The value the parameter is bound to, for dialects whose SQL depends on its type
+     */
+    public @NonNull String filter(@NonNull String field, @NonNull CerealFilterMode mode, @NonNull Object value) {
+        return "%s %s ?".formatted(fieldExpression(field), operator(mode));
+    }
+
+    /**
+     * Bind the parameter of {@link #filter(String, CerealFilterMode, Object)}.
+     */
+    public void bindFilter(@NonNull PreparedStatement stmt, int index, @NonNull String field, @NonNull CerealFilterMode mode,
+                           @NonNull Object value, @NonNull Gson gson) throws SQLException {
+        if (value instanceof Number || value instanceof Boolean) {
+            stmt.setObject(index, value);
+        } else {
+            stmt.setString(index, value.toString());
+        }
+    }
+
+    /**
+     * Write a chunk of rows within the caller's transaction, as a single multi-row {@link #upsert(int)} by default.
+     * @param ids The ids of the rows
+     * @param data The serialized data of each row, in the same order as the ids
+     * @param zdata The compressed blob of each row, in the same order as the ids, null entries for uncompressed rows
+     */
+    public void upsertAll(@NonNull Connection con, @NonNull List<UUID> ids, @NonNull List<String> data, @NonNull List<byte[]> zdata)
+            throws SQLException {
+        PreparedStatement stmt = con.prepareStatement(upsert(ids.size()));
+        int parameter = 1;
+        for (int i = 0; i < ids.size(); i++) {
+            keys.bind(stmt, parameter++, ids.get(i));
+            stmt.setString(parameter++, data.get(i));
+            if (compressedColumn) {
+                stmt.setBytes(parameter++, zdata.get(i));
+            }
+        }
+        stmt.executeUpdate();
+    }
+
+    /**
+     * The VALUES list of a multi-row insert.
+     * @param row The placeholder of a single row, e.g. "(?, ?)"
+     */
+    protected static @NonNull String rows(@NonNull String row, int rows) {
+        return String.join(", ", Collections.nCopies(rows, row));
+    }
+
+    protected static @NonNull String operator(@NonNull CerealFilterMode mode) {
+        return switch (mode) {
+            case EQUAL -> "=";
+            case GREATER_THAN -> ">";
+            case LESS_THAN -> "<";
+            case GREATER_THAN_OR_EQUAL_TO -> ">=";
+            case LESS_THAN_OR_EQUAL_TO -> "<=";
+            case NOT_EQUAL -> "!=";
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package not.savage.cereal.internal.platform.sql;
+
+import lombok.Getter;
+import lombok.NonNull;
+import not.savage.cereal.config.sub.SQLKeyFormat;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Binds & reads identifiers in the id column according to the configured {@link SQLKeyFormat}.
+ * Every statement touching the id column goes through here so the format is applied consistently.
+ */
+public final class SQLKeys {
+
+    @Getter private final SQLKeyFormat format;
+    /**
+     * Whether the engine has a native UUID column type, in which case the format doesn't apply.
+     */
+    private final boolean nativeUuid;
+
+    public SQLKeys(@NonNull SQLKeyFormat format) {
+        this(format, false);
+    }
+
+    private SQLKeys(@NonNull SQLKeyFormat format, boolean nativeUuid) {
+        this.format = format;
+        this.nativeUuid = nativeUuid;
+    }
+
+    /**
+     * Keys for engines with a native 16 byte UUID column type, such as PostgreSQL.
+     */
+    public static @NonNull SQLKeys nativeUuid() {
+        return new SQLKeys(SQLKeyFormat.BINARY, true);
+    }
+
+    /**
+     * @return The column type of the id column for this format
+     */
+    public @NonNull String getColumnType() {
+        if (nativeUuid) return "UUID";
+        return format == SQLKeyFormat.STRING ? "VARCHAR(36)" : "BINARY(16)";
+    }
+
+    /**
+     * @return true if the id column holds raw bytes
+     */
+    public boolean isBinary() {
+        return !nativeUuid && format != SQLKeyFormat.STRING;
+    }
+
+    public void bind(@NonNull PreparedStatement stmt, int index, @NonNull UUID key) throws SQLException {
+        if (nativeUuid) {
+            stmt.setObject(index, key);
+        } else if (isBinary()) {
+            stmt.setBytes(index, toBytes(key));
+        } else {
+            stmt.setString(index, key.toString());
+        }
+    }
+
+    public @NonNull UUID read(@NonNull ResultSet results, int column) throws SQLException {
+        if (nativeUuid) return results.getObject(column, UUID.class);
+        return isBinary() ? fromBytes(results.getBytes(column)) : UUID.fromString(results.getString(column));
+    }
+
+    /**
+     * The SQL expression converting a textual UUID column into this binary format, used when migrating string keyed tables.
+     * @param column The VARCHAR(36) column
+     */
+    public @NonNull String fromStringExpression(@NonNull String column) {
+        String hex = "REPLACE(%s, '-', '')".formatted(column);
+        if (format == SQLKeyFormat.BINARY_ORDERED) {
+            // time_hi, time_mid, time_low, then the rest, matching toBytes
+            return "UNHEX(CONCAT(SUBSTR(%1$s, 13, 4), SUBSTR(%1$s, 9, 4), SUBSTR(%1$s, 1, 8), SUBSTR(%1$s, 17)))".formatted(hex);
+        }
+        return "UNHEX(%s)".formatted(hex);
+    }
+
+    private byte @NonNull [] toBytes(@NonNull UUID key) {
+        long msb = key.getMostSignificantBits();
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        if (format == SQLKeyFormat.BINARY_ORDERED) {
+            buffer.putShort((short) msb) // time_hi & version
+                    .putShort((short) (msb >>> 16)) // time_mid
+                    .putInt((int) (msb >>> 32)); // time_low
+        } else {
+            buffer.putLong(msb);
+        }
+        return buffer.putLong(key.getLeastSignificantBits()).array();
+    }
+
+    private @NonNull UUID fromBytes(byte @NonNull [] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long msb;
+        if (format == SQLKeyFormat.BINARY_ORDERED) {
+            long timeHigh = buffer.getShort() & 0xFFFFL;
+            long timeMid = buffer.getShort() & 0xFFFFL;
+            long timeLow = buffer.getInt() & 0xFFFFFFFFL;
+            msb = (timeLow << 32) | (timeMid << 16) | timeHigh;
+        } else {
+            msb = buffer.getLong();
+        }
+        return new UUID(msb, buffer.getLong());
+    }
+}
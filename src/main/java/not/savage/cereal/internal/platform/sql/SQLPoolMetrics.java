@@ -0,0 +1,100 @@
+package not.savage.cereal.internal.platform.sql;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import lombok.NonNull;
+import not.savage.cereal.CerealLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects connection level metrics of every Hikari pool it's registered with, without any metrics library.
+ * Snapshots are taken with {@link #snapshot()}.
+ */
+public class SQLPoolMetrics implements MetricsTrackerFactory, CerealLogger {
+
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Tracker tracker = new Tracker(poolName, poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    /**
+     * @return A snapshot of every pool which is still open
+     */
+    public @NonNull List<SQLPoolStats> snapshot() {
+        List<SQLPoolStats> stats = new ArrayList<>();
+        trackers.values().forEach(tracker -> stats.add(tracker.snapshot()));
+        return stats;
+    }
+
+    private class Tracker implements IMetricsTracker {
+
+        private final String poolName;
+        private final PoolStats poolStats;
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder released = new LongAdder();
+        private final LongAdder usageMillis = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        private Tracker(String poolName, PoolStats poolStats) {
+            this.poolName = poolName;
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquired.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            released.increment();
+            usageMillis.add(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+            error("Timed out waiting for a connection from pool %s (%d active, %d waiting), consider raising the pool size"
+                    .formatted(poolName, poolStats.getActiveConnections(), poolStats.getPendingThreads()));
+        }
+
+        @Override
+        public void close() {
+            trackers.remove(poolName, this);
+        }
+
+        private SQLPoolStats snapshot() {
+            long acquiredCount = acquired.sum();
+            long releasedCount = released.sum();
+            return new SQLPoolStats(
+                    poolName,
+                    poolStats.getActiveConnections(),
+                    poolStats.getIdleConnections(),
+                    poolStats.getTotalConnections(),
+                    poolStats.getMaxConnections(),
+                    poolStats.getPendingThreads(),
+                    acquiredCount,
+                    acquiredCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum() / acquiredCount),
+                    TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get()),
+                    releasedCount == 0 ? 0 : usageMillis.sum() / releasedCount,
+                    timeouts.sum()
+            );
+        }
+    }
+}
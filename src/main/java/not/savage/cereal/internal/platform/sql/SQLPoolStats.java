@@ -0,0 +1,31 @@
+package not.savage.cereal.internal.platform.sql;
+
+/**
+ * A point in time snapshot of a SQL connection pool, see {@link CerealSQLDatabase#getPoolStats()}.
+ * @param poolName The name of the pool, e.g. "cereal-primary"
+ * @param activeConnections Connections currently in use
+ * @param idleConnections Connections open & waiting to be used
+ * @param totalConnections Connections open
+ * @param maxConnections The maximum size of the pool
+ * @param pendingThreads Threads waiting for a connection, anything above 0 means the pool is saturated
+ * @param acquired Connections handed out since the pool started
+ * @param averageAcquireMicros Average time spent waiting for a connection
+ * @param maxAcquireMicros Longest time spent waiting for a connection
+ * @param averageUsageMillis Average time a connection was held before being returned
+ * @param timeouts Requests which gave up waiting for a connection
+ */
+public record SQLPoolStats(
+        String poolName,
+        int activeConnections,
+        int idleConnections,
+        int totalConnections,
+        int maxConnections,
+        int pendingThreads,
+        long acquired,
+        long averageAcquireMicros,
+        long maxAcquireMicros,
+        long averageUsageMillis,
+        long timeouts
+) {
+
+}
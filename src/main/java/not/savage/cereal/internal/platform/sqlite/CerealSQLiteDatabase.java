@@ -0,0 +1,90 @@
+package not.savage.cereal.internal.platform.sqlite;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.annotation.Index;
+import not.savage.cereal.config.CerealConfig;
+import not.savage.cereal.config.sub.SQLKeyFormat;
+import not.savage.cereal.internal.platform.sql.CerealSQLDatabase;
+import not.savage.cereal.internal.platform.sql.SQLDialect;
+import not.savage.cereal.internal.platform.sql.SQLKeys;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded SQLite implementation of CerealDatabase, storing every cache as a table in a single local database file.
+ * The database runs in WAL mode so readers never block the writer. All writes go through a single writer connection,
+ * as SQLite only allows one writer at a time, while reads are spread over a pool of read-only connections.
+ */
+@Getter
+public class CerealSQLiteDatabase extends CerealSQLDatabase implements CerealLogger {
+
+    private HikariDataSource readers;
+
+    public CerealSQLiteDatabase(CerealConfig config) {
+        super(config);
+    }
+
+    @Override
+    public boolean start() {
+        File file = new File(getConfig().getSqliteConfig().getFile());
+        String jdbcUrl = "jdbc:sqlite:" + file.getAbsolutePath();
+        debug("Opening SQLite database %s", file.getAbsolutePath());
+
+        try {
+            HikariConfig writerConfig = createConfig(jdbcUrl, "cereal-sqlite-writer", 1);
+            // Persistent for the database file, set once by the writer before any reader connects
+            writerConfig.addDataSourceProperty("journal_mode", "WAL");
+            this.dataSource = new HikariDataSource(writerConfig);
+
+            HikariConfig readerConfig = createConfig(jdbcUrl, "cereal-sqlite-reader", getConfig().getSqliteConfig().getReaderPoolSize());
+            readerConfig.setConnectionInitSql("PRAGMA query_only = true;");
+            this.readers = new HikariDataSource(readerConfig);
+        } catch (Exception e) {
+            error("Failed to open SQLite database %s: %s", e, file.getAbsolutePath(), e.getMessage());
+            return false;
+        }
+
+        // Chunks queue up on the single writer anyway
+        this.batchExecutor = Executors.newSingleThreadExecutor();
+        return true;
+    }
+
+    private HikariConfig createConfig(String jdbcUrl, String poolName, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setPoolName(poolName);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(poolSize);
+        // Connections to a local file don't go stale, keep them open for the lifetime of the database
+        config.setMaxLifetime(0);
+        config.setIdleTimeout(0);
+        config.addDataSourceProperty("busy_timeout", "5000");
+        config.addDataSourceProperty("synchronous", "NORMAL");
+        // The pool sizes are fixed by SQLite's single writer, the remaining settings still apply
+        applyPoolConfig(config, getConfig().getSqlConfig().getPool());
+        return config;
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        this.readers.close();
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        return readers.getConnection();
+    }
+
+    @Override
+    public SQLDialect createDialect(String tableName, Set<String> counterFields, Index[] indexes, boolean compressed) {
+        return new SQLiteDialect(tableName, new SQLKeys(SQLKeyFormat.STRING), counterFields, indexes, compressed);
+    }
+}
@@ -0,0 +1,121 @@
+package not.savage.cereal.internal.platform.sqlite;
+
+import com.google.gson.Gson;
+import lombok.NonNull;
+import not.savage.cereal.CerealLogger;
+import not.savage.cereal.annotation.Index;
+import not.savage.cereal.internal.FieldPaths;
+import not.savage.cereal.internal.platform.sql.SQLDialect;
+import not.savage.cereal.internal.platform.sql.SQLKeys;
+import not.savage.cereal.sort.CerealFilterMode;
+import not.savage.cereal.sort.CerealSortMode;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * SQLite dialect, storing blobs as JSON text & querying them with the JSON1 functions.
+ * Declared {@link Index} fields become json_extract expression indexes, which queries reuse verbatim
+ * through {@link #fieldExpression(String)} so the planner picks them up.
+ */
+public class SQLiteDialect extends SQLDialect implements CerealLogger {
+
+    public SQLiteDialect(@NonNull String tableName, @NonNull SQLKeys keys, @NonNull Set<String> counterFields, @NonNull Index[] indexes,
+                         boolean compressed) {
+        super(tableName, keys, counterFields, indexes, compressed);
+    }
+
+    @Override
+    public void createTable(@NonNull Connection con) throws SQLException {
+        con.prepareStatement("CREATE TABLE IF NOT EXISTS %s (id TEXT PRIMARY KEY, data TEXT NOT NULL) WITHOUT ROWID;".formatted(tableName)).executeUpdate();
+        for (Index index : indexes) {
+            List<String> expressions = new ArrayList<>();
+            for (int i = 0; i < index.value().length; i++) {
+                String expression = fieldExpression(FieldPaths.validate(index.value()[i]));
+                if (i < index.order().length && index.order()[i] == CerealSortMode.DESCENDING) {
+                    expression += " DESC";
+                }
+                expressions.add(expression);
+            }
+            String indexName = "idx_%s_%s".formatted(tableName, String.join("_", index.value()).replace('.', '_'));
+            debug("Creating index %s on %s", indexName, tableName);
+            con.prepareStatement("CREATE %sINDEX IF NOT EXISTS %s ON %s (%s);".formatted(
+                    index.unique() ? "UNIQUE " : "", indexName, tableName, String.join(", ", expressions))).executeUpdate();
+        }
+        createCompressedColumn(con, "BLOB");
+    }
+
+    @Override
+    public @NonNull String fieldExpression(@NonNull String field) {
+        return "json_extract(data, '%s')".formatted(FieldPaths.toJsonPath(field));
+    }
+
+    /**
+     * The -> operator returns the JSON text of the value, or NULL if the path is missing.
+     */
+    @Override
+    public @NonNull String projectionExpression(@NonNull String field) {
+        return "data -> '%s'".formatted(FieldPaths.toJsonPath(field));
+    }
+
+    /**
+     * json_extract returns plain SQL values, with booleans as 1 & 0.
+     */
+    @Override
+    public void bindFilter(@NonNull PreparedStatement stmt, int index, @NonNull String field, @NonNull CerealFilterMode mode,
+                           @NonNull Object value, @NonNull Gson gson) throws SQLException {
+        if (value instanceof Boolean bool) {
+            stmt.setInt(index, bool ? 1 : 0);
+        } else {
+            super.bindFilter(stmt, index, field, mode, value, gson);
+        }
+    }
+
+    @Override
+    public @NonNull String upsert(int rows) {
+        if (compressedColumn) {
+            return "INSERT INTO %s (id, data, zdata) VALUES %s ON CONFLICT (id) DO UPDATE SET data = %s, zdata = excluded.zdata;"
+                    .formatted(tableName, rows("(?, ?, ?)", rows), upsertData());
+        }
+        return "INSERT INTO %s (id, data) VALUES %s ON CONFLICT (id) DO UPDATE SET data = %s;".formatted(tableName, rows("(?, ?)", rows), upsertData());
+    }
+
+    /**
+     * The value written to the data column when a row already exists, keeping stored counters as-is.
+     */
+    private @NonNull String upsertData() {
+        if (counterFields.isEmpty()) {
+            return "excluded.data";
+        }
+        StringBuilder data = new StringBuilder("json_set(excluded.data");
+        for (String field : counterFields) {
+            String path = FieldPaths.toJsonPath(field);
+            data.append(", '%1$s', COALESCE(json_extract(data, '%1$s'), json_extract(excluded.data, '%1$s'))".formatted(path));
+        }
+        return data.append(")").toString();
+    }
+
+    @Override
+    public @NonNull String updateFields(@NonNull String... fields) {
+        StringBuilder query = new StringBuilder("UPDATE ").append(tableName).append(" SET data = json_set(data");
+        for (String field : fields) {
+            query.append(", '").append(FieldPaths.toJsonPath(field)).append("', json(?)");
+        }
+        return query.append(") WHERE id = ?").append(parentsExist(fields)).append(";").toString();
+    }
+
+    @Override
+    protected @NonNull String isObject(@NonNull String field) {
+        return "json_type(data, '%s') = 'object'".formatted(FieldPaths.toJsonPath(field));
+    }
+
+    @Override
+    public @NonNull String increment(@NonNull String field) {
+        return "UPDATE %1$s SET data = json_set(data, '%2$s', COALESCE(json_extract(data, '%2$s'), 0) + ?) WHERE id = ?;"
+                .formatted(tableName, FieldPaths.toJsonPath(field));
+    }
+}
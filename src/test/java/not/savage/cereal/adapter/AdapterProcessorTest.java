@@ -0,0 +1,193 @@
+package not.savage.cereal.adapter;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compiles classes with the {@link AdapterProcessor} & compares their generated adapters against Gson's reflection.
+ */
+class AdapterProcessorTest {
+
+    private static final String GUILD = """
+            package game;
+
+            import com.google.gson.annotations.SerializedName;
+            import not.savage.cereal.annotation.GenerateAdapter;
+            import not.savage.cereal.internal.CerealDataBlob;
+
+            import java.util.*;
+
+            @GenerateAdapter
+            public class Guild extends CerealDataBlob {
+                public enum Rank { LOW, HIGH }
+
+                @GenerateAdapter
+                public static class Stats {
+                    int level = 1;
+                    private long xp;
+                    Stats child;
+                }
+
+                private String name;
+                int score;
+                private long kills;
+                double ratio;
+                private float f;
+                boolean active;
+                char c = 'a';
+                short s;
+                byte b;
+                Integer boxed;
+                Boolean flag;
+                String missing;
+                @SerializedName(value = "nick", alternate = {"nickname"}) String nick;
+                private final List<String> tags = new ArrayList<>();
+                Map<UUID, Integer> friends = new HashMap<>();
+                Stats stats = new Stats();
+                Rank rank;
+                int[] arr;
+                transient int skipped = 5;
+                static int shared = 1;
+
+                public void initialize() {}
+                public void load() {}
+
+                public static Guild sample() {
+                    Guild g = new Guild();
+                    g.setIdentifier(UUID.fromString("5f0c2b0e-6d3a-4c1e-9a57-2b1f3c4d5e6f"));
+                    g.name = "Knights \\"of\\" <Ni>";
+                    g.score = -5;
+                    g.kills = 1L << 40;
+                    g.ratio = 1.25;
+                    g.f = 0.1f;
+                    g.active = true;
+                    g.c = 'z';
+                    g.s = 3;
+                    g.b = -1;
+                    g.boxed = 7;
+                    g.nick = "k";
+                    g.tags.add("x");
+                    g.friends.put(UUID.fromString("0e1d2c3b-4a59-4687-9a0b-1c2d3e4f5a6b"), 2);
+                    g.stats.xp = 99;
+                    g.stats.child = new Stats();
+                    g.rank = Rank.HIGH;
+                    g.arr = new int[]{1, 2};
+                    return g;
+                }
+            }
+            """;
+
+    @TempDir
+    Path output;
+
+    @Test
+    void generatedAdapterMatchesReflection() throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> errors = compile("game.Guild", GUILD);
+        assertTrue(errors.isEmpty(), () -> "Compilation failed: " + errors);
+        assertTrue(Files.exists(output.resolve("game/Guild_CerealAdapter.class")));
+        assertTrue(Files.exists(output.resolve("game/Guild_Stats_CerealAdapter.class")));
+
+        try (URLClassLoader loader = new URLClassLoader(new java.net.URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> guild = loader.loadClass("game.Guild");
+            Method sample = guild.getMethod("sample");
+            Gson reflective = builder().create();
+            Gson generated = builder().registerTypeAdapterFactory(GeneratedAdapterFactory.INSTANCE).create();
+            assertEquals("Guild_CerealAdapter", generated.getAdapter(guild).getClass().getSimpleName());
+
+            Object guildSample = sample.invoke(null);
+            String expected = reflective.toJson(guildSample);
+            assertEquals(expected, generated.toJson(guildSample));
+            assertEquals(expected, reflective.toJson(generated.fromJson(expected, guild)));
+            assertEquals(expected, generated.toJson(reflective.fromJson(expected, guild)));
+
+            Object alternate = generated.fromJson("{\"nickname\":\"alt\",\"unknown\":[1,2],\"boxed\":null}", guild);
+            assertEquals(reflective.toJson(reflective.fromJson("{\"nickname\":\"alt\",\"unknown\":[1,2],\"boxed\":null}", guild)),
+                    reflective.toJson(alternate));
+        }
+    }
+
+    @Test
+    void unsupportedAnnotationsFailCompilation() throws Exception {
+        for (String annotation : List.of("@com.google.gson.annotations.JsonAdapter(Object.class)",
+                "@com.google.gson.annotations.Expose", "@com.google.gson.annotations.Since(1.0)", "@com.google.gson.annotations.Until(2.0)")) {
+            String source = """
+                    package game;
+
+                    @not.savage.cereal.annotation.GenerateAdapter
+                    public class Flagged {
+                        %s String name;
+                    }
+                    """.formatted(annotation);
+            List<Diagnostic<? extends JavaFileObject>> errors = compile("game.Flagged", source);
+            assertEquals(1, errors.size(), () -> annotation + " compiled: " + errors);
+            assertTrue(errors.getFirst().getMessage(null).contains("doesn't support"), errors.getFirst().getMessage(null));
+        }
+
+        List<Diagnostic<? extends JavaFileObject>> errors = compile("game.Adapted", """
+                package game;
+
+                @not.savage.cereal.annotation.GenerateAdapter
+                @com.google.gson.annotations.JsonAdapter(Object.class)
+                public class Adapted {
+                    String name;
+                }
+                """);
+        assertEquals(1, errors.size(), () -> "@JsonAdapter class compiled: " + errors);
+    }
+
+    /**
+     * The options of the Gson instance of the datasources which change how fields are serialized. Static fields are
+     * excluded too, the datasources' Gson writes them but generated adapters skip them on purpose.
+     */
+    private static GsonBuilder builder() {
+        return new GsonBuilder()
+                .disableHtmlEscaping()
+                .serializeNulls()
+                .enableComplexMapKeySerialization()
+                .disableInnerClassSerialization()
+                .excludeFieldsWithModifiers(Modifier.TRANSIENT, Modifier.VOLATILE, Modifier.STATIC);
+    }
+
+    /**
+     * Compile the source with the processor into the output directory.
+     * @return The errors reported
+     */
+    private List<Diagnostic<? extends JavaFileObject>> compile(String className, String source) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            List<String> options = List.of("-d", output.toString(), "-s", output.toString(),
+                    "-classpath", System.getProperty("java.class.path") + File.pathSeparator + output);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null, List.of(file));
+            task.setProcessors(List.of(new AdapterProcessor()));
+            task.call();
+        }
+        return diagnostics.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR).toList();
+    }
+}